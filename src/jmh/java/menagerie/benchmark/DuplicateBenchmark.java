@@ -0,0 +1,86 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.benchmark;
+
+import menagerie.gui.screens.duplicates.DuplicateFinderThread;
+import menagerie.gui.screens.duplicates.DuplicateManagerThread;
+import menagerie.model.menagerie.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks the all-pairs duplicate comparison of a single {@link DuplicateFinderThread}, and of the blocked parallel scan
+ * of {@link DuplicateManagerThread}, with and without hashing candidate pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DuplicateBenchmark {
+
+    @Param({"2000"})
+    public int compared;
+
+    private List<Item> items;
+
+
+    @Setup(Level.Trial)
+    public void setup(LibraryState library) {
+        List<Item> all = library.library.getMenagerie().getItems();
+        items = new ArrayList<>(all.subList(0, Math.min(compared, all.size())));
+    }
+
+    @Benchmark
+    public int findDuplicates(LibraryState library) throws InterruptedException {
+        DuplicateFinderThread finder = new DuplicateFinderThread(library.library.getMenagerie(), items, items, 0.95, null, null);
+        finder.start();
+        finder.join();
+        return finder.getPairs().size();
+    }
+
+    @Benchmark
+    public int findDuplicatesParallel(LibraryState library) throws InterruptedException {
+        AtomicInteger found = new AtomicInteger();
+        DuplicateManagerThread manager = new DuplicateManagerThread(library.library.getMenagerie(), items, items, 0.95, null, results -> found.set(results.size()));
+        manager.start();
+        manager.join();
+        return found.get();
+    }
+
+    @Benchmark
+    public int findDuplicatesHashed(LibraryState library) throws InterruptedException {
+        AtomicInteger found = new AtomicInteger();
+        DuplicateManagerThread manager = new DuplicateManagerThread(library.library.getMenagerie(), items, items, 0.95, 16, null, results -> found.set(results.size()));
+        manager.start();
+        manager.join();
+        return found.get();
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.benchmark;
+
+import menagerie.model.menagerie.histogram.HistogramReadException;
+import menagerie.model.menagerie.histogram.HistogramStore;
+import menagerie.model.menagerie.histogram.ImageHistogram;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks histogram comparison, in objects and in a packed store, and construction from database streams.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+
+    @Param({"1024"})
+    public int histograms;
+
+    private ImageHistogram[] loaded;
+    private HistogramStore store;
+    private byte[][] channels;
+    private int index = 0;
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        loaded = new ImageHistogram[histograms];
+        for (int i = 0; i < histograms; i++) {
+            loaded[i] = LibraryGenerator.randomHistogram(random);
+        }
+        store = new HistogramStore(histograms);
+        for (ImageHistogram histogram : loaded) {
+            store.add(histogram);
+        }
+
+        channels = new byte[ImageHistogram.NUM_CHANNELS][];
+        for (int i = 0; i < channels.length; i++) {
+            ByteBuffer bb = ByteBuffer.allocate(ImageHistogram.BIN_SIZE * 8);
+            for (int j = 0; j < ImageHistogram.BIN_SIZE; j++) {
+                bb.putDouble(1.0 / ImageHistogram.BIN_SIZE);
+            }
+            channels[i] = bb.array();
+        }
+    }
+
+    @Benchmark
+    public double similarity() {
+        final int i = index;
+        index = (index + 1) % histograms;
+        return loaded[i].getSimilarity(loaded[(i * 31 + 7) % histograms]);
+    }
+
+    @Benchmark
+    public double storeSimilarity() {
+        final int i = index;
+        index = (index + 1) % histograms;
+        return store.getSimilarity(i, (i * 31 + 7) % histograms);
+    }
+
+    @Benchmark
+    public ImageHistogram constructFromStreams() throws HistogramReadException {
+        return new ImageHistogram(new ByteArrayInputStream(channels[0]), new ByteArrayInputStream(channels[1]), new ByteArrayInputStream(channels[2]), new ByteArrayInputStream(channels[3]));
+    }
+
+}
@@ -0,0 +1,329 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.benchmark;
+
+import menagerie.model.menagerie.GroupItem;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.menagerie.db.DatabaseVersionUpdater;
+import menagerie.model.menagerie.histogram.HistogramReadException;
+import menagerie.model.menagerie.histogram.ImageHistogram;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates deterministic, realistic libraries through {@link DatabaseVersionUpdater} and {@link DatabaseManager}.
+ * <p>
+ * Tag frequencies follow a Zipfian distribution, some items are grouped, some images are near-duplicates of earlier
+ * images, some pairs are marked as non-duplicates, and optionally every media item gets a small placeholder image on
+ * disk.
+ * <p>
+ * Can be run headless to generate a library database: {@code LibraryGenerator <jdbc url> <items> <tags> [placeholder folder]}
+ */
+public class LibraryGenerator {
+
+    private static final String[] TAG_PREFIXES = {"", "", "", "artist:", "character:", "series:"};
+
+    /**
+     * Chance of an item starting a new group.
+     */
+    private static final double GROUP_CHANCE = 0.01;
+    /**
+     * Chance of an image being a near-duplicate of an earlier image.
+     */
+    private static final double SIMILAR_CHANCE = 0.02;
+    /**
+     * Number of non-duplicate pairs per media item.
+     */
+    private static final double NON_DUPES_PER_ITEM = 0.005;
+    /**
+     * Exponent of the Zipfian tag frequency distribution.
+     */
+    private static final double TAG_SKEW = 1.0;
+
+    private final int itemCount;
+    private final int tagCount;
+    private final long seed;
+    private File placeholderFolder = null;
+
+
+    /**
+     * @param itemCount Total number of items, including groups.
+     * @param tagCount  Number of distinct tags.
+     * @param seed      Random seed. The same arguments always generate the same library.
+     */
+    public LibraryGenerator(int itemCount, int tagCount, long seed) {
+        this.itemCount = itemCount;
+        this.tagCount = tagCount;
+        this.seed = seed;
+    }
+
+    /**
+     * @param placeholderFolder Folder to write a placeholder image for every media item into. Null to only store paths.
+     */
+    public void setPlaceholderFolder(File placeholderFolder) {
+        this.placeholderFolder = placeholderFolder;
+    }
+
+    /**
+     * Generates the library into an empty database.
+     *
+     * @param database Database to generate the library in.
+     * @throws SQLException If the database could not be updated.
+     * @throws IOException  If placeholder images could not be written.
+     */
+    public void generate(Connection database) throws SQLException, IOException {
+        DatabaseVersionUpdater.updateDatabase(database);
+        DatabaseManager databaseManager = new DatabaseManager(database);
+        Random random = new Random(seed);
+
+        for (int i = 1; i <= tagCount; i++) {
+            databaseManager.createTag(i, getTagName(i));
+        }
+        final double[] tagDistribution = zipfDistribution(tagCount, TAG_SKEW);
+
+        final long now = System.currentTimeMillis();
+        int[] mediaIDs = new int[itemCount];
+        ImageHistogram[] histograms = new ImageHistogram[itemCount];
+        int mediaCount = 0;
+
+        int groupID = 0, groupRemaining = 0, page = 0;
+        for (int id = 1; id <= itemCount; id++) {
+            // Items were added roughly an hour apart, in ID order
+            final long added = now - (long) (itemCount - id) * 1000 * 60 * 60;
+
+            if (groupRemaining == 0 && id < itemCount && random.nextDouble() < GROUP_CHANCE) {
+                groupID = id;
+                groupRemaining = 2 + random.nextInt(Math.min(30, itemCount - id));
+                page = 0;
+                databaseManager.createGroup(new GroupItem(null, id, added, "Group " + id));
+                tagItem(databaseManager, random, id, tagDistribution);
+                continue;
+            }
+
+            ImageHistogram histogram;
+            if (mediaCount > 0 && random.nextDouble() < SIMILAR_CHANCE) {
+                histogram = similarHistogram(histograms[random.nextInt(mediaCount)], random);
+            } else {
+                histogram = randomHistogram(random);
+            }
+
+            File file = new File(placeholderFolder != null ? placeholderFolder : new File("/library"), String.format("folder_%d/file_%d.png", id / 500, id));
+            String md5;
+            if (placeholderFolder != null) {
+                md5 = writePlaceholder(file, id);
+            } else {
+                md5 = String.format("%016x%016x", random.nextLong(), random.nextLong());
+            }
+
+            databaseManager.createMedia(new MediaItem(null, id, added, 0, false, null, file, md5, histogram));
+            if (groupRemaining > 0) {
+                databaseManager.setMediaGID(id, groupID);
+                databaseManager.setMediaPage(id, page++);
+                groupRemaining--;
+            }
+            tagItem(databaseManager, random, id, tagDistribution);
+
+            mediaIDs[mediaCount] = id;
+            histograms[mediaCount] = histogram;
+            mediaCount++;
+        }
+
+        final int nonDupes = (int) (mediaCount * NON_DUPES_PER_ITEM);
+        for (int i = 0; i < nonDupes; i++) {
+            int a = mediaIDs[random.nextInt(mediaCount)], b = mediaIDs[random.nextInt(mediaCount)];
+            if (a != b) databaseManager.addNonDuplicate(a, b);
+        }
+    }
+
+    /**
+     * Tags an item with a random number of distinct tags chosen by frequency.
+     */
+    private void tagItem(DatabaseManager databaseManager, Random random, int id, double[] tagDistribution) throws SQLException {
+        final int count = Math.min(tagCount, 1 + random.nextInt(12));
+        int[] used = new int[count];
+        for (int i = 0; i < count; i++) {
+            int tag;
+            do {
+                int index = Arrays.binarySearch(tagDistribution, random.nextDouble());
+                tag = 1 + (index < 0 ? Math.min(-index - 1, tagCount - 1) : index);
+            } while (contains(used, i, tag));
+            used[i] = tag;
+            databaseManager.tagItem(id, tag);
+        }
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param n    Number of ranks.
+     * @param skew Exponent of the distribution.
+     * @return Cumulative probabilities of each rank, ending at 1.
+     */
+    private static double[] zipfDistribution(int n, double skew) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Writes a tiny image with pixels derived from the item ID, so every placeholder has a distinct MD5.
+     *
+     * @param file File to write.
+     * @param id   ID of the item.
+     * @return Hex MD5 of the written file.
+     */
+    private static String writePlaceholder(File file, int id) throws IOException {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < 16; i++) {
+            image.setRGB(i % 4, i / 4, id * 31 + i * 0x010203);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), bytes.toByteArray());
+
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("md5").digest(bytes.toByteArray())) {
+                sb.append(String.format("%02X", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param id ID of the tag.
+     * @return Generated name of the tag.
+     */
+    public static String getTagName(int id) {
+        return TAG_PREFIXES[id % TAG_PREFIXES.length] + "tag_" + id;
+    }
+
+    /**
+     * Generates a random histogram with each channel normalized, as histograms of real images are.
+     *
+     * @param random Random source.
+     * @return A new histogram.
+     */
+    public static ImageHistogram randomHistogram(Random random) {
+        try {
+            return new ImageHistogram(randomChannel(random), randomChannel(random), randomChannel(random), randomChannel(random));
+        } catch (HistogramReadException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generates a histogram that differs slightly from another, as a resized or recompressed copy of an image would.
+     *
+     * @param base   Histogram to copy.
+     * @param random Random source.
+     * @return A new histogram.
+     */
+    public static ImageHistogram similarHistogram(ImageHistogram base, Random random) {
+        try {
+            return new ImageHistogram(noisyChannel(base.getAlpha(), random), noisyChannel(base.getRed(), random), noisyChannel(base.getGreen(), random), noisyChannel(base.getBlue(), random));
+        } catch (HistogramReadException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ByteArrayInputStream randomChannel(Random random) {
+        double[] bins = new double[ImageHistogram.BIN_SIZE];
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] = random.nextDouble();
+        }
+        return channelAsStream(bins);
+    }
+
+    private static ByteArrayInputStream noisyChannel(double[] base, Random random) {
+        double[] bins = new double[ImageHistogram.BIN_SIZE];
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] = Math.max(0, base[i] * (1 + (random.nextDouble() - 0.5) * 0.05));
+        }
+        return channelAsStream(bins);
+    }
+
+    /**
+     * @param bins Histogram bins. Will be normalized.
+     * @return Stream in the format read by {@link ImageHistogram#ImageHistogram(java.io.InputStream, java.io.InputStream, java.io.InputStream, java.io.InputStream)}.
+     */
+    private static ByteArrayInputStream channelAsStream(double[] bins) {
+        double total = 0;
+        for (double bin : bins) {
+            total += bin;
+        }
+
+        ByteBuffer bb = ByteBuffer.allocate(ImageHistogram.BIN_SIZE * 8);
+        for (double bin : bins) {
+            bb.putDouble(total > 0 ? bin / total : 0);
+        }
+        return new ByteArrayInputStream(bb.array());
+    }
+
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: LibraryGenerator <jdbc url> <items> <tags> [placeholder folder]");
+            System.exit(1);
+        }
+
+        LibraryGenerator generator = new LibraryGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), 42);
+        if (args.length > 3) generator.setPlaceholderFolder(new File(args[3]));
+
+        try (Connection database = DriverManager.getConnection(args[0], "sa", "")) {
+            generator.generate(database);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+
+/**
+ * Shared benchmark state holding a synthetic library. Sizes can be changed from the command line, e.g. "-p items=100000".
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    @Param({"10000"})
+    public int items;
+
+    @Param({"2000"})
+    public int tags;
+
+    public SyntheticLibrary library;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        library = new SyntheticLibrary(items, tags, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        library.close();
+    }
+
+}
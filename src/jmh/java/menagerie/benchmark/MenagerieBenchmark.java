@@ -0,0 +1,162 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.benchmark;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.Tag;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks item and tag lookups, tag name completion and suggestions, similar histogram lookups, and hashing of similar
+ * pairs as done when checking non-duplicates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenagerieBenchmark {
+
+    private Menagerie menagerie;
+    private Set<SimilarPair<MediaItem>> pairs;
+    private MediaItem[] media;
+    private int next = 0;
+
+
+    @Setup(Level.Trial)
+    public void setup(LibraryState library) {
+        menagerie = library.library.getMenagerie();
+
+        List<MediaItem> list = new ArrayList<>();
+        for (Item item : menagerie.getItems()) {
+            if (item instanceof MediaItem) list.add((MediaItem) item);
+        }
+        media = list.toArray(new MediaItem[0]);
+
+        pairs = new HashSet<>();
+        for (int i = 0; i + 1 < media.length; i += 10) {
+            pairs.add(new SimilarPair<>(media[i], media[i + 1], 0));
+        }
+
+        menagerie.getItemsWithSimilarHistogram(media[0].getHistogram() != null ? media[0].getHistogram() : media[1].getHistogram(), 1);
+
+        // Wait for tag co-occurrences to be counted in the background
+        final long start = System.currentTimeMillis();
+        while (menagerie.getRelatedTags(Collections.singletonList(media[0]), "", 1).isEmpty() && System.currentTimeMillis() - start < 60000) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ignore) {
+            }
+        }
+    }
+
+    private int nextIndex() {
+        next = (next * 1103515245 + 12345) & Integer.MAX_VALUE;
+        return next % media.length;
+    }
+
+    @Benchmark
+    public Item getItemByID() {
+        return menagerie.getItemByID(media[nextIndex()].getId());
+    }
+
+    @Benchmark
+    public Tag getTagByID() {
+        return menagerie.getTagByID(1 + nextIndex() % menagerie.getTags().size());
+    }
+
+    @Benchmark
+    public Tag getTagByName() {
+        return menagerie.getTagByName(LibraryGenerator.getTagName(1 + nextIndex() % menagerie.getTags().size()));
+    }
+
+    @Benchmark
+    public List<Tag> getTagsByPrefix() {
+        final String name = LibraryGenerator.getTagName(1 + nextIndex() % menagerie.getTags().size());
+        return menagerie.getTagsByPrefix(name.substring(0, 1 + nextIndex() % name.length()), 8);
+    }
+
+    @Benchmark
+    public List<Tag> getTagSuggestions() {
+        // Mistype one character of a name prefix
+        final String name = LibraryGenerator.getTagName(1 + nextIndex() % menagerie.getTags().size());
+        char[] typed = name.substring(0, 4 + nextIndex() % (name.length() - 3)).toCharArray();
+        typed[nextIndex() % typed.length] = 'x';
+        return menagerie.getTagSuggestions(new String(typed), 8);
+    }
+
+    @Benchmark
+    public List<Tag> getRelatedTags() {
+        return menagerie.getRelatedTags(Collections.singletonList(media[nextIndex()]), "", 8);
+    }
+
+    @Benchmark
+    public List<MediaItem> getItemsWithSimilarHistogram() {
+        final MediaItem item = media[nextIndex()];
+        if (item.getHistogram() == null) return null;
+        return menagerie.getItemsWithSimilarHistogram(item.getHistogram(), MediaItem.MIN_CONFIDENCE);
+    }
+
+    @Benchmark
+    public List<MediaItem> scanSimilarHistograms() {
+        // Linear scan that the histogram index replaces
+        final MediaItem item = media[nextIndex()];
+        List<MediaItem> results = new ArrayList<>();
+        if (item.getHistogram() == null) return results;
+        for (MediaItem other : media) {
+            if (other.getHistogram() != null && item.getHistogram().getSimilarity(other.getHistogram()) >= MediaItem.MIN_CONFIDENCE) results.add(other);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public boolean hasNonDuplicate() {
+        final int i = nextIndex();
+        return menagerie.hasNonDuplicate(new SimilarPair<>(media[i], media[(i + 1) % media.length], 0));
+    }
+
+    @Benchmark
+    public int similarPairHashCode() {
+        final int i = nextIndex();
+        return new SimilarPair<>(media[i], media[(i + 1) % media.length], 0).hashCode();
+    }
+
+    @Benchmark
+    public boolean similarPairSetLookup() {
+        final int i = nextIndex();
+        return pairs.contains(new SimilarPair<>(media[i], media[(i + 1) % media.length], 0));
+    }
+
+}
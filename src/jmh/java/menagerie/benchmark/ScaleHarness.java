@@ -0,0 +1,373 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.benchmark;
+
+import menagerie.gui.screens.duplicates.DuplicateFinderThread;
+import menagerie.gui.screens.duplicates.IncrementalDuplicateFinder;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.menagerie.db.DatabaseVersionUpdater;
+import menagerie.model.menagerie.db.MenagerieDatabaseLoadListener;
+import menagerie.model.search.Search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end scale test. Generates libraries of increasing size on disk, with a placeholder image for every media item,
+ * and times loading, searching, importing, and duplicate scanning on each, then reports how each measurement scales with
+ * library size.
+ * <p>
+ * Usage: {@code ScaleHarness [sizes...] [--output report.csv] [--baseline previous.csv] [--threshold 1.25]}
+ * <p>
+ * With a baseline report, any measurement slower than the baseline by more than the threshold is reported as a
+ * regression and the harness exits with a non-zero status.
+ */
+public class ScaleHarness {
+
+    private static final String[] SEARCHES = {"", "tag_1", "tag_1 tag_2", "tag_1 | tag_7 -tag_3", "artist:*", "tags:>6", "path:folder_1/", "date:>30d"};
+    private static final int SEARCH_REPEATS = 5;
+    private static final int IMPORT_BATCH = 1000;
+    private static final int DUPLICATE_SAMPLE = 500;
+    /**
+     * Largest library scanned for duplicates library wide. The first scan compares every pair, so larger libraries would
+     * take hours.
+     */
+    private static final int LIBRARY_DUPLICATES_MAX_SIZE = 100000;
+    private static final int LIBRARY_DUPLICATES_MAX_RESULTS = 100000;
+    /**
+     * Slowdowns smaller than this are ignored when comparing to a baseline, since very short measurements are noisy.
+     */
+    private static final double MIN_REGRESSION_MILLIS = 5;
+
+    /**
+     * Measurements of every size, by measurement name then library size, in milliseconds.
+     */
+    private final Map<String, Map<Integer, Double>> results = new LinkedHashMap<>();
+    private final Path workFolder;
+
+
+    private ScaleHarness(Path workFolder) {
+        this.workFolder = workFolder;
+    }
+
+    /**
+     * Generates a library of the given size and runs every measurement on it.
+     *
+     * @param size Number of items.
+     */
+    private void run(int size) throws SQLException, IOException, InterruptedException {
+        System.out.println("Scale test with " + size + " items");
+        final String url = "jdbc:h2:" + workFolder.resolve("library_" + size).toAbsolutePath();
+
+        long t = System.nanoTime();
+        try (Connection database = DriverManager.getConnection(url, "sa", "")) {
+            LibraryGenerator generator = new LibraryGenerator(size, Math.max(1000, size / 20), 42);
+            generator.setPlaceholderFolder(workFolder.resolve("files_" + size).toFile());
+            generator.generate(database);
+        }
+        record("generate", size, t);
+
+        try (Connection database = DriverManager.getConnection(url, "sa", "")) {
+            t = System.nanoTime();
+            DatabaseVersionUpdater.updateDatabase(database);
+            DatabaseManager databaseManager = new DatabaseManager(database);
+            LoadTimer loadTimer = new LoadTimer();
+            databaseManager.setLoadListener(loadTimer);
+
+            Menagerie menagerie = new Menagerie(databaseManager);
+            final long constructed = System.nanoTime();
+            record("load tags", size, t, loadTimer.itemsStart);
+            record("load items and item tags", size, loadTimer.itemsStart, loadTimer.nonDupesStart);
+            record("load non-duplicates", size, loadTimer.nonDupesStart, loadTimer.lastEvent);
+            record("build indexes", size, loadTimer.lastEvent, constructed);
+            record("construct menagerie", size, t, constructed);
+
+            for (String search : SEARCHES) {
+                double[] times = new double[SEARCH_REPEATS];
+                for (int i = 0; i < SEARCH_REPEATS; i++) {
+                    final long start = System.nanoTime();
+                    new Search(search, true, false, false).refreshSearch(menagerie);
+                    times[i] = (System.nanoTime() - start) / 1e6;
+                }
+                Arrays.sort(times);
+                results.computeIfAbsent("search \"" + search + "\"", k -> new TreeMap<>()).put(size, times[SEARCH_REPEATS / 2]);
+            }
+
+            measureImport(menagerie, size);
+            measureDuplicates(menagerie, size);
+            if (size <= LIBRARY_DUPLICATES_MAX_SIZE) measureLibraryDuplicates(menagerie, size);
+        }
+    }
+
+    /**
+     * Times importing and hashing a batch of new files.
+     */
+    private void measureImport(Menagerie menagerie, int size) throws IOException, SQLException {
+        Path importFolder = workFolder.resolve("import_" + size);
+        Files.createDirectories(importFolder);
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < IMPORT_BATCH; i++) {
+            File file = importFolder.resolve("import_" + i + ".png").toFile();
+            Files.write(file.toPath(), ("placeholder " + i).getBytes());
+            files.add(file);
+        }
+
+        final long t = System.nanoTime();
+        for (File file : files) {
+            MediaItem media = menagerie.importFile(file);
+            if (media != null) media.initializeMD5();
+        }
+        record("import " + IMPORT_BATCH + " files", size, t);
+    }
+
+    /**
+     * Times comparing a sample of media against the whole library, as done when finding duplicates of a selection.
+     */
+    private void measureDuplicates(Menagerie menagerie, int size) throws InterruptedException {
+        List<Item> all = menagerie.getItems();
+        List<Item> sample = new ArrayList<>();
+        for (int i = 0; i < all.size() && sample.size() < DUPLICATE_SAMPLE; i += Math.max(1, all.size() / DUPLICATE_SAMPLE)) {
+            sample.add(all.get(i));
+        }
+
+        final long t = System.nanoTime();
+        DuplicateFinderThread finder = new DuplicateFinderThread(menagerie, sample, all, 0.95, null, null);
+        finder.start();
+        finder.join();
+        record("duplicates of " + DUPLICATE_SAMPLE + " items", size, t);
+    }
+
+    /**
+     * Times a library wide duplicate search, as run from the duplicate finder: first scanning and storing every pair, then
+     * again reading the stored pairs back.
+     */
+    private void measureLibraryDuplicates(Menagerie menagerie, int size) throws InterruptedException {
+        List<Item> all = menagerie.getItems();
+
+        long t = System.nanoTime();
+        IncrementalDuplicateFinder finder = new IncrementalDuplicateFinder(menagerie, all, all, 0.95, null, null);
+        finder.setMaxResults(LIBRARY_DUPLICATES_MAX_RESULTS);
+        finder.start();
+        finder.join();
+        record("duplicates library wide, first scan", size, t);
+
+        t = System.nanoTime();
+        finder = new IncrementalDuplicateFinder(menagerie, all, all, 0.95, null, null);
+        finder.setMaxResults(LIBRARY_DUPLICATES_MAX_RESULTS);
+        finder.start();
+        finder.join();
+        record("duplicates library wide, stored", size, t);
+    }
+
+    private void record(String name, int size, long start) {
+        record(name, size, start, System.nanoTime());
+    }
+
+    private void record(String name, int size, long start, long end) {
+        final double millis = (end - start) / 1e6;
+        results.computeIfAbsent(name, k -> new TreeMap<>()).put(size, millis);
+        System.out.println(String.format("  %-40s %12.1f ms", name, millis));
+    }
+
+    /**
+     * Prints every measurement for every size, and the exponent k such that time grows like size^k between each pair
+     * of consecutive sizes.
+     */
+    private void printReport(List<Integer> sizes) {
+        StringBuilder header = new StringBuilder(String.format("%-40s", "measurement (ms)"));
+        for (int size : sizes) {
+            header.append(String.format(" %12d", size));
+        }
+        header.append("   scaling");
+        System.out.println();
+        System.out.println(header);
+
+        for (Map.Entry<String, Map<Integer, Double>> entry : results.entrySet()) {
+            StringBuilder line = new StringBuilder(String.format("%-40s", entry.getKey()));
+            for (int size : sizes) {
+                line.append(String.format(" %12.1f", entry.getValue().getOrDefault(size, Double.NaN)));
+            }
+            line.append("  ");
+            for (int i = 1; i < sizes.size(); i++) {
+                double before = entry.getValue().getOrDefault(sizes.get(i - 1), Double.NaN);
+                double after = entry.getValue().getOrDefault(sizes.get(i), Double.NaN);
+                double exponent = Math.log(after / before) / Math.log((double) sizes.get(i) / sizes.get(i - 1));
+                line.append(String.format(" n^%.2f", exponent));
+            }
+            System.out.println(line);
+        }
+    }
+
+    private void writeReport(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println("measurement,items,millis");
+            for (Map.Entry<String, Map<Integer, Double>> entry : results.entrySet()) {
+                for (Map.Entry<Integer, Double> result : entry.getValue().entrySet()) {
+                    writer.println(String.format(Locale.ROOT, "\"%s\",%d,%.3f", entry.getKey().replace("\"", "\"\""), result.getKey(), result.getValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares results to a previous report.
+     *
+     * @return Number of regressions found.
+     */
+    private int compareToBaseline(File baseline, double threshold) throws IOException {
+        int regressions = 0;
+        System.out.println();
+        for (String line : Files.readAllLines(baseline.toPath())) {
+            int lastComma = line.lastIndexOf(','), secondLastComma = line.lastIndexOf(',', lastComma - 1);
+            if (line.startsWith("measurement,") || secondLastComma < 0) continue;
+
+            String name = line.substring(1, secondLastComma - 1).replace("\"\"", "\"");
+            int size = Integer.parseInt(line.substring(secondLastComma + 1, lastComma));
+            double before = Double.parseDouble(line.substring(lastComma + 1));
+
+            Double after = results.getOrDefault(name, Collections.emptyMap()).get(size);
+            if (after != null && after > before * threshold && after - before > MIN_REGRESSION_MILLIS) {
+                regressions++;
+                System.out.println(String.format("REGRESSION: %s at %d items: %.1f ms -> %.1f ms (%.2fx)", name, size, before, after, after / before));
+            }
+        }
+        System.out.println(regressions + " regressions against baseline: " + baseline);
+        return regressions;
+    }
+
+    /**
+     * Records when each phase of database loading starts.
+     */
+    private static class LoadTimer implements MenagerieDatabaseLoadListener {
+
+        private long itemsStart, nonDupesStart, lastEvent;
+
+        @Override
+        public void gettingItemList() {
+            itemsStart = lastEvent = System.nanoTime();
+        }
+
+        @Override
+        public void gettingNonDupeList() {
+            nonDupesStart = lastEvent = System.nanoTime();
+        }
+
+        @Override
+        public void startedItemLoading(int total) {
+            lastEvent = System.nanoTime();
+        }
+
+        @Override
+        public void itemsLoading(int count, int total) {
+            lastEvent = System.nanoTime();
+        }
+
+        @Override
+        public void startTagLoading(int total) {
+            lastEvent = System.nanoTime();
+        }
+
+        @Override
+        public void tagsLoading(int count, int total) {
+            lastEvent = System.nanoTime();
+        }
+
+        @Override
+        public void startNonDupeLoading(int total) {
+            lastEvent = System.nanoTime();
+        }
+
+        @Override
+        public void nonDupeLoading(int count, int total) {
+            lastEvent = System.nanoTime();
+        }
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        File output = new File("target/scale-report.csv");
+        File baseline = null;
+        double threshold = 1.25;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--output":
+                    output = new File(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = new File(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    sizes.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (sizes.isEmpty()) sizes.addAll(Arrays.asList(10000, 100000, 1000000));
+        Collections.sort(sizes);
+
+        // Per-item logging would dominate the measurements
+        Logger.getLogger("").setLevel(Level.WARNING);
+        Arrays.stream(Logger.getLogger("").getHandlers()).forEach(handler -> handler.setLevel(Level.WARNING));
+
+        Path workFolder = Files.createTempDirectory("menagerie-scale");
+        ScaleHarness harness = new ScaleHarness(workFolder);
+        try {
+            for (int size : sizes) {
+                harness.run(size);
+                System.gc();
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(workFolder)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+
+        harness.printReport(sizes);
+        if (output.getParentFile() != null) output.getParentFile().mkdirs();
+        harness.writeReport(output);
+        System.out.println("Report written to: " + output);
+
+        if (baseline != null && harness.compareToBaseline(baseline, threshold) > 0) System.exit(1);
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.benchmark;
+
+import menagerie.model.search.Search;
+import menagerie.model.search.query.QueryNode;
+import menagerie.model.search.query.QueryParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing and fully evaluating searches over a synthetic library.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Query {
+
+        @Param({"", "tag_2", "tag_2 tag_7", "tag_2 | tag_7 -tag_9", "artist:*", "tags:>6", "path:folder_1/", "id:<5000 date:>1d"})
+        public String search;
+
+    }
+
+    @Benchmark
+    public QueryNode parse(Query query) {
+        return QueryParser.parse(query.search);
+    }
+
+    @Benchmark
+    public int refreshSearch(LibraryState library, Query query) {
+        Search search = new Search(query.search, true, false, false);
+        search.refreshSearch(library.library.getMenagerie());
+        return search.getResults().size();
+    }
+
+    @Benchmark
+    public int refreshShuffledSearch(LibraryState library, Query query) {
+        Search search = new Search(query.search, true, false, true, 42);
+        search.refreshSearch(library.library.getMenagerie());
+        return search.getResults().size();
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.benchmark;
+
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.db.DatabaseManager;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * A library generated by {@link LibraryGenerator} in an in-memory database and loaded into a Menagerie, so benchmarks
+ * run against realistic data without a real library on disk.
+ */
+public class SyntheticLibrary implements AutoCloseable {
+
+    private static int databaseCounter = 0;
+
+    private final Connection database;
+    private final Menagerie menagerie;
+
+
+    /**
+     * Generates a library and loads it into a Menagerie.
+     *
+     * @param itemCount Number of items.
+     * @param tagCount  Number of distinct tags.
+     * @param seed      Random seed. The same arguments always generate the same library.
+     * @throws SQLException If the database could not be created.
+     */
+    public SyntheticLibrary(int itemCount, int tagCount, long seed) throws SQLException {
+        database = DriverManager.getConnection("jdbc:h2:mem:synthetic" + nextDatabaseID());
+        try {
+            new LibraryGenerator(itemCount, tagCount, seed).generate(database);
+        } catch (IOException e) {
+            // Nothing is written to disk without a placeholder folder
+            throw new IllegalStateException(e);
+        }
+
+        menagerie = new Menagerie(new DatabaseManager(database));
+    }
+
+    private static synchronized int nextDatabaseID() {
+        return databaseCounter++;
+    }
+
+    public Menagerie getMenagerie() {
+        return menagerie;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        database.close();
+    }
+
+}
@@ -82,6 +82,8 @@ import menagerie.model.menagerie.importer.ImporterThread;
 import menagerie.model.search.GroupSearch;
 import menagerie.model.search.Search;
 import menagerie.model.search.SearchHistory;
+import menagerie.model.search.SearchResultCache;
+import menagerie.model.search.SearchStreamThread;
 import menagerie.settings.MenagerieSettings;
 import menagerie.util.CancellableThread;
 import menagerie.util.Filters;
@@ -193,6 +195,14 @@ public class MainController {
      * Search history stack
      */
     private final Stack<SearchHistory> searchHistory = new Stack<>();
+    /**
+     * Cache of recent search results, used to quickly revisit searches from the history or with different ordering
+     */
+    private final SearchResultCache searchResultCache = new SearchResultCache(10);
+    /**
+     * Thread streaming results into the current search, if it is still running
+     */
+    private CancellableThread searchThread = null;
     /**
      * Tag listener used to update tag list for currently previewed item
      */
@@ -708,29 +718,28 @@ public class MainController {
 
             List<String> results = new ArrayList<>();
 
-            List<Tag> tags;
             if (negative) {
-                tags = new ArrayList<>();
+                List<Tag> tags = new ArrayList<>();
                 for (Item item : itemGridView.getSelected()) {
                     item.getTags().forEach(tag -> {
                         if (!tags.contains(tag)) tags.add(tag);
                     });
                 }
-            } else {
-                tags = new ArrayList<>(menagerie.getTags());
-            }
 
-            tags.sort((o1, o2) -> o2.getFrequency() - o1.getFrequency());
-            for (Tag tag : tags) {
-                if (tag.getName().toLowerCase().startsWith(prefix)) {
-                    if (negative) {
-                        results.add("-" + tag.getName());
-                    } else {
-                        results.add(tag.getName());
-                    }
+                tags.sort((o1, o2) -> o2.getFrequency() - o1.getFrequency());
+                for (Tag tag : tags) {
+                    if (tag.getName().toLowerCase().startsWith(prefix)) results.add("-" + tag.getName());
+                    if (results.size() >= 8) break;
+                }
+            } else {
+                // Tags often used with the selection's tags first, then completions of the typed text
+                for (Tag tag : menagerie.getRelatedTags(itemGridView.getSelected(), prefix, 8)) {
+                    results.add(tag.getName());
+                }
+                for (Tag tag : menagerie.getTagSuggestions(prefix, 8)) {
+                    if (results.size() >= 8) break;
+                    if (!results.contains(tag.getName())) results.add(tag.getName());
                 }
-
-                if (results.size() >= 8) break;
             }
 
             return results;
@@ -742,20 +751,12 @@ public class MainController {
             if (negative) prefix = prefix.substring(1);
 
             List<String> results = new ArrayList<>();
-
-            List<Tag> tags = new ArrayList<>(menagerie.getTags());
-
-            tags.sort((o1, o2) -> o2.getFrequency() - o1.getFrequency());
-            for (Tag tag : tags) {
-                if (tag.getName().toLowerCase().startsWith(prefix)) {
-                    if (negative) {
-                        results.add("-" + tag.getName());
-                    } else {
-                        results.add(tag.getName());
-                    }
+            for (Tag tag : menagerie.getTagSuggestions(prefix, 8)) {
+                if (negative) {
+                    results.add("-" + tag.getName());
+                } else {
+                    results.add(tag.getName());
                 }
-
-                if (results.size() >= 8) break;
             }
 
             return results;
@@ -970,7 +971,7 @@ public class MainController {
                 ungroupDialog(itemGridView.getSelected());
             }
         });
-        itemGridView.getSelected().addListener((ListChangeListener<? super Item>) c -> resultCountLabel.setText(itemGridView.getSelected().size() + " / " + currentSearch.getResults().size()));
+        itemGridView.getSelected().addListener((ListChangeListener<? super Item>) c -> updateResultCountLabel());
         itemGridView.getItems().addListener((ListChangeListener<? super Item>) c -> {
             while (c.next()) {
                 if (c.wasAdded()) {
@@ -1324,7 +1325,7 @@ public class MainController {
             showGroupedToggleButton.setSelected(history.isShowGrouped());
             shuffledSearchButton.setSelected(history.isShuffled());
             searchTextField.setText(history.getSearch());
-            applySearch(history.getSearch(), history.getGroupScope(), history.isDescending(), history.isShowGrouped(), history.isShuffled());
+            applySearch(history.getSearch(), history.getGroupScope(), history.isDescending(), history.isShowGrouped(), history.isShuffled(), history.getSeed());
             searchHistory.pop(); // Pop history item that was JUST created by the new search.
 
             if (searchHistory.isEmpty()) backButton.setDisable(true);
@@ -1357,15 +1358,33 @@ public class MainController {
      * @param search      Search string to parse rules from.
      * @param descending  Order results in descending order.
      * @param showGrouped Show MediaItems that are in a group.
+     * @param shuffled    Order results randomly, with a new random order.
      */
     private void applySearch(String search, GroupItem groupScope, boolean descending, boolean showGrouped, boolean shuffled) {
+        applySearch(search, groupScope, descending, showGrouped, shuffled, new Random().nextLong());
+    }
+
+    /**
+     * Parses a search string, applies the search, updates grid, registers search listeners, and previews first item.
+     *
+     * @param search      Search string to parse rules from.
+     * @param descending  Order results in descending order.
+     * @param showGrouped Show MediaItems that are in a group.
+     * @param shuffled    Order results randomly.
+     * @param seed        Seed of the random order, so a previous shuffle can be restored.
+     */
+    private void applySearch(String search, GroupItem groupScope, boolean descending, boolean showGrouped, boolean shuffled, long seed) {
         LOGGER.info("Searching: \"" + search + "\", group:" + groupScope + ", descending:" + descending + ", showGrouped:" + showGrouped + ", shuffled:" + shuffled);
 
         // Clean up previous search
+        if (searchThread != null) {
+            searchThread.cancel();
+            searchThread = null;
+        }
         if (currentSearch != null) {
             GroupItem scope = null;
             if (currentSearch instanceof GroupSearch) scope = ((GroupSearch) currentSearch).getGroup();
-            searchHistory.push(new SearchHistory(currentSearch.getSearchString(), scope, itemGridView.getSelected(), currentSearch.isDescending(), currentSearch.isShowGrouped(), currentSearch.isShuffled()));
+            searchHistory.push(new SearchHistory(currentSearch.getSearchString(), scope, itemGridView.getSelected(), currentSearch.isDescending(), currentSearch.isShowGrouped(), currentSearch.isShuffled(), currentSearch.getSeed()));
             backButton.setDisable(false);
 
             menagerie.unregisterSearch(currentSearch);
@@ -1386,12 +1405,19 @@ public class MainController {
             tt.setWrapText(true);
             scopeLabel.setTooltip(tt);
         } else {
-            currentSearch = new Search(search, descending, showGrouped, shuffled);
+            currentSearch = new Search(search, descending, showGrouped, shuffled, seed);
             scopeLabel.setText("Scope: All");
             scopeLabel.setTooltip(null);
         }
         menagerie.registerSearch(currentSearch);
-        currentSearch.refreshSearch(menagerie.getItems());
+        final boolean stream = settings.streamSearch.getValue() && !currentSearch.isShuffled() && !inGroup;
+        if (stream && !searchResultCache.restore(currentSearch, menagerie)) {
+            streamSearch(currentSearch);
+        } else if (currentSearch.needsPreparation()) {
+            prepareSearch(currentSearch);
+        } else {
+            searchResultCache.populate(currentSearch, menagerie);
+        }
         currentSearch.getResults().addListener(searchChangeListener);
 
         itemGridView.clearSelection();
@@ -1399,6 +1425,75 @@ public class MainController {
         itemGridView.getItems().addAll(currentSearch.getResults());
 
         if (!itemGridView.getItems().isEmpty()) itemGridView.select(itemGridView.getItems().get(0), false, false);
+        updateResultCountLabel();
+    }
+
+    /**
+     * Starts a thread that finds the results of a search in the background and adds them to the search in batches, in
+     * display order, so the first results can be shown before the whole search has been evaluated.
+     *
+     * @param search Search to fill with results.
+     */
+    private void streamSearch(Search search) {
+        final long modificationCount = menagerie.getModificationCount();
+
+        searchThread = new SearchStreamThread(search, menagerie, batch -> {
+            if (search != currentSearch) return;
+
+            final boolean first = itemGridView.getItems().isEmpty();
+            search.addResults(batch);
+            if (first && !itemGridView.getItems().isEmpty()) itemGridView.select(itemGridView.getItems().get(0), false, false);
+            updateResultCountLabel();
+        }, () -> Platform.runLater(() -> {
+            if (search != currentSearch) return;
+
+            searchThread = null;
+            searchResultCache.store(search, menagerie, modificationCount);
+            updateResultCountLabel();
+        }));
+        searchThread.start();
+    }
+
+    /**
+     * Does the slow work a search needs, like checking files, on a background thread, then fills the search with its results
+     * on the JavaFX thread.
+     *
+     * @param search Search to fill with results.
+     */
+    private void prepareSearch(Search search) {
+        final BitSet candidates = search.getCandidateIDs(menagerie);
+
+        searchThread = new CancellableThread() {
+            @Override
+            public void run() {
+                search.prepare(menagerie, candidates);
+
+                Platform.runLater(() -> {
+                    if (!isRunning() || search != currentSearch) return;
+
+                    searchThread = null;
+                    search.getResults().removeListener(searchChangeListener);
+                    searchResultCache.populate(search, menagerie);
+                    search.getResults().addListener(searchChangeListener);
+                    itemGridView.getItems().setAll(search.getResults());
+
+                    if (!itemGridView.getItems().isEmpty()) itemGridView.select(itemGridView.getItems().get(0), false, false);
+                    updateResultCountLabel();
+                });
+            }
+        };
+        searchThread.setName("Search Preparation Thread");
+        searchThread.setDaemon(true);
+        searchThread.start();
+    }
+
+    /**
+     * Updates the label showing the number of selected items and the number of results in the current search.
+     */
+    private void updateResultCountLabel() {
+        String text = itemGridView.getSelected().size() + " / " + currentSearch.getResults().size();
+        if (searchThread != null) text += "+";
+        resultCountLabel.setText(text);
     }
 
     /**
@@ -1632,21 +1727,25 @@ public class MainController {
         CancellableThread ct = new CancellableThread() {
             @Override
             public void run() {
-                final int total = menagerie.getItems().size();
-                int i = 0;
-
-                List<Item> toDelete = new ArrayList<>();
-
+                List<MediaItem> media = new ArrayList<>();
+                List<File> files = new ArrayList<>();
                 for (Item item : menagerie.getItems()) {
-                    if (!running) break;
-                    i++;
+                    if (item instanceof MediaItem) {
+                        media.add((MediaItem) item);
+                        files.add(((MediaItem) item).getFile());
+                    }
+                }
+
+                // Check every file fresh, as items are forgotten for good and cached statuses may be stale
+                final int total = files.size();
+                menagerie.getFileStatusService().prefetch(files, true, this::isRunning, count -> Platform.runLater(() -> ps.setProgress(count, total)));
+                if (!running) return;
 
-                    if (item instanceof MediaItem && !((MediaItem) item).getFile().exists()) {
+                List<Item> toDelete = new ArrayList<>();
+                for (MediaItem item : media) {
+                    if (!menagerie.getFileStatusService().exists(item.getFile())) {
                         toDelete.add(item);
                     }
-
-                    final int finalI = i;
-                    Platform.runLater(() -> ps.setProgress(finalI, total));
                 }
 
                 menagerie.forgetItems(toDelete);
@@ -1678,13 +1777,10 @@ public class MainController {
                     if (i1.getHistogram() == null) continue;
 
                     boolean hasSimilar = false;
-                    for (int j = 0; j < menagerie.getItems().size(); j++) {
-                        if (i == j) continue;
-                        if (!(menagerie.getItems().get(j) instanceof MediaItem)) continue;
-                        MediaItem i2 = (MediaItem) menagerie.getItems().get(j);
-                        if (i2.getHistogram() == null || i2.hasNoSimilar()) continue;
+                    for (MediaItem i2 : menagerie.getItemsWithSimilarHistogram(i1.getHistogram(), MediaItem.MIN_CONFIDENCE)) {
+                        if (i1.equals(i2) || i2.hasNoSimilar()) continue;
 
-                        double similarity = i1.getSimilarityTo(i2);
+                        double similarity = i1.getSimilarityTo(i2, MediaItem.MIN_CONFIDENCE);
                         if (similarity >= confidenceSquare || ((i1.getHistogram().isColorful() || i2.getHistogram().isColorful()) && similarity > MediaItem.MIN_CONFIDENCE)) {
                             hasSimilar = true;
                             break;
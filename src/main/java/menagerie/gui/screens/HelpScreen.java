@@ -203,9 +203,16 @@ public class HelpScreen extends Screen {
         l2.setPadding(LEFT20);
         v.getChildren().addAll(l1, l2);
 
+        l1 = new Label("Alternatives and grouping");
+        l1.setFont(BOLD_ITALIC);
+        l2 = new Label("Separate rules with a bar ('|') to include items matching either side, and use parentheses to group rules together. A dash before a group inverts the whole group.\n\nExamples:\n\"cat | dog\" - includes items tagged with cat OR dog\n\"(cat | dog) -sketch type:image\" - includes images tagged with cat or dog, but not sketch\n\"-(cat dog)\" - excludes items tagged with both cat AND dog");
+        l2.setWrapText(true);
+        l2.setPadding(LEFT20);
+        v.getChildren().addAll(l1, l2);
+
         l1 = new Label("Requiring tags");
         l1.setFont(BOLD_ITALIC);
-        l2 = new Label("Use the exact name of a tag to require it.\n\nExamples:\n\"tagme\" - includes only items tagged with tagme\n\"test_tag_1 test_tag_2\" - includes only items tagged with test_tag_1 AND test_tag_2");
+        l2 = new Label("Use the exact name of a tag to require it.\n\nExamples:\n\"tagme\" - includes only items tagged with tagme\n\"test_tag_1 test_tag_2\" - includes only items tagged with test_tag_1 AND test_tag_2\n\nUse an asterisk ('*') to match any sequence of characters, which includes items tagged with any matching tag.\n\nExamples:\n\"artist:*\" - includes items tagged with any tag starting with 'artist:'\n\"*_hair\" - includes items tagged with any tag ending with '_hair'");
         l2.setWrapText(true);
         l2.setPadding(LEFT20);
         v.getChildren().addAll(l1, l2);
@@ -226,7 +233,7 @@ public class HelpScreen extends Screen {
 
         l1 = new Label("Search by time");
         l1.setFont(BOLD_ITALIC);
-        l2 = new Label("Use the time modifier (time:) to search for a specific time that items were added.\n\nExamples:\n\"time:<1541361629900\" - includes only items that were added before the given time in milliseconds after epoch\n\"time:1541361629900\" - includes only items that were added at exactly the given time after epoch");
+        l2 = new Label("Use the time modifier (time: or date:) to search for a specific time that items were added. Times can be milliseconds after epoch, calendar dates, or ages such as 12h, 7d, 2w or 1y.\n\nExamples:\n\"time:<1541361629900\" - includes only items that were added before the given time in milliseconds after epoch\n\"time:1541361629900\" - includes only items that were added at exactly the given time after epoch\n\"date:2024-01-01\" - includes only items that were added on the given day\n\"date:>2024-01-01\" - includes only items that were added after the given day\n\"date:<7d\" - includes only items that are less than 7 days old");
         l2.setWrapText(true);
         l2.setPadding(LEFT20);
         v.getChildren().addAll(l1, l2);
@@ -249,7 +256,7 @@ public class HelpScreen extends Screen {
         l.setFont(BOLD_ITALIC);
         v.getChildren().addAll(new Separator(), l);
 
-        String[] strs = new String[]{"LEGEND:", "  (___) = Optional ___", "  [___] = Required ___", "  | = Or", " ", "[TAG]", "-[RULE]", "id:(<|>)[INT]", "[time|date]:(<|>)[LONG]", "[path|file]:[STRING]", "missing:[md5|hist|histogram|file]", "type:[group|media]", "tags:(<|>)[INT]"};
+        String[] strs = new String[]{"LEGEND:", "  (___) = Optional ___", "  [___] = Required ___", "  | = Or", " ", "[TAG]", "[TAG]*[TAG]", "-[RULE]", "[RULE] | [RULE]", "(-)([RULES])", "id:(<|>)[INT]", "[time|date]:(<|>)[LONG|YYYY-MM-DD]", "[time|date]:[<|>][INT][h|d|w|y]", "[path|file]:[STRING]", "missing:[md5|hist|histogram|file]", "type:[group|media]", "tags:(<|>)[INT]"};
         for (String str : strs) {
             l = new Label(str);
             l.setPadding(LEFT20);
@@ -24,6 +24,7 @@
 
 package menagerie.gui.screens;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -42,12 +43,30 @@ import javafx.util.Callback;
 import menagerie.gui.taglist.TagListCell;
 import menagerie.model.menagerie.Tag;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 public class TagListScreen extends Screen {
 
+    private static final Logger LOGGER = Logger.getLogger(TagListScreen.class.getName());
+
+    /**
+     * Delay after the last keystroke in the search field before the tags are filtered.
+     */
+    private static final long SEARCH_DELAY_MILLIS = 150;
+
     private final ListView<Tag> listView = new ListView<>();
     private final TextField searchField = new TextField();
     private final ChoiceBox<String> orderBox = new ChoiceBox<>();
@@ -56,6 +75,29 @@ public class TagListScreen extends Screen {
 
     private final ObservableList<Tag> tags = FXCollections.observableArrayList();
 
+    /**
+     * Filters and sorts tags off the FX thread, one search at a time.
+     */
+    private final ScheduledExecutorService searchExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Tag List Search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingSearch = null;
+    /**
+     * Incremented on the FX thread by every search, so only the latest search's results are shown.
+     */
+    private long searchGeneration = 0;
+    /**
+     * Incremented on the FX thread whenever the tags change.
+     */
+    private long tagsVersion = 0;
+
+    // Last search, only used by the search thread
+    private long lastTagsVersion = -1;
+    private String lastSearchText = null;
+    private List<Tag> lastMatches = null;
+
 
     public TagListScreen() {
         addEventHandler(KeyEvent.KEY_PRESSED, event -> {
@@ -80,10 +122,10 @@ public class TagListScreen extends Screen {
 
         orderBox.getItems().addAll("Frequency", "Name", "ID", "Color");
         orderBox.getSelectionModel().clearAndSelect(0);
-        orderBox.setOnAction(event -> updateListOrder());
+        orderBox.setOnAction(event -> updateSearchResults(0));
         descendingButton.setGraphic(new ImageView(new Image(getClass().getResource("/misc/descending.png").toString())));
         descendingButton.setTooltip(new Tooltip("Descending order"));
-        descendingButton.selectedProperty().addListener((observable, oldValue, newValue) -> updateListOrder());
+        descendingButton.selectedProperty().addListener((observable, oldValue, newValue) -> updateSearchResults(0));
         HBox orderHBox = new HBox(5, new Label("Order by:"), orderBox, descendingButton);
         orderHBox.setAlignment(Pos.CENTER_LEFT);
 
@@ -98,8 +140,8 @@ public class TagListScreen extends Screen {
 
         //Init textfield
         searchField.setPromptText("Search tags by name");
-        searchField.textProperty().addListener((observable, oldValue, newValue) -> updateSearchResults());
-        regexCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> updateSearchResults());
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> updateSearchResults(SEARCH_DELAY_MILLIS));
+        regexCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> updateSearchResults(0));
         HBox searchHBox = new HBox(5, regexCheckBox, searchField);
         searchHBox.setAlignment(Pos.CENTER_LEFT);
         HBox.setHgrow(searchField, Priority.ALWAYS);
@@ -109,40 +151,85 @@ public class TagListScreen extends Screen {
 
 
         tags.addListener((ListChangeListener<? super Tag>) c -> {
-            while (c.next()) {
-                listView.getItems().removeAll(c.getRemoved());
-                for (Tag t : c.getAddedSubList()) {
-                    if (!listView.getItems().contains(t) && t.getName().toLowerCase().startsWith(searchField.getText().toLowerCase())) {
-                        listView.getItems().add(t);
-                    }
-                }
-                updateListOrder();
-            }
+            tagsVersion++;
+            updateSearchResults(0);
         });
 
         setDefaultFocusNode(searchField);
     }
 
-    private void updateSearchResults() {
-        listView.getItems().clear();
-        for (Tag t : tags) {
-            String name = t.getName().toLowerCase();
-            String val = searchField.getText();
-            if (val == null) {
-                val = "";
-            } else {
-                val = val.trim().toLowerCase();
+    /**
+     * Schedules the tags to be filtered by the search field and sorted in the background, replacing any search that has
+     * not started yet.
+     *
+     * @param delay Milliseconds to wait before searching, so a burst of keystrokes only searches once.
+     */
+    private void updateSearchResults(long delay) {
+        final long generation = ++searchGeneration;
+        if (pendingSearch != null) pendingSearch.cancel(false);
+
+        String text = searchField.getText();
+        if (text == null) {
+            text = "";
+        } else {
+            text = text.trim().toLowerCase();
+        }
+        final String searchText = text;
+        final boolean regex = regexCheckBox.isSelected();
+        final List<Tag> snapshot = new ArrayList<>(tags);
+        final Comparator<Tag> comparator = getOrderComparator(snapshot);
+        final long version = tagsVersion;
+
+        pendingSearch = searchExecutor.schedule(() -> {
+            try {
+                List<Tag> results = search(snapshot, version, searchText, regex);
+                results.sort(comparator);
+
+                Platform.runLater(() -> {
+                    if (generation == searchGeneration) listView.getItems().setAll(results);
+                });
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed to search tags for: " + searchText, e);
             }
-            if (regexCheckBox.isSelected()) {
-                try {
-                    if (name.matches(val)) listView.getItems().add(t);
-                } catch (PatternSyntaxException ignore) {
-                }
-            } else {
-                if (name.contains(val)) listView.getItems().add(t);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Finds the tags matching a search. Called only by the search thread.
+     *
+     * @param snapshot Tags to search.
+     * @param version  Version of the tags in the snapshot.
+     * @param text     Lowercase search text.
+     * @param regex    True if the text is a regular expression that whole names must match, false if names must contain
+     *                 the text.
+     * @return Matching tags, in no particular order.
+     */
+    private List<Tag> search(List<Tag> snapshot, long version, String text, boolean regex) {
+        Predicate<String> filter;
+        List<Tag> source = snapshot;
+        if (regex) {
+            try {
+                Pattern pattern = Pattern.compile(text);
+                filter = name -> pattern.matcher(name).matches();
+            } catch (PatternSyntaxException e) {
+                filter = name -> false;
             }
+            lastSearchText = null;
+        } else {
+            filter = name -> name.contains(text);
+            // Typing more only narrows the previous matches
+            if (lastSearchText != null && lastTagsVersion == version && text.contains(lastSearchText)) source = lastMatches;
+            lastSearchText = text;
+        }
+
+        List<Tag> results = new ArrayList<>();
+        for (Tag t : source) {
+            if (filter.test(t.getName())) results.add(t);
         }
-        updateListOrder();
+
+        lastTagsVersion = version;
+        lastMatches = results;
+        return new ArrayList<>(results);
     }
 
     /**
@@ -154,13 +241,17 @@ public class TagListScreen extends Screen {
     public void open(ScreenPane manager, List<Tag> tags) {
         manager.open(this);
 
-        this.tags.clear();
-        this.tags.addAll(tags);
-
-        updateSearchResults();
+        this.tags.setAll(tags);
     }
 
-    private void updateListOrder() {
+    /**
+     * Frequencies and colors change on the FX thread, so they are read here and the comparator sorts by these copies. Must
+     * be called on the FX thread.
+     *
+     * @param snapshot Tags that will be sorted.
+     * @return Comparator for the order selected by the user, safe to use off the FX thread.
+     */
+    private Comparator<Tag> getOrderComparator(List<Tag> snapshot) {
         Comparator<Tag> comparator = Comparator.comparing(Tag::getName);
 
         switch (orderBox.getValue()) {
@@ -168,21 +259,26 @@ public class TagListScreen extends Screen {
                 comparator = Comparator.comparingInt(Tag::getId);
                 break;
             case "Frequency":
-                comparator = Comparator.comparingInt(Tag::getFrequency);
+                Map<Tag, Integer> frequencies = new HashMap<>();
+                for (Tag t : snapshot) frequencies.put(t, t.getFrequency());
+                comparator = Comparator.comparingInt(frequencies::get);
                 break;
             case "Color":
+                Map<Tag, String> colors = new HashMap<>();
+                for (Tag t : snapshot) colors.put(t, t.getColor());
                 comparator = (o1, o2) -> {
-                    if (o1.getColor() == null) {
-                        if (o2.getColor() == null) {
+                    String c1 = colors.get(o1), c2 = colors.get(o2);
+                    if (c1 == null) {
+                        if (c2 == null) {
                             return 0;
                         } else {
                             return 1;
                         }
                     } else {
-                        if (o2.getColor() == null) {
+                        if (c2 == null) {
                             return -1;
                         } else {
-                            return o1.getColor().compareTo(o2.getColor());
+                            return c1.compareTo(c2);
                         }
                     }
                 };
@@ -190,7 +286,7 @@ public class TagListScreen extends Screen {
         }
 
         if (descendingButton.isSelected()) comparator = comparator.reversed();
-        listView.getItems().sort(comparator);
+        return comparator;
     }
 
     /**
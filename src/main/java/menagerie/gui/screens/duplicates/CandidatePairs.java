@@ -0,0 +1,297 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import menagerie.model.menagerie.histogram.HistogramStore;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Finds pairs of items likely to be similar, so only those need to be compared exactly.
+ * <p>
+ * Histograms are hashed into tables with locality sensitive hashes for L1 distance: each table projects histograms onto a
+ * few random Cauchy vectors and quantizes the projections, so close histograms usually share a bucket and distant ones
+ * rarely do. Pairs that share a bucket in any table are candidates. More tables find more similar pairs, at the cost of
+ * more candidates. Items with identical files are always candidates.
+ * <p>
+ * When histograms are close together compared to the confidence, a table can put a large share of all pairs in the same
+ * buckets. Such tables hash more projections until their buckets hold a bounded number of pairs, trading some of the
+ * table's recall for a bounded amount of work.
+ * <p>
+ * Pairs are encoded as longs: the index of the item in the compareFrom set in the high 32 bits, and the index of the item
+ * in the compareTo set in the low 32 bits.
+ */
+class CandidatePairs {
+
+    /**
+     * Number of projections hashed together in each table.
+     */
+    static final int PROJECTIONS_PER_TABLE = 6;
+    /**
+     * Maximum number of projections hashed together in each table, when refining crowded tables.
+     */
+    private static final int MAX_PROJECTIONS_PER_TABLE = 16;
+    /**
+     * Number of pairs per item a table may hold before it is refined.
+     */
+    private static final int MAX_PAIRS_PER_ITEM = 32;
+    /**
+     * Width of a quantized projection, in multiples of the greatest distance between similar histograms.
+     */
+    private static final float WIDTH_PER_DISTANCE = 8;
+    /**
+     * Bits of a bucket entry that hold the index of an item. Larger sets can't be hashed.
+     */
+    private static final int INDEX_BITS = 24;
+    private static final int SIDE_BIT = INDEX_BITS;
+    private static final int KEY_SHIFT = INDEX_BITS + 1;
+
+    private final ComparableMedia from, to;
+    private final boolean symmetric;
+    private final float width;
+
+    private long[] pairs = new long[1024];
+    private int count = 0;
+    private int sortedCount = 0;
+
+
+    /**
+     * @param from       Items to compare.
+     * @param to         Items to compare with. The same object as from if both sets are the same, in which case only
+     *                   pairs with the lower index first are found.
+     * @param confidence Minimum similarity of similar items.
+     */
+    CandidatePairs(ComparableMedia from, ComparableMedia to, double confidence) {
+        if (!canHash(from, to)) throw new IllegalArgumentException("Too many items to hash: " + from.size() + ", " + to.size());
+        this.from = from;
+        this.to = to;
+        this.symmetric = from == to;
+        this.width = WIDTH_PER_DISTANCE * (float) Math.max(0.05, (1 - confidence) * 8);
+    }
+
+    /**
+     * @return True if the sets are small enough to be hashed.
+     */
+    static boolean canHash(ComparableMedia from, ComparableMedia to) {
+        return from.size() < 1 << INDEX_BITS && to.size() < 1 << INDEX_BITS;
+    }
+
+    /**
+     * Adds pairs of items with identical files.
+     */
+    void addIdenticalFiles() {
+        long[] entries = new long[from.size() + (symmetric ? 0 : to.size())];
+        int n = 0;
+        for (int i = 0; i < from.size(); i++) {
+            if (from.hashes[i] >= 0) entries[n++] = entry(mix(from.hashes[i]), 0, i);
+        }
+        if (!symmetric) {
+            for (int j = 0; j < to.size(); j++) {
+                if (to.hashes[j] >= 0) entries[n++] = entry(mix(to.hashes[j]), 1, j);
+            }
+        }
+        Arrays.sort(entries, 0, n);
+        addBuckets(entries, n);
+    }
+
+    /**
+     * Hashes every histogram into a new table and adds the pairs that share a bucket.
+     *
+     * @param random Source of the random projections.
+     */
+    void addTable(Random random) {
+        final int fromSize = from.size(), n = fromSize + (symmetric ? 0 : to.size());
+        final long maxPairs = (long) MAX_PAIRS_PER_ITEM * n;
+        final long[] keys = new long[n];
+        final long[] entries = new long[n];
+        final float[] projection = new float[HistogramStore.HISTOGRAM_SIZE];
+
+        int count = 0;
+        for (int p = 0; p < MAX_PROJECTIONS_PER_TABLE; p++) {
+            for (int d = 0; d < projection.length; d++) {
+                projection[d] = (float) Math.tan(Math.PI * (random.nextDouble() - 0.5));
+            }
+            final float offset = random.nextFloat() * width;
+            project(from, 0, projection, offset, keys);
+            if (!symmetric) project(to, fromSize, projection, offset, keys);
+            if (p + 1 < PROJECTIONS_PER_TABLE) continue;
+
+            count = 0;
+            for (int k = 0; k < n; k++) {
+                final boolean fromSide = k < fromSize;
+                final ComparableMedia media = fromSide ? from : to;
+                final int index = fromSide ? k : k - fromSize;
+                if (media.slots[index] >= 0) entries[count++] = entry(mix(keys[k]), fromSide ? 0 : 1, index);
+            }
+            Arrays.sort(entries, 0, count);
+            if (countPairs(entries, count) <= maxPairs) break;
+        }
+
+        addBuckets(entries, count);
+    }
+
+    /**
+     * Quantizes the projections of histograms onto a vector, and hashes them into their keys.
+     *
+     * @param media      Items to project.
+     * @param keysOffset Index of the key of the first item.
+     * @param projection Vector to project onto.
+     * @param offset     Random offset of the quantization.
+     * @param keys       Keys to hash the quantized projections into.
+     */
+    private void project(ComparableMedia media, int keysOffset, float[] projection, float offset, long[] keys) {
+        final float[] data = media.store.getData();
+        for (int i = 0; i < media.size(); i++) {
+            if (media.slots[i] < 0) continue;
+
+            final int start = media.slots[i] * HistogramStore.HISTOGRAM_SIZE;
+            float dot = 0;
+            for (int d = 0; d < HistogramStore.HISTOGRAM_SIZE; d++) {
+                dot += projection[d] * data[start + d];
+            }
+            keys[keysOffset + i] = keys[keysOffset + i] * 0x9E3779B97F4A7C15L + (long) Math.floor((dot + offset) / width);
+        }
+    }
+
+    /**
+     * @return Number of pairs that sorted bucket entries hold.
+     */
+    private long countPairs(long[] entries, int n) {
+        long pairs = 0;
+        int start = 0;
+        while (start < n) {
+            int end = start + 1;
+            while (end < n && entries[end] >>> KEY_SHIFT == entries[start] >>> KEY_SHIFT) end++;
+
+            if (symmetric) {
+                pairs += (long) (end - start) * (end - start - 1) / 2;
+            } else {
+                int middle = start;
+                while (middle < end && (entries[middle] >>> SIDE_BIT & 1) == 0) middle++;
+                pairs += (long) (middle - start) * (end - middle);
+            }
+            start = end;
+        }
+        return pairs;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static long entry(long key, int side, int index) {
+        return (key >>> KEY_SHIFT << KEY_SHIFT) | ((long) side << SIDE_BIT) | index;
+    }
+
+    /**
+     * Adds every pair in each bucket.
+     *
+     * @param entries Bucket entries, sorted so each bucket is a run with compareFrom items before compareTo items.
+     * @param n       Number of entries.
+     */
+    private void addBuckets(long[] entries, int n) {
+        int start = 0;
+        while (start < n) {
+            int end = start + 1;
+            while (end < n && entries[end] >>> KEY_SHIFT == entries[start] >>> KEY_SHIFT) end++;
+
+            if (symmetric) {
+                for (int a = start; a < end; a++) {
+                    final int i = index(entries[a]);
+                    for (int b = a + 1; b < end; b++) {
+                        final int j = index(entries[b]);
+                        add(Math.min(i, j), Math.max(i, j));
+                    }
+                }
+            } else {
+                int middle = start;
+                while (middle < end && (entries[middle] >>> SIDE_BIT & 1) == 0) middle++;
+                for (int a = start; a < middle; a++) {
+                    for (int b = middle; b < end; b++) {
+                        add(index(entries[a]), index(entries[b]));
+                    }
+                }
+            }
+
+            start = end;
+        }
+    }
+
+    private static int index(long entry) {
+        return (int) (entry & ((1 << INDEX_BITS) - 1));
+    }
+
+    private void add(int i, int j) {
+        if (count == pairs.length) {
+            // Drop pairs already found in other tables before growing
+            compact();
+            if (count > pairs.length / 2) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[count++] = (long) i << 32 | j;
+    }
+
+    /**
+     * Sorts the pairs and removes repeats.
+     */
+    private void compact() {
+        if (sortedCount == count) return;
+
+        Arrays.sort(pairs, 0, count);
+        int unique = 0;
+        for (int k = 0; k < count; k++) {
+            if (unique == 0 || pairs[k] != pairs[unique - 1]) pairs[unique++] = pairs[k];
+        }
+        count = unique;
+        sortedCount = unique;
+    }
+
+    /**
+     * @return Every candidate pair found so far, sorted, without repeats.
+     */
+    long[] toArray() {
+        compact();
+        return Arrays.copyOf(pairs, count);
+    }
+
+    /**
+     * @param pair Encoded pair.
+     * @return Index of the compareFrom item of the pair.
+     */
+    static int getFrom(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    /**
+     * @param pair Encoded pair.
+     * @return Index of the compareTo item of the pair.
+     */
+    static int getTo(long pair) {
+        return (int) pair;
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.histogram.HistogramStore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Media items prepared for fast pairwise comparison. Histograms are packed into a {@link HistogramStore} shared by both
+ * sides of a comparison, and MD5 hashes are replaced by shared ints so identical files are found with an int comparison.
+ */
+class ComparableMedia {
+
+    final HistogramStore store;
+    final MediaItem[] items;
+    /**
+     * Histogram slot of each item in the store, or -1 if it has no histogram.
+     */
+    final int[] slots;
+    /**
+     * Number identifying the MD5 hash of each item, or -1 if it has no hash.
+     */
+    final int[] hashes;
+
+
+    private ComparableMedia(List<MediaItem> items, HistogramStore store, Map<String, Integer> hashNumbers) {
+        this.store = store;
+        this.items = items.toArray(new MediaItem[0]);
+        slots = new int[this.items.length];
+        hashes = new int[this.items.length];
+
+        for (int i = 0; i < this.items.length; i++) {
+            final MediaItem item = this.items[i];
+            slots[i] = item.getHistogram() == null ? -1 : store.add(item.getHistogram());
+            hashes[i] = item.getMD5() == null ? -1 : hashNumbers.computeIfAbsent(item.getMD5(), k -> hashNumbers.size());
+        }
+    }
+
+    /**
+     * Prepares two sets of items for comparison with each other. Items that are not media, or are known to have no similar
+     * items, are left out.
+     *
+     * @param compareFrom Items to compare.
+     * @param compareTo   Items to compare with.
+     * @return Prepared compareFrom and compareTo items. The same object twice if both lists are the same.
+     */
+    static ComparableMedia[] prepare(List<Item> compareFrom, List<Item> compareTo) {
+        List<MediaItem> from = getComparable(compareFrom);
+        List<MediaItem> to = compareTo == compareFrom ? from : getComparable(compareTo);
+
+        HistogramStore store = new HistogramStore(Math.max(from.size(), to.size()));
+        Map<String, Integer> hashNumbers = new HashMap<>();
+        ComparableMedia preparedFrom = new ComparableMedia(from, store, hashNumbers);
+        ComparableMedia preparedTo = to == from ? preparedFrom : new ComparableMedia(to, store, hashNumbers);
+
+        return new ComparableMedia[]{preparedFrom, preparedTo};
+    }
+
+    /**
+     * Finds the items in both of two overlapping sets. Pairs of these items are met twice when the sets are compared, once
+     * in each order.
+     *
+     * @param a First set.
+     * @param b Second set.
+     * @return IDs of the items in both sets.
+     */
+    static BitSet getSharedIDs(List<MediaItem> a, List<MediaItem> b) {
+        BitSet inA = new BitSet();
+        for (MediaItem item : a) {
+            inA.set(item.getId());
+        }
+
+        BitSet shared = new BitSet();
+        for (MediaItem item : b) {
+            if (inA.get(item.getId())) shared.set(item.getId());
+        }
+        return shared;
+    }
+
+    /**
+     * @param shared IDs of the items in both sets being compared, see {@link #getSharedIDs(List, List)}.
+     * @param id1    ID of the item from the first set.
+     * @param id2    ID of the item from the second set.
+     * @return True if the pair is also met in the other order, and that order is the one kept.
+     */
+    static boolean isReversedRepeat(BitSet shared, int id1, int id2) {
+        return id1 > id2 && shared.get(id1) && shared.get(id2);
+    }
+
+    private static List<MediaItem> getComparable(List<Item> items) {
+        List<MediaItem> results = new ArrayList<>(items.size());
+        for (Item item : items) {
+            if (item instanceof MediaItem && !((MediaItem) item).hasNoSimilar()) results.add((MediaItem) item);
+        }
+        return results;
+    }
+
+    /**
+     * @return Number of items.
+     */
+    int size() {
+        return items.length;
+    }
+
+    /**
+     * @param i Index of an item.
+     * @return True if the item has a colorful histogram.
+     */
+    boolean isColorful(int i) {
+        return slots[i] >= 0 && store.isColorful(slots[i]);
+    }
+
+    /**
+     * Compares two prepared items in the same way as {@link MediaItem#getSimilarityTo(MediaItem)}.
+     *
+     * @param i     Index of an item in this set.
+     * @param other Set of the other item.
+     * @param j     Index of the other item in its set.
+     * @return Similarity of the items. 1 if MD5 hashes match, [0.0-1.0] if histograms exist, 0 otherwise.
+     */
+    double getSimilarity(int i, ComparableMedia other, int j) {
+        if (hashes[i] >= 0 && hashes[i] == other.hashes[j]) {
+            return 1.0;
+        } else if (slots[i] >= 0 && other.slots[j] >= 0) {
+            return store.getSimilarity(slots[i], other.slots[j]);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Compares two prepared items, giving up as soon as they are known not to reach the confidence that applies to them.
+     * See {@link HistogramStore#getDistanceWithin(int, int, float)}.
+     *
+     * @param i                Index of an item in this set.
+     * @param other            Set of the other item.
+     * @param j                Index of the other item in its set.
+     * @param confidence       Minimum similarity of colorful items.
+     * @param confidenceSquare Minimum similarity of other items.
+     * @return The same similarity as {@link #getSimilarity(int, ComparableMedia, int)} if the items are similar enough,
+     * otherwise some similarity under the confidence that applies to them.
+     */
+    double getSimilarity(int i, ComparableMedia other, int j, double confidence, double confidenceSquare) {
+        if (hashes[i] >= 0 && hashes[i] == other.hashes[j]) {
+            return 1.0;
+        } else if (slots[i] >= 0 && other.slots[j] >= 0) {
+            final double min = isColorful(i) && other.isColorful(j) ? confidence : confidenceSquare;
+            // Slack so single precision rounding of the budget never cuts off a pair right at the confidence
+            return 1 - store.getDistanceWithin(slots[i], other.slots[j], (float) ((1 - min) * 8) + 1e-4f) / 8;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Checks a similarity between two prepared items against a confidence. Pairs where either item is not colorful must
+     * reach the stricter {@link #getConfidenceSquare(double)}.
+     *
+     * @param i                Index of an item in this set.
+     * @param other            Set of the other item.
+     * @param j                Index of the other item in its set.
+     * @param similarity       Similarity of the items.
+     * @param confidence       Minimum similarity of colorful items.
+     * @param confidenceSquare Minimum similarity of other items.
+     * @return True if the items are similar enough to be a pair.
+     */
+    boolean isSimilar(int i, ComparableMedia other, int j, double similarity, double confidence, double confidenceSquare) {
+        return similarity >= confidenceSquare || (similarity >= confidence && isColorful(i) && other.isColorful(j));
+    }
+
+    /**
+     * @param confidence Minimum similarity of colorful items.
+     * @return Minimum similarity of items that are not colorful.
+     */
+    static double getConfidenceSquare(double confidence) {
+        return 1 - (1 - confidence) * (1 - confidence);
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.MediaItem;
+
+import java.util.*;
+
+/**
+ * Groups items connected by similar pairs, so a reviewer can resolve every copy of an image at once instead of one pair at
+ * a time.
+ * <p>
+ * Items are given dense slots as they first appear in a pair, and the groups are kept in a union-find over those slots, so
+ * pairs can be added as a scan finds them and memory stays linear in the number of items.
+ */
+class DuplicateClusters {
+
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private MediaItem[] items = new MediaItem[16];
+    private int[] parents = new int[16];
+    private int[] sizes = new int[16];
+    private int count = 0;
+
+
+    /**
+     * Joins the groups of the items of a pair.
+     *
+     * @param pair Similar pair.
+     */
+    void add(SimilarPair<MediaItem> pair) {
+        int a = find(slot(pair.getObject1())), b = find(slot(pair.getObject2()));
+        if (a == b) return;
+
+        // Hang the smaller group under the larger one, so paths stay short
+        if (sizes[a] < sizes[b]) {
+            final int temp = a;
+            a = b;
+            b = temp;
+        }
+        parents[b] = a;
+        sizes[a] += sizes[b];
+    }
+
+    /**
+     * @param pairs Similar pairs.
+     */
+    void addAll(Collection<SimilarPair<MediaItem>> pairs) {
+        pairs.forEach(this::add);
+    }
+
+    /**
+     * Removes every item and group.
+     */
+    void clear() {
+        slots.clear();
+        Arrays.fill(items, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * @param item Item.
+     * @return Number of items in the group of the item. 1 if the item isn't in any pair.
+     */
+    int getClusterSize(MediaItem item) {
+        final Integer slot = slots.get(item.getId());
+        if (slot == null) return 1;
+
+        return sizes[find(slot)];
+    }
+
+    /**
+     * @param item Item.
+     * @return Every item in the group of the item, including the item itself.
+     */
+    List<MediaItem> getCluster(MediaItem item) {
+        final Integer slot = slots.get(item.getId());
+        if (slot == null) return Collections.singletonList(item);
+
+        final int root = find(slot);
+        List<MediaItem> cluster = new ArrayList<>(sizes[root]);
+        for (int s = 0; s < count; s++) {
+            if (find(s) == root) cluster.add(items[s]);
+        }
+        return cluster;
+    }
+
+    /**
+     * @return Every group of two or more items, largest first.
+     */
+    List<List<MediaItem>> getClusters() {
+        Map<Integer, List<MediaItem>> clusters = new HashMap<>();
+        for (int s = 0; s < count; s++) {
+            clusters.computeIfAbsent(find(s), root -> new ArrayList<>()).add(items[s]);
+        }
+
+        List<List<MediaItem>> results = new ArrayList<>(clusters.values());
+        results.removeIf(cluster -> cluster.size() < 2);
+        results.sort(Comparator.comparingInt((List<MediaItem> cluster) -> cluster.size()).reversed());
+        return results;
+    }
+
+    private int slot(MediaItem item) {
+        Integer slot = slots.get(item.getId());
+        if (slot != null) return slot;
+
+        if (count == parents.length) {
+            items = Arrays.copyOf(items, count * 2);
+            parents = Arrays.copyOf(parents, count * 2);
+            sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        items[count] = item;
+        parents[count] = count;
+        sizes[count] = 1;
+        slots.put(item.getId(), count);
+        return count++;
+    }
+
+    private int find(int slot) {
+        while (parents[slot] != slot) {
+            // Path halving
+            parents[slot] = parents[parents[slot]];
+            slot = parents[slot];
+        }
+        return slot;
+    }
+
+}
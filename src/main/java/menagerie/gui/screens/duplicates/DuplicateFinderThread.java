@@ -37,8 +37,9 @@ import java.util.List;
 
 public class DuplicateFinderThread extends CancellableThread {
 
-    private final List<Item> compareFrom;
-    private final List<Item> compareTo;
+    private final ComparableMedia compareFrom;
+    private final int fromStart, fromEnd;
+    private final ComparableMedia compareTo;
     private final double confidence;
 
     private final Menagerie menagerie;
@@ -50,8 +51,30 @@ public class DuplicateFinderThread extends CancellableThread {
 
 
     public DuplicateFinderThread(Menagerie menagerie, List<Item> compareFrom, List<Item> compareTo, double confidence, PokeListener progressListener, ObjectListener<List<SimilarPair<MediaItem>>> finishListener) {
+        this(menagerie, ComparableMedia.prepare(compareFrom, compareTo), confidence, progressListener, finishListener);
+    }
+
+    private DuplicateFinderThread(Menagerie menagerie, ComparableMedia[] prepared, double confidence, PokeListener progressListener, ObjectListener<List<SimilarPair<MediaItem>>> finishListener) {
+        this(menagerie, prepared[0], 0, prepared[0].size(), prepared[1], confidence, progressListener, finishListener);
+    }
+
+    /**
+     * Constructs a finder for a range of items already prepared for comparison, so several finders can share them.
+     *
+     * @param menagerie        Menagerie the items belong to.
+     * @param compareFrom      Items to compare.
+     * @param fromStart        First index of the range of compareFrom items this finder compares.
+     * @param fromEnd          End of the range.
+     * @param compareTo        Items to compare with.
+     * @param confidence       Minimum similarity of a pair.
+     * @param progressListener Poked after each compareFrom item.
+     * @param finishListener   Passed the pairs found, if not cancelled.
+     */
+    DuplicateFinderThread(Menagerie menagerie, ComparableMedia compareFrom, int fromStart, int fromEnd, ComparableMedia compareTo, double confidence, PokeListener progressListener, ObjectListener<List<SimilarPair<MediaItem>>> finishListener) {
         this.menagerie = menagerie;
         this.compareFrom = compareFrom;
+        this.fromStart = fromStart;
+        this.fromEnd = fromEnd;
         this.compareTo = compareTo;
         this.confidence = confidence;
 
@@ -64,21 +87,19 @@ public class DuplicateFinderThread extends CancellableThread {
 
     @Override
     public void run() {
-        final double confidenceSquare = 1 - (1 - confidence) * (1 - confidence);
+        final double confidenceSquare = ComparableMedia.getConfidenceSquare(confidence);
 
-        for (Item item1 : compareFrom) {
+        for (int i = fromStart; i < fromEnd; i++) {
             if (!running) break;
-            if (!(item1 instanceof MediaItem) || ((MediaItem) item1).hasNoSimilar()) continue;
+            final MediaItem item1 = compareFrom.items[i];
 
-            for (Item item2 : compareTo) {
-                if (!running) break;
-                if (!(item2 instanceof MediaItem) || ((MediaItem) item2).hasNoSimilar() || item1.equals(item2))
-                    continue;
+            for (int j = 0; j < compareTo.size(); j++) {
+                final MediaItem item2 = compareTo.items[j];
+                if (item1.getId() == item2.getId()) continue;
 
-                final double similarity = ((MediaItem) item1).getSimilarityTo((MediaItem) item2);
-                if (similarity >= confidenceSquare || (similarity >= confidence && ((MediaItem) item1).getHistogram().isColorful() && ((MediaItem) item2).getHistogram().isColorful())) {
-                    SimilarPair<MediaItem> pair = new SimilarPair<>((MediaItem) item1, (MediaItem) item2, similarity);
-                    if (!menagerie.hasNonDuplicate(pair)) pairs.add(pair);
+                final double similarity = compareFrom.getSimilarity(i, compareTo, j, confidence, confidenceSquare);
+                if (compareFrom.isSimilar(i, compareTo, j, similarity, confidence, confidenceSquare)) {
+                    if (!menagerie.hasNonDuplicate(item1.getId(), item2.getId())) pairs.add(new SimilarPair<>(item1, item2, similarity));
                 }
             }
 
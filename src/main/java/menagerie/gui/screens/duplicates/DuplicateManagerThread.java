@@ -32,31 +32,100 @@ import menagerie.util.CancellableThread;
 import menagerie.util.listeners.ObjectListener;
 
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
 
+/**
+ * Finds similar pairs between two sets of items. The comparisons are tiled into blocks that are scanned on a work stealing
+ * pool, so cores stay busy when some blocks are cheaper than others. When both sets are the same, only the blocks on and
+ * above the diagonal are scanned, and each pair is compared once.
+ * <p>
+ * If hash tables are used, only candidate pairs from {@link CandidatePairs} are compared instead of every pair.
+ * <p>
+ * Pairs can also be published to a queue as each task finds them, so they can be reviewed before the scan finishes.
+ * <p>
+ * Each worker keeps its most similar pairs in its own {@link TopPairs}, bounded by the maximum number of results, and they
+ * are merged when every worker is finished.
+ */
 public class DuplicateManagerThread extends CancellableThread {
 
-    private final List<DuplicateFinderThread> finders = new ArrayList<>();
-    private final List<SimilarPair<MediaItem>> pairs = new ArrayList<>();
+    private static final Logger LOGGER = Logger.getLogger(DuplicateManagerThread.class.getName());
+
+    /**
+     * Number of items on each side of a block.
+     */
+    private static final int BLOCK_SIZE = 128;
+    /**
+     * Number of candidate pairs compared by each task.
+     */
+    private static final int CANDIDATE_CHUNK_SIZE = 4096;
+    /**
+     * Share of the progress given to hashing, when candidate pairs are found.
+     */
+    private static final double HASHING_PROGRESS = 0.1;
+    /**
+     * Seed of the random projections of the hash tables, so the same items always give the same candidates.
+     */
+    private static final long HASH_SEED = 42;
+
+    private final List<TopPairs> workerPairs = new ArrayList<>();
+    private final ThreadLocal<TopPairs> localPairs = ThreadLocal.withInitial(() -> {
+        TopPairs pairs = new TopPairs(getMaxResults());
+        synchronized (workerPairs) {
+            workerPairs.add(pairs);
+        }
+        return pairs;
+    });
 
     private final Menagerie menagerie;
     private final List<Item> compareFrom;
     private final List<Item> compareTo;
+    private final boolean symmetric;
     private final double confidence;
+    private final int hashTables;
     private final ObjectListener<Double> progressListener;
     private final ObjectListener<List<SimilarPair<MediaItem>>> finishListener;
+    private Queue<SimilarPair<MediaItem>> foundQueue = null;
+    private Predicate<SimilarPair<MediaItem>> foundFilter = null;
+    private int maxResults = 0;
+    private boolean skipNonDuplicates = true;
 
-    private int finished = 0, total = 0;
+    private ComparableMedia from, to;
+    /**
+     * IDs of items in both sets, when the sets overlap without being the same. Null if symmetric.
+     */
+    private BitSet sharedIDs = null;
+    private int[] blockRows, blockCols;
+    private long[] candidates;
+    private final AtomicInteger finished = new AtomicInteger();
+    private int progressTotal = 1, progressStep = 1;
+    private double progressStart = 0;
+    private long totalPairs = 0, comparedPairs = 0;
 
 
     public DuplicateManagerThread(Menagerie menagerie, List<Item> compareFrom, List<Item> compareTo, double confidence, ObjectListener<Double> progressListener, ObjectListener<List<SimilarPair<MediaItem>>> finishListener) {
+        this(menagerie, compareFrom, compareTo, confidence, 0, progressListener, finishListener);
+    }
+
+    /**
+     * @param menagerie        Menagerie the items belong to.
+     * @param compareFrom      Items to compare.
+     * @param compareTo        Items to compare with.
+     * @param confidence       Minimum similarity of a pair.
+     * @param hashTables       Number of hash tables used to find candidate pairs. 0 to compare every pair.
+     * @param progressListener Passed the progress [0.0-1.0] as the search goes on.
+     * @param finishListener   Passed the pairs found, most similar first, if not cancelled.
+     */
+    public DuplicateManagerThread(Menagerie menagerie, List<Item> compareFrom, List<Item> compareTo, double confidence, int hashTables, ObjectListener<Double> progressListener, ObjectListener<List<SimilarPair<MediaItem>>> finishListener) {
         this.menagerie = menagerie;
         this.compareFrom = new ArrayList<>(compareFrom);
-        this.compareTo = new ArrayList<>(compareTo);
+        this.symmetric = compareFrom.equals(compareTo);
+        this.compareTo = symmetric ? this.compareFrom : new ArrayList<>(compareTo);
         this.confidence = confidence;
+        this.hashTables = hashTables;
         this.progressListener = progressListener;
         this.finishListener = finishListener;
 
@@ -65,54 +134,309 @@ public class DuplicateManagerThread extends CancellableThread {
 
     @Override
     public void run() {
-        total = compareFrom.size();
-        finished = 0;
-
-        final int threads = Math.min(Runtime.getRuntime().availableProcessors(), compareFrom.size());
-        final int chunk = (int) Math.ceil((double) compareFrom.size() / threads);
-        final Lock finishLock = new ReentrantLock();
-        final CountDownLatch finishLatch = new CountDownLatch(threads);
-        for (int i = 0; i < threads; i++) {
-            DuplicateFinderThread finder = new DuplicateFinderThread(menagerie, compareFrom.subList(i * chunk, Math.min((i + 1) * chunk, compareFrom.size())), compareTo, confidence, () -> {
-                finished++;
-                if (progressListener != null) progressListener.pass(getProgress());
-            }, results -> {
-                finishLock.lock();
-                pairs.addAll(results);
-                finishLatch.countDown();
-                finishLock.unlock();
-            });
-            finders.add(finder);
-            finder.start();
-        }
+        final ComparableMedia[] prepared = ComparableMedia.prepare(compareFrom, compareTo);
+        from = prepared[0];
+        to = prepared[1];
+        if (!symmetric) sharedIDs = ComparableMedia.getSharedIDs(Arrays.asList(from.items), Arrays.asList(to.items));
+        totalPairs = symmetric ? (long) from.size() * (from.size() - 1) / 2 : (long) from.size() * to.size();
+
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            if (hashTables > 0 && CandidatePairs.canHash(from, to)) {
+                findCandidates();
+                comparedPairs = candidates.length;
+                LOGGER.info(String.format("Hashing pruned %d of %d pairs, comparing %d candidates", totalPairs - comparedPairs, totalPairs, comparedPairs));
 
-        while (running) {
-            try {
-                if (finishLatch.await(5, TimeUnit.SECONDS)) {
-                    if (finishListener != null) {
-                        List<SimilarPair<MediaItem>> temp = new ArrayList<>(new HashSet<>(pairs));
-                        temp.sort(Collections.reverseOrder(Comparator.comparing(SimilarPair::getSimilarity)));
-                        finishListener.pass(temp); // Put into hashset to remove all duplicates
-                    }
-                    break;
-                }
-            } catch (InterruptedException e) {
-                // Do nothing
+                startProgress(HASHING_PROGRESS, (candidates.length + CANDIDATE_CHUNK_SIZE - 1) / CANDIDATE_CHUNK_SIZE);
+                if (running) pool.invoke(new CandidateScan(0, progressTotal));
+            } else {
+                comparedPairs = totalPairs;
+                initBlocks();
+                if (running) pool.invoke(new BlockScan(0, blockRows.length));
             }
+        } finally {
+            pool.shutdown();
         }
 
+        if (running && finishListener != null) finishListener.pass(mergeResults());
+
         running = false;
     }
 
-    private double getProgress() {
-        return (double) finished / total;
+    /**
+     * Hashes the items into tables to find the candidate pairs worth comparing.
+     */
+    private void findCandidates() {
+        CandidatePairs pairs = new CandidatePairs(from, to, confidence);
+        pairs.addIdenticalFiles();
+
+        Random random = new Random(HASH_SEED);
+        for (int t = 0; t < hashTables && running; t++) {
+            pairs.addTable(random);
+            if (progressListener != null) progressListener.pass(HASHING_PROGRESS * (t + 1) / hashTables);
+        }
+
+        candidates = pairs.toArray();
     }
 
-    @Override
-    public synchronized void cancel() {
-        super.cancel();
+    /**
+     * Lists the blocks to scan. Only the upper triangle of blocks is listed when both sets are the same.
+     */
+    private void initBlocks() {
+        final int rows = (from.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final int cols = (to.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final int count = symmetric ? rows * (rows + 1) / 2 : rows * cols;
+
+        blockRows = new int[count];
+        blockCols = new int[count];
+        int b = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = symmetric ? row : 0; col < cols; col++) {
+                blockRows[b] = row;
+                blockCols[b] = col;
+                b++;
+            }
+        }
+
+        startProgress(0, count);
+    }
+
+    /**
+     * Starts counting progress through the comparisons.
+     *
+     * @param start Progress at the start of the comparisons.
+     * @param total Number of tasks the comparisons are split into.
+     */
+    private void startProgress(double start, int total) {
+        finished.set(0);
+        progressStart = start;
+        progressTotal = Math.max(1, total);
+        progressStep = Math.max(1, total / 1000);
+    }
+
+    /**
+     * Counts a finished task, and passes the progress on every so often.
+     */
+    private void taskFinished() {
+        final int done = finished.incrementAndGet();
+        if (progressListener != null && (done % progressStep == 0 || done == progressTotal)) {
+            progressListener.pass(progressStart + (1 - progressStart) * done / progressTotal);
+        }
+    }
+
+    /**
+     * Sets a queue that pairs are added to as soon as they are found, in no particular order and possibly repeated. Must be
+     * called before this thread is started.
+     *
+     * @param foundQueue Thread safe queue to publish found pairs to.
+     */
+    public void setFoundQueue(Queue<SimilarPair<MediaItem>> foundQueue) {
+        this.foundQueue = foundQueue;
+    }
+
+    /**
+     * Sets which found pairs are published to the found queue. Pairs that aren't published are still kept. Must be called
+     * before this thread is started.
+     *
+     * @param foundFilter Pairs to publish, tested concurrently by every worker. Publishes every pair if null.
+     */
+    public void setFoundFilter(Predicate<SimilarPair<MediaItem>> foundFilter) {
+        this.foundFilter = foundFilter;
+    }
+
+    /**
+     * Sets the maximum number of pairs found. Only the most similar pairs are kept. Must be called before this thread is
+     * started.
+     *
+     * @param maxResults Maximum number of pairs. 0 to keep every pair.
+     */
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Sets whether pairs marked as not duplicates are skipped. Must be called before this thread is started.
+     *
+     * @param skipNonDuplicates False to find pairs marked as not duplicates too, e.g. to store them.
+     */
+    public void setSkipNonDuplicates(boolean skipNonDuplicates) {
+        this.skipNonDuplicates = skipNonDuplicates;
+    }
+
+    /**
+     * @return Maximum number of pairs found. 0 if every pair is kept.
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * @return Number of pairs of items in the sets being compared.
+     */
+    public long getTotalPairs() {
+        return totalPairs;
+    }
+
+    /**
+     * @return Number of pairs compared exactly. Less than the total if hashing pruned some.
+     */
+    public long getComparedPairs() {
+        return comparedPairs;
+    }
+
+    /**
+     * Compares all items in a block. Blocks on the diagonal of a symmetric scan only compare each pair once.
+     *
+     * @param b Index of the block.
+     */
+    private void scanBlock(int b) {
+        final double confidenceSquare = ComparableMedia.getConfidenceSquare(confidence);
+        final int fromStart = blockRows[b] * BLOCK_SIZE, fromEnd = Math.min(fromStart + BLOCK_SIZE, from.size());
+        final int toStart = blockCols[b] * BLOCK_SIZE, toEnd = Math.min(toStart + BLOCK_SIZE, to.size());
+        final boolean diagonal = symmetric && blockRows[b] == blockCols[b];
+        final TopPairs pairs = localPairs.get();
+        List<SimilarPair<MediaItem>> found = foundQueue != null ? new ArrayList<>() : null;
+
+        for (int i = fromStart; i < fromEnd; i++) {
+            for (int j = diagonal ? i + 1 : toStart; j < toEnd; j++) {
+                compare(i, j, confidenceSquare, pairs, found);
+            }
+        }
+
+        publish(found);
+        taskFinished();
+    }
+
+    /**
+     * Compares a chunk of {@link #CANDIDATE_CHUNK_SIZE} candidate pairs.
+     *
+     * @param c Index of the chunk.
+     */
+    private void scanCandidates(int c) {
+        final double confidenceSquare = ComparableMedia.getConfidenceSquare(confidence);
+        final int end = Math.min((c + 1) * CANDIDATE_CHUNK_SIZE, candidates.length);
+        final TopPairs pairs = localPairs.get();
+        List<SimilarPair<MediaItem>> found = foundQueue != null ? new ArrayList<>() : null;
+
+        for (int k = c * CANDIDATE_CHUNK_SIZE; k < end; k++) {
+            compare(CandidatePairs.getFrom(candidates[k]), CandidatePairs.getTo(candidates[k]), confidenceSquare, pairs, found);
+        }
+
+        publish(found);
+        taskFinished();
+    }
+
+    /**
+     * Compares a pair, and keeps it if it is similar.
+     *
+     * @param pairs Pairs kept by this worker.
+     * @param found Pairs to publish to the found queue, or null if there is none. Only pairs that were kept are published.
+     */
+    private void compare(int i, int j, double confidenceSquare, TopPairs pairs, List<SimilarPair<MediaItem>> found) {
+        final MediaItem item1 = from.items[i], item2 = to.items[j];
+        if (item1.getId() == item2.getId()) return;
+        // Pairs of items in both sets are met in both orders, so only keep one
+        if (sharedIDs != null && ComparableMedia.isReversedRepeat(sharedIDs, item1.getId(), item2.getId())) return;
+
+        final double similarity = from.getSimilarity(i, to, j, confidence, confidenceSquare);
+        if (from.isSimilar(i, to, j, similarity, confidence, confidenceSquare) && !(skipNonDuplicates && menagerie.hasNonDuplicate(item1.getId(), item2.getId()))) {
+            if (pairs.add(i, j, similarity) && found != null) found.add(new SimilarPair<>(item1, item2, similarity));
+        }
+    }
+
+    private void publish(List<SimilarPair<MediaItem>> found) {
+        if (found == null || found.isEmpty()) return;
+
+        if (foundFilter != null) found.removeIf(pair -> !foundFilter.test(pair));
+        foundQueue.addAll(found);
+    }
+
+    /**
+     * Merges the pairs kept by every worker, skipping repeats of the same pair in either order.
+     *
+     * @return The most similar pairs, most similar first, no more than the maximum number of results.
+     */
+    private List<SimilarPair<MediaItem>> mergeResults() {
+        final int limit = maxResults > 0 ? maxResults : Integer.MAX_VALUE;
+        final int[] cursors = new int[workerPairs.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, cursors.length), (a, b) -> Double.compare(workerPairs.get(b).getSimilarity(cursors[b]), workerPairs.get(a).getSimilarity(cursors[a])));
+        for (int w = 0; w < cursors.length; w++) {
+            workerPairs.get(w).sort();
+            if (workerPairs.get(w).size() > 0) heads.add(w);
+        }
+
+        List<SimilarPair<MediaItem>> results = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        while (!heads.isEmpty() && results.size() < limit) {
+            final int w = heads.poll();
+            final TopPairs pairs = workerPairs.get(w);
+            final int k = cursors[w];
+            final MediaItem item1 = from.items[pairs.getFrom(k)], item2 = to.items[pairs.getTo(k)];
+
+            final int id1 = item1.getId(), id2 = item2.getId();
+            if (seen.add((long) Math.min(id1, id2) << 32 | (Math.max(id1, id2) & 0xFFFFFFFFL))) {
+                results.add(new SimilarPair<>(item1, item2, pairs.getSimilarity(k)));
+            }
+
+            cursors[w]++;
+            if (cursors[w] < pairs.size()) heads.add(w);
+        }
+
+        return results;
+    }
+
+    /**
+     * Scans a range of blocks, splitting it in half until single blocks are left so idle workers can steal the rest.
+     */
+    private class BlockScan extends RecursiveAction {
+
+        private final int start, end;
+
+
+        BlockScan(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (!running) return;
+
+            if (end - start <= 1) {
+                if (start < end) scanBlock(start);
+            } else {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new BlockScan(start, middle), new BlockScan(middle, end));
+            }
+        }
+
+    }
+
+    /**
+     * Compares a range of chunks of candidate pairs, splitting it in half until single chunks are left.
+     */
+    private class CandidateScan extends RecursiveAction {
+
+        private final int start, end;
+
+
+        CandidateScan(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (!running) return;
+
+            if (end - start <= 1) {
+                if (start < end) scanCandidates(start);
+            } else {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new CandidateScan(start, middle), new CandidateScan(middle, end));
+            }
+        }
 
-        finders.forEach(CancellableThread::cancel);
     }
 
 }
@@ -46,11 +46,15 @@ import menagerie.model.menagerie.MediaItem;
 import menagerie.model.menagerie.Menagerie;
 import menagerie.settings.MenagerieSettings;
 import menagerie.util.CancellableThread;
+import menagerie.util.listeners.ObjectListener;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -72,12 +76,14 @@ public class DuplicateOptionsScreen extends Screen {
 
     private final Label compareCountLabel = new Label("~N/A comparisons"), firstCountLabel = new Label("0"), secondCountLabel = new Label("0");
     private final ChoiceBox<Scope> compareChoiceBox = new ChoiceBox<>(), toChoiceBox = new ChoiceBox<>();
-    private final TextField confidenceTextField = new TextField();
+    private final TextField confidenceTextField = new TextField(), hashTablesTextField = new TextField();
     private final CheckBox includeGroupElementsCheckBox = new CheckBox("Include group elements");
+    private final CheckBox perceptualCheckBox = new CheckBox("Compare perceptual hashes");
     private final Button previousButton = new Button("Open last");
 
     private List<Item> selected = null, searched = null, all = null;
     private Menagerie menagerie = null;
+    private CancellableThread streamingFinder = null;
 
 
     public DuplicateOptionsScreen(MenagerieSettings settings) {
@@ -114,6 +120,8 @@ public class DuplicateOptionsScreen extends Screen {
         toChoiceBox.getItems().addAll(Scope.SELECTED, Scope.SEARCHED, Scope.ALL);
         toChoiceBox.getSelectionModel().selectFirst();
         toChoiceBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> updateCounts());
+        // Comparing to all reuses the stored pairs, which were found by comparing every pair
+        hashTablesTextField.disableProperty().bind(toChoiceBox.valueProperty().isEqualTo(Scope.ALL));
         compareChoiceBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
             Scope toSelected = toChoiceBox.getValue();
             switch (newValue) {
@@ -144,6 +152,9 @@ public class DuplicateOptionsScreen extends Screen {
 
         contents.getChildren().add(includeGroupElementsCheckBox);
 
+        perceptualCheckBox.setTooltip(new Tooltip("Compare images by the differences between their perceptual hashes instead of their color histograms. Much faster, and finds resized and recolored copies"));
+        contents.getChildren().add(perceptualCheckBox);
+
         confidenceTextField.setPromptText(MediaItem.MIN_CONFIDENCE + "-" + MediaItem.MAX_CONFIDENCE);
         confidenceTextField.focusedProperty().addListener((observable, oldValue, newValue) -> {
             if (!newValue) {
@@ -162,6 +173,24 @@ public class DuplicateOptionsScreen extends Screen {
         h.setAlignment(Pos.CENTER_LEFT);
         contents.getChildren().add(h);
 
+        final int minTables = settings.duplicatesHashTables.getMin(), maxTables = settings.duplicatesHashTables.getMax();
+        hashTablesTextField.setPromptText(minTables + "-" + maxTables);
+        hashTablesTextField.focusedProperty().addListener((observable, oldValue, newValue) -> {
+            if (!newValue) {
+                try {
+                    int value = Integer.parseInt(hashTablesTextField.getText());
+                    if (value < minTables) hashTablesTextField.setText("" + minTables);
+                    else if (value > maxTables) hashTablesTextField.setText("" + maxTables);
+                } catch (NumberFormatException e) {
+                    hashTablesTextField.setText("" + minTables);
+                }
+            }
+        });
+        hashTablesTextField.setTooltip(new Tooltip("Only compare items that hash alike in one of this many tables. More tables miss fewer duplicates, fewer tables are faster. 0 compares every pair. Not used when comparing to all, which always compares every pair"));
+        h = new HBox(5, new Label("Hash tables:"), hashTablesTextField);
+        h.setAlignment(Pos.CENTER_LEFT);
+        contents.getChildren().add(h);
+
         VBox center = new VBox(5, header, new Separator(), contents);
 
         Button compare = new Button("Compare");
@@ -241,9 +270,16 @@ public class DuplicateOptionsScreen extends Screen {
         try {
             settings.duplicatesConfidence.setValue(Double.parseDouble(confidenceTextField.getText()));
             settings.duplicatesIncludeGroups.setValue(includeGroupElementsCheckBox.isSelected());
+            settings.duplicatesPerceptual.setValue(perceptualCheckBox.isSelected());
         } catch (NumberFormatException e) {
             LOGGER.log(Level.WARNING, "Failed to convert DuplicateOptionsScreen confidenceTextField to double for saving settings", e);
         }
+        try {
+            final int tables = Integer.parseInt(hashTablesTextField.getText());
+            settings.duplicatesHashTables.setValue(Math.max(settings.duplicatesHashTables.getMin(), Math.min(settings.duplicatesHashTables.getMax(), tables)));
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Failed to convert DuplicateOptionsScreen hashTablesTextField to int for saving settings", e);
+        }
 
         try {
             settings.save(new File(Main.SETTINGS_PATH));
@@ -261,21 +297,24 @@ public class DuplicateOptionsScreen extends Screen {
         } else if (compareChoiceBox.getValue() == Scope.SEARCHED) {
             compare = searched;
         }
-        compare = getComparableItems(compare, includeGroupElementsCheckBox.isSelected());
-        compare.removeIf(item -> (item instanceof GroupItem) || (item instanceof MediaItem && ((MediaItem) item).hasNoSimilar()));
+        // Items with no similar histograms can still have similar perceptual hashes
+        final boolean perceptual = perceptualCheckBox.isSelected();
+        compare = getComparableItems(compare, includeGroupElementsCheckBox.isSelected(), !perceptual);
         List<Item> to = all;
         if (toChoiceBox.getValue() == Scope.SELECTED) {
             to = selected;
         } else if (toChoiceBox.getValue() == Scope.SEARCHED) {
             to = searched;
         }
-        to = getComparableItems(to, includeGroupElementsCheckBox.isSelected());
-        to.removeIf(item -> (item instanceof GroupItem) || (item instanceof MediaItem && ((MediaItem) item).hasNoSimilar()));
+        to = getComparableItems(to, includeGroupElementsCheckBox.isSelected(), !perceptual);
 
-        if (settings.cudaDuplicates.getValue()) {
+        if (perceptual) {
+            launchPerceptualDuplicateFinder(compare, to);
+        } else if (settings.cudaDuplicates.getValue()) {
             launchGPUDuplicateFinder(compare, to);
         } else {
-            launchCPUDuplicateFinder(compare, to);
+            // Library wide searches reuse the stored similar pairs, and only compare items added since the last search
+            launchCPUDuplicateFinder(compare, to, toChoiceBox.getValue() == Scope.ALL);
         }
     }
 
@@ -287,7 +326,7 @@ public class DuplicateOptionsScreen extends Screen {
             @Override
             public void run() {
                 try {
-                    List<SimilarPair<MediaItem>> results = CUDADuplicateFinder.findDuplicates(compare, to, (float) settings.duplicatesConfidence.getValue(), 100000);
+                    List<SimilarPair<MediaItem>> results = CUDADuplicateFinder.findDuplicates(compare, to, (float) settings.duplicatesConfidence.getValue(), settings.duplicatesMaxResults.getValue());
                     results.removeIf(pair -> menagerie.hasNonDuplicate(pair));
 
                     Platform.runLater(() -> {
@@ -320,17 +359,103 @@ public class DuplicateOptionsScreen extends Screen {
         ct.start();
     }
 
-    private void launchCPUDuplicateFinder(List<Item> compare, List<Item> to) {
+    /**
+     * Launches a CPU duplicate finder that opens the duplicate resolver as soon as the first pairs are found, and keeps adding
+     * pairs to it while the scan continues.
+     *
+     * @param incremental Use the stored similar pairs, and only compare items added since the last search.
+     */
+    private void launchCPUDuplicateFinder(List<Item> compare, List<Item> to, boolean incremental) {
+        ProgressScreen ps = new ProgressScreen();
+        Queue<SimilarPair<MediaItem>> found = new ConcurrentLinkedQueue<>();
+        // Set once the finder is made, so the finish listener can report how many pairs hashing skipped
+        AtomicReference<DuplicateManagerThread> hashingFinder = new AtomicReference<>();
+
+        Platform.runLater(() -> ps.setProgress(0));
+        ObjectListener<Double> progressListener = progress -> {
+            long time = System.currentTimeMillis();
+            if (time - getLastProgressUpdate() > PROGRESS_UPDATE_INTERVAL) {
+                setLastProgressUpdate(time);
+                Platform.runLater(() -> {
+                    if (streamingFinder == null) {
+                        duplicateScreen.setScanProgress(progress);
+                    } else if (!found.isEmpty()) {
+                        duplicateScreen.openStreaming(getManager(), menagerie, found, streamingFinder);
+                        duplicateScreen.setScanProgress(progress);
+                        streamingFinder = null;
+                        ps.close();
+                        close();
+                    } else {
+                        ps.setProgress(progress);
+                    }
+                });
+            }
+        };
+        ObjectListener<List<SimilarPair<MediaItem>>> finishListener = results -> Platform.runLater(() -> {
+            final String pruning = getPruningSummary(hashingFinder.get());
+            if (streamingFinder == null) {
+                duplicateScreen.finishStreaming(results);
+                duplicateScreen.setScanSummary(pruning);
+                return;
+            }
+
+            streamingFinder = null;
+            if (results.isEmpty()) {
+                new AlertDialogScreen().open(getManager(), "No Duplicates", "No duplicates were found" + (pruning == null ? "" : " (" + pruning + ")"), null);
+            } else {
+                duplicateScreen.open(getManager(), menagerie, results);
+                duplicateScreen.setScanSummary(pruning);
+            }
+            ps.close();
+            close();
+        });
+
+        final double confidence = settings.duplicatesConfidence.getValue();
+        final int maxResults = settings.duplicatesMaxResults.getValue();
+        CancellableThread finder;
+        if (incremental) {
+            IncrementalDuplicateFinder incrementalFinder = new IncrementalDuplicateFinder(menagerie, compare, to, confidence, progressListener, finishListener);
+            incrementalFinder.setFoundQueue(found);
+            incrementalFinder.setMaxResults(maxResults);
+            finder = incrementalFinder;
+        } else {
+            DuplicateManagerThread managerThread = new DuplicateManagerThread(menagerie, compare, to, confidence, settings.duplicatesHashTables.getValue(), progressListener, finishListener);
+            managerThread.setFoundQueue(found);
+            managerThread.setMaxResults(maxResults);
+            hashingFinder.set(managerThread);
+            finder = managerThread;
+        }
+        streamingFinder = finder;
+
+        ps.open(getManager(), "Finding similar items", "Comparing items...", () -> {
+            finder.cancel();
+            streamingFinder = null;
+            close();
+        });
+
+        finder.start();
+    }
+
+    /**
+     * @param finder Finished finder, or null.
+     * @return How many candidate pairs hashing skipped, or null if it skipped none.
+     */
+    private static String getPruningSummary(DuplicateManagerThread finder) {
+        if (finder == null || finder.getComparedPairs() >= finder.getTotalPairs()) return null;
+        return String.format("hashing skipped %,d of %,d pairs", finder.getTotalPairs() - finder.getComparedPairs(), finder.getTotalPairs());
+    }
+
+    private void launchPerceptualDuplicateFinder(List<Item> compare, List<Item> to) {
         ProgressScreen ps = new ProgressScreen();
 
         Platform.runLater(() -> ps.setProgress(0));
-        DuplicateManagerThread finder = new DuplicateManagerThread(menagerie, compare, to, settings.duplicatesConfidence.getValue(), progress -> Platform.runLater(() -> {
+        PerceptualDuplicateFinder finder = new PerceptualDuplicateFinder(menagerie, compare, to, settings.duplicatesConfidence.getValue(), progress -> {
             long time = System.currentTimeMillis();
             if (time - getLastProgressUpdate() > PROGRESS_UPDATE_INTERVAL) {
                 setLastProgressUpdate(time);
                 Platform.runLater(() -> ps.setProgress(progress));
             }
-        }), results -> Platform.runLater(() -> {
+        }, results -> Platform.runLater(() -> {
             if (results.isEmpty()) {
                 new AlertDialogScreen().open(getManager(), "No Duplicates", "No duplicates were found", null);
             } else {
@@ -340,7 +465,7 @@ public class DuplicateOptionsScreen extends Screen {
             close();
         }));
 
-        ps.open(getManager(), "Finding similar items", "Comparing items...", () -> {
+        ps.open(getManager(), "Finding similar items", "Hashing and comparing items...", () -> {
             finder.cancel();
             close();
         });
@@ -348,11 +473,11 @@ public class DuplicateOptionsScreen extends Screen {
         finder.start();
     }
 
-    private static List<Item> getComparableItems(List<Item> compare, boolean expandGroups) {
+    private static List<Item> getComparableItems(List<Item> compare, boolean expandGroups, boolean excludeNoSimilar) {
         compare = new ArrayList<>(compare);
         if (expandGroups) expandGroupsInline(compare);
 
-        compare.removeIf(item -> !(item instanceof MediaItem) || ((MediaItem) item).hasNoSimilar());
+        compare.removeIf(item -> !(item instanceof MediaItem) || (excludeNoSimilar && ((MediaItem) item).hasNoSimilar()));
         return compare;
     }
 
@@ -361,7 +486,9 @@ public class DuplicateOptionsScreen extends Screen {
         updateCounts();
 
         confidenceTextField.setText(settings.duplicatesConfidence.getValue() + "");
+        hashTablesTextField.setText(settings.duplicatesHashTables.getValue() + "");
         includeGroupElementsCheckBox.setSelected(settings.duplicatesIncludeGroups.getValue());
+        perceptualCheckBox.setSelected(settings.duplicatesPerceptual.getValue());
         previousButton.setDisable(duplicateScreen.getPairs() == null || duplicateScreen.getPairs().isEmpty());
     }
 
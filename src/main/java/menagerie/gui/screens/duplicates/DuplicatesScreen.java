@@ -24,6 +24,9 @@
 
 package menagerie.gui.screens.duplicates;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.BooleanPropertyBase;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -39,25 +42,35 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 import menagerie.gui.ItemInfoBox;
 import menagerie.gui.media.DynamicMediaView;
 import menagerie.gui.screens.Screen;
 import menagerie.gui.screens.ScreenPane;
+import menagerie.gui.screens.dialogs.ConfirmationScreen;
 import menagerie.gui.taglist.TagListCell;
 import menagerie.model.SimilarPair;
 import menagerie.model.menagerie.Item;
 import menagerie.model.menagerie.MediaItem;
 import menagerie.model.menagerie.Menagerie;
 import menagerie.model.menagerie.Tag;
+import menagerie.util.CancellableThread;
 import menagerie.util.listeners.ObjectListener;
 
 import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 
 public class DuplicatesScreen extends Screen {
 
+    /**
+     * Interval between checks for pairs found by a running scan.
+     */
+    private static final Duration STREAM_INTERVAL = Duration.millis(250);
+    /**
+     * Maximum number of items named when confirming the resolution of a group.
+     */
+    private static final int MAX_LISTED_ITEMS = 20;
+
     private final DynamicMediaView leftMediaView = new DynamicMediaView();
     private final DynamicMediaView rightMediaView = new DynamicMediaView();
     private final ListView<Tag> leftTagList = new ListView<>();
@@ -68,10 +81,21 @@ public class DuplicatesScreen extends Screen {
 
     private final Label similarityLabel = new Label("N/A");
     private final TextField indexTextField = new TextField("0");
+    private final Label scanLabel = new Label();
+    private final Label clusterLabel = new Label();
+    private final Button leftResolveButton = new Button("Keep, merge group");
+    private final Button rightResolveButton = new Button("Keep, merge group");
 
     private Menagerie menagerie = null;
     private List<SimilarPair<MediaItem>> pairs = null;
     private SimilarPair<MediaItem> currentPair = null;
+    private final DuplicateClusters clusters = new DuplicateClusters();
+
+    private Queue<SimilarPair<MediaItem>> foundQueue = null;
+    private CancellableThread scanner = null;
+    private final Set<Long> shownPairs = new HashSet<>();
+    private final Set<Long> reviewedPairs = new HashSet<>();
+    private final Timeline streamTimeline = new Timeline(new KeyFrame(STREAM_INTERVAL, event -> drainFound()));
 
     private BooleanProperty deleteFile = new SimpleBooleanProperty(true);
     private BooleanProperty preload = new SimpleBooleanProperty(true);
@@ -102,10 +126,10 @@ public class DuplicatesScreen extends Screen {
                 previewNext();
                 event.consume();
             } else if (event.getCode() == KeyCode.END) {
-                preview(pairs.get(pairs.size() - 1));
+                if (pairs != null && !pairs.isEmpty()) preview(pairs.get(pairs.size() - 1));
                 event.consume();
             } else if (event.getCode() == KeyCode.HOME) {
-                preview(pairs.get(0));
+                if (pairs != null && !pairs.isEmpty()) preview(pairs.get(0));
                 event.consume();
             }
         });
@@ -251,6 +275,7 @@ public class DuplicatesScreen extends Screen {
         indexTextField.setAlignment(Pos.CENTER_RIGHT);
         indexTextField.setPrefWidth(50);
         indexTextField.setOnAction(event -> {
+            if (pairs == null || pairs.isEmpty()) return;
             int i = pairs.indexOf(currentPair);
             try {
                 int temp = Integer.parseInt(indexTextField.getText()) - 1;
@@ -262,15 +287,19 @@ public class DuplicatesScreen extends Screen {
             preview(pairs.get(i));
             requestFocus();
         });
-        HBox hbc = new HBox(indexTextField, similarityLabel);
+        HBox hbc = new HBox(indexTextField, similarityLabel, clusterLabel, scanLabel);
         hbc.setAlignment(Pos.CENTER);
         Button leftDeleteButton = new Button("Delete");
         leftDeleteButton.setOnAction(event -> deleteItem(currentPair.getObject1()));
         Button rightDeleteButton = new Button("Delete");
         rightDeleteButton.setOnAction(event -> deleteItem(currentPair.getObject2()));
-        HBox hbl = new HBox(leftDeleteButton);
+        leftResolveButton.setTooltip(new Tooltip("Keep this item, add the tags of every item paired with it to it, and delete them"));
+        leftResolveButton.setOnAction(event -> resolveCluster(currentPair.getObject1()));
+        rightResolveButton.setTooltip(new Tooltip("Keep this item, add the tags of every item paired with it to it, and delete them"));
+        rightResolveButton.setOnAction(event -> resolveCluster(currentPair.getObject2()));
+        HBox hbl = new HBox(5, leftDeleteButton, leftResolveButton);
         hbl.setAlignment(Pos.CENTER_LEFT);
-        HBox hbr = new HBox(rightDeleteButton);
+        HBox hbr = new HBox(5, rightResolveButton, rightDeleteButton);
         hbr.setAlignment(Pos.CENTER_RIGHT);
         bottom.getChildren().add(new BorderPane(hbc, null, hbr, null, hbl));
         // Construct second element
@@ -281,10 +310,13 @@ public class DuplicatesScreen extends Screen {
         Button nextPairButton = new Button("->");
         nextPairButton.setOnAction(event -> previewNext());
         nonDupeCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
-            if (newValue) {
-                menagerie.addNonDuplicate(currentPair);
-            } else {
-                menagerie.removeNonDuplicate(currentPair);
+            if (currentPair == null) return;
+
+            final boolean changed = newValue ? menagerie.addNonDuplicate(currentPair) : menagerie.removeNonDuplicate(currentPair);
+            if (changed) {
+                // Groups only follow pairs that are duplicates
+                rebuildClusters();
+                updateIndexLabel();
             }
         });
         HBox hb = new HBox(5, prevPairButton, closeButton, nextPairButton, nonDupeCheckBox);
@@ -294,6 +326,7 @@ public class DuplicatesScreen extends Screen {
 
 
         setDefaultFocusNode(closeButton);
+        streamTimeline.setCycleCount(Animation.INDEFINITE);
     }
 
     /**
@@ -306,12 +339,135 @@ public class DuplicatesScreen extends Screen {
     public void open(ScreenPane manager, Menagerie menagerie, List<SimilarPair<MediaItem>> pairs) {
         if (manager == null || menagerie == null || pairs == null || pairs.isEmpty()) return;
 
+        stopStreaming();
         openWithOldPairs(manager, menagerie);
 
         this.pairs = pairs;
+        rebuildClusters();
         preview(pairs.get(0));
     }
 
+    /**
+     * Opens this screen in a manager while a scan is still running, and adds pairs as the scan finds them. Pairs are shown
+     * in the order they are found until {@link #finishStreaming(List)} is called. Closing this screen cancels the scan.
+     *
+     * @param manager    Manager to open in.
+     * @param menagerie  Menagerie.
+     * @param foundQueue Thread safe queue the scan publishes found pairs to.
+     * @param scanner    Thread running the scan.
+     */
+    public void openStreaming(ScreenPane manager, Menagerie menagerie, Queue<SimilarPair<MediaItem>> foundQueue, CancellableThread scanner) {
+        if (manager == null || menagerie == null || foundQueue == null) return;
+
+        stopStreaming();
+        openWithOldPairs(manager, menagerie);
+
+        pairs = new ArrayList<>();
+        clusters.clear();
+        shownPairs.clear();
+        reviewedPairs.clear();
+        this.foundQueue = foundQueue;
+        this.scanner = scanner;
+        scanLabel.setText(" (scanning)");
+
+        preview(null);
+        drainFound();
+        streamTimeline.play();
+    }
+
+    /**
+     * @param progress Progress of the running scan. [0.0-1.0]
+     */
+    public void setScanProgress(double progress) {
+        if (foundQueue != null) scanLabel.setText(String.format(" (scanning %d%%)", (int) (progress * 100)));
+    }
+
+    /**
+     * Shows a note about the finished scan next to the pair index, until another scan is opened.
+     *
+     * @param summary Note to show, e.g. how many pairs hashing skipped. Null clears it.
+     */
+    public void setScanSummary(String summary) {
+        if (foundQueue == null) scanLabel.setText(summary == null ? "" : " (" + summary + ")");
+    }
+
+    /**
+     * Finishes a scan opened with {@link #openStreaming(ScreenPane, Menagerie, Queue, CancellableThread)}. Pairs are put in
+     * the final order, skipping pairs that were already reviewed. The current pair is kept first, so reviewing continues from
+     * it.
+     *
+     * @param results Every pair found by the scan, most similar first.
+     */
+    public void finishStreaming(List<SimilarPair<MediaItem>> results) {
+        if (foundQueue == null) return;
+        drainFound();
+        stopStreaming();
+
+        List<SimilarPair<MediaItem>> ordered = new ArrayList<>();
+        if (currentPair != null && !isRemoved(currentPair)) ordered.add(currentPair);
+        for (SimilarPair<MediaItem> pair : results) {
+            if (!isRemoved(pair) && !reviewedPairs.contains(key(pair))) ordered.add(pair);
+        }
+        pairs = ordered;
+        reviewedPairs.clear();
+        shownPairs.clear();
+        rebuildClusters();
+
+        if (pairs.isEmpty()) {
+            close();
+        } else if (pairs.get(0) == currentPair) {
+            updateIndexLabel();
+        } else {
+            preview(pairs.get(0));
+        }
+    }
+
+    /**
+     * Adds pairs found by the running scan since the last check, skipping repeats and pairs of removed items.
+     */
+    private void drainFound() {
+        if (foundQueue == null) return;
+
+        SimilarPair<MediaItem> pair;
+        while ((pair = foundQueue.poll()) != null) {
+            if (!isRemoved(pair) && shownPairs.add(key(pair))) {
+                pairs.add(pair);
+                if (!menagerie.hasNonDuplicate(pair)) clusters.add(pair);
+            }
+        }
+
+        if (currentPair == null) {
+            if (!pairs.isEmpty()) preview(pairs.get(0));
+        } else {
+            updateIndexLabel();
+        }
+    }
+
+    /**
+     * Stops adding pairs from a running scan, without cancelling it.
+     */
+    private void stopStreaming() {
+        streamTimeline.stop();
+        foundQueue = null;
+        scanner = null;
+        scanLabel.setText("");
+    }
+
+    /**
+     * @return True if either item of the pair was deleted or forgotten.
+     */
+    private boolean isRemoved(SimilarPair<MediaItem> pair) {
+        return menagerie.getItemByID(pair.getObject1().getId()) == null || menagerie.getItemByID(pair.getObject2().getId()) == null;
+    }
+
+    /**
+     * @return IDs of the pair packed into a long, the same for either order of the items.
+     */
+    private static long key(SimilarPair<MediaItem> pair) {
+        final int id1 = pair.getObject1().getId(), id2 = pair.getObject2().getId();
+        return (long) Math.min(id1, id2) << 32 | (Math.max(id1, id2) & 0xFFFFFFFFL);
+    }
+
     public void openWithOldPairs(ScreenPane manager, Menagerie menagerie) {
         this.menagerie = menagerie;
 
@@ -390,9 +546,8 @@ public class DuplicatesScreen extends Screen {
             leftInfoBox.setItem(pair.getObject1());
             rightInfoBox.setItem(pair.getObject2());
 
-            DecimalFormat df = new DecimalFormat("#.##");
-            indexTextField.setText((pairs.indexOf(pair) + 1) + "");
-            similarityLabel.setText("/" + pairs.size() + ": " + df.format(pair.getSimilarity() * 100) + "%");
+            updateIndexLabel();
+            if (foundQueue != null) reviewedPairs.add(key(pair));
 
             nonDupeCheckBox.setSelected(menagerie.hasNonDuplicate(pair));
         } else {
@@ -403,10 +558,30 @@ public class DuplicatesScreen extends Screen {
             rightInfoBox.setItem(null);
 
             similarityLabel.setText("N/A");
+            clusterLabel.setText("");
+            leftResolveButton.setDisable(true);
+            rightResolveButton.setDisable(true);
             nonDupeCheckBox.setSelected(false);
         }
     }
 
+    /**
+     * Displays the index of the current pair, the number of pairs, the similarity of the current pair, and the size of its
+     * group.
+     */
+    private void updateIndexLabel() {
+        if (currentPair == null) return;
+
+        DecimalFormat df = new DecimalFormat("#.##");
+        indexTextField.setText((pairs.indexOf(currentPair) + 1) + "");
+        similarityLabel.setText("/" + pairs.size() + ": " + df.format(currentPair.getSimilarity() * 100) + "%");
+
+        final int clusterSize = clusters.getClusterSize(currentPair.getObject1());
+        clusterLabel.setText(clusterSize > 2 ? " (group of " + clusterSize + ")" : "");
+        leftResolveButton.setDisable(clusterSize <= 2);
+        rightResolveButton.setDisable(clusterSize <= 2);
+    }
+
     private void updatePreload(SimilarPair<MediaItem> pair) {
         preloadPrevLeft = preloadPrevRight = preloadNextLeft = preloadNextRight = null;
         if (isPreload()) {
@@ -426,40 +601,105 @@ public class DuplicatesScreen extends Screen {
         }
     }
 
+    /**
+     * Rebuilds the groups from the pairs that aren't marked as not duplicates.
+     */
+    private void rebuildClusters() {
+        clusters.clear();
+        for (SimilarPair<MediaItem> pair : pairs) {
+            if (!menagerie.hasNonDuplicate(pair)) clusters.add(pair);
+        }
+    }
+
+    /**
+     * Resolves the group of an item after confirmation: the item is kept, and every item paired directly with it is merged
+     * into it and deleted. Items only joined to the group through other items are not similar to the kept item, so they are
+     * left alone.
+     *
+     * @param keep Item to keep.
+     */
+    private void resolveCluster(MediaItem keep) {
+        if (menagerie == null) return;
+
+        Set<MediaItem> others = new LinkedHashSet<>();
+        for (SimilarPair<MediaItem> pair : pairs) {
+            if (menagerie.hasNonDuplicate(pair)) continue;
+
+            if (pair.getObject1().equals(keep)) others.add(pair.getObject2());
+            else if (pair.getObject2().equals(keep)) others.add(pair.getObject1());
+        }
+        if (others.isEmpty()) return;
+
+        StringBuilder names = new StringBuilder();
+        int listed = 0;
+        for (MediaItem item : others) {
+            if (listed++ == MAX_LISTED_ITEMS) {
+                names.append("\n...and ").append(others.size() - MAX_LISTED_ITEMS).append(" more");
+                break;
+            }
+            names.append("\n").append(item.getFile().getName());
+        }
+        final int kept = clusters.getClusterSize(keep) - 1 - others.size();
+        if (kept > 0) names.append("\n\n").append(kept).append(" other items in the group aren't paired with this item and will be kept");
+
+        final String action = isDeleteFile() ? "delete" : "forget";
+        new ConfirmationScreen().open(getManager(), "Resolve group", String.format("Keep %s, add the tags of these %d items to it, and %s them?\n%s\n\nThis action CANNOT be undone", keep.getFile().getName(), others.size(), action, names), () -> {
+            others.forEach(item -> new ArrayList<>(item.getTags()).forEach(keep::addTag));
+            deleteItems(others);
+        }, null);
+    }
+
     /**
      * Attempts to delete an item. WARNING: Deletes the file.
      *
      * @param toDelete Item to delete.
      */
     private void deleteItem(MediaItem toDelete) {
+        deleteItems(Collections.singletonList(toDelete));
+    }
+
+    /**
+     * Attempts to delete items. WARNING: Deletes the files.
+     *
+     * @param toDelete Items to delete.
+     */
+    private void deleteItems(Collection<MediaItem> toDelete) {
         if (menagerie == null) return;
 
-        if (currentPair.getObject1().equals(toDelete)) leftMediaView.stop();
-        if (currentPair.getObject2().equals(toDelete)) rightMediaView.stop();
+        if (toDelete.contains(currentPair.getObject1())) leftMediaView.stop();
+        if (toDelete.contains(currentPair.getObject2())) rightMediaView.stop();
 
         int index = pairs.indexOf(currentPair);
 
-        if (isDeleteFile()) {
-            menagerie.deleteItem(toDelete);
-        } else {
-            menagerie.forgetItem(toDelete);
+        for (MediaItem item : toDelete) {
+            if (isDeleteFile()) {
+                menagerie.deleteItem(item);
+            } else {
+                menagerie.forgetItem(item);
+            }
         }
 
-        //Remove other pairs containing the deleted image
-        for (SimilarPair pair : new ArrayList<>(pairs)) {
-            if (toDelete.equals(pair.getObject1()) || toDelete.equals(pair.getObject2())) {
-                int i = pairs.indexOf(pair);
-                pairs.remove(pair);
-                if (i < index) {
-                    index--;
-                }
+        //Remove other pairs containing the deleted images
+        Set<MediaItem> deleted = new HashSet<>(toDelete);
+        List<SimilarPair<MediaItem>> remaining = new ArrayList<>(pairs.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            SimilarPair<MediaItem> pair = pairs.get(i);
+            if (deleted.contains(pair.getObject1()) || deleted.contains(pair.getObject2())) {
+                if (i < index) index--;
+            } else {
+                remaining.add(pair);
             }
         }
+        pairs.clear();
+        pairs.addAll(remaining);
+        rebuildClusters();
 
         if (index > pairs.size() - 1) index = pairs.size() - 1;
 
         if (pairs.isEmpty()) {
-            close();
+            // Keep waiting for more pairs while a scan is running
+            if (foundQueue == null) close();
+            else preview(null);
         } else {
             preview(pairs.get(index));
         }
@@ -479,6 +719,12 @@ public class DuplicatesScreen extends Screen {
         }
     }
 
+    @Override
+    protected void onClose() {
+        if (scanner != null) scanner.cancel();
+        stopStreaming();
+    }
+
     public List<SimilarPair<MediaItem>> getPairs() {
         return pairs;
     }
@@ -0,0 +1,232 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.util.CancellableThread;
+import menagerie.util.listeners.ObjectListener;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finds similar pairs between two sets of items using the similar pairs stored in the database. Only media added since the
+ * last scan (above the stored watermark) are compared, against the whole library, and the pairs they form are stored for
+ * next time. The stored pairs are then read back most similar first, filtered down to the two sets, until the maximum
+ * number of results is reached.
+ * <p>
+ * If a found queue is set, stored pairs are published to it before the scan starts, and pairs are published as the scan
+ * finds them, so they can be reviewed while the scan runs.
+ * <p>
+ * If the stored pairs were found with a stricter confidence than asked for, they are thrown out and the whole library is
+ * scanned again.
+ * <p>
+ * Scans compare every pair and store pairs marked as not duplicates too, since the watermark moves past them for good.
+ * Hash tables would lose the candidates they miss, and a pair that is unmarked later could never be found again.
+ */
+public class IncrementalDuplicateFinder extends CancellableThread {
+
+    private static final Logger LOGGER = Logger.getLogger(IncrementalDuplicateFinder.class.getName());
+
+    private final Menagerie menagerie;
+    private final List<Item> compareFrom;
+    private final List<Item> compareTo;
+    private final double confidence;
+    private final ObjectListener<Double> progressListener;
+    private final ObjectListener<List<SimilarPair<MediaItem>>> finishListener;
+
+    private volatile DuplicateManagerThread scanner = null;
+    private int maxResults = 0;
+    private Queue<SimilarPair<MediaItem>> foundQueue = null;
+    private Predicate<SimilarPair<MediaItem>> filter = null;
+    private final AtomicInteger published = new AtomicInteger();
+
+
+    /**
+     * @param menagerie        Menagerie the items belong to.
+     * @param compareFrom      Items to compare.
+     * @param compareTo        Items to compare with.
+     * @param confidence       Minimum similarity of a pair.
+     * @param progressListener Passed the progress [0.0-1.0] as the search goes on.
+     * @param finishListener   Passed the pairs found, most similar first, if not cancelled.
+     */
+    public IncrementalDuplicateFinder(Menagerie menagerie, List<Item> compareFrom, List<Item> compareTo, double confidence, ObjectListener<Double> progressListener, ObjectListener<List<SimilarPair<MediaItem>>> finishListener) {
+        this.menagerie = menagerie;
+        this.compareFrom = new ArrayList<>(compareFrom);
+        this.compareTo = new ArrayList<>(compareTo);
+        this.confidence = confidence;
+        this.progressListener = progressListener;
+        this.finishListener = finishListener;
+
+        setName("Incremental Duplicate Finder");
+    }
+
+    @Override
+    public void run() {
+        Set<Item> from = new HashSet<>(compareFrom), to = new HashSet<>(compareTo);
+        filter = pair -> {
+            final MediaItem item1 = pair.getObject1(), item2 = pair.getObject2();
+            final boolean inSets = (from.contains(item1) && to.contains(item2)) || (from.contains(item2) && to.contains(item1));
+            return inSets && !menagerie.hasNonDuplicate(pair);
+        };
+
+        List<SimilarPair<MediaItem>> results;
+        try {
+            results = getStoredPairs();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to use stored similar pairs, comparing every pair instead", e);
+            results = scan(compareFrom, compareTo, confidence, maxResults, true, 0, 1);
+        }
+
+        if (running && finishListener != null) finishListener.pass(results);
+
+        running = false;
+    }
+
+    /**
+     * Sets the maximum number of pairs passed to the finish listener. Must be called before the thread is started.
+     *
+     * @param maxResults Maximum number of pairs. 0 to keep every pair.
+     */
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Sets a queue that pairs in the two sets are added to as soon as they are found, in no particular order and possibly
+     * repeated. No more than the maximum number of results are added. Must be called before the thread is started.
+     *
+     * @param foundQueue Thread safe queue to publish found pairs to.
+     */
+    public void setFoundQueue(Queue<SimilarPair<MediaItem>> foundQueue) {
+        this.foundQueue = foundQueue;
+    }
+
+    /**
+     * Scans media added since the last scan, stores the pairs they form, and loads the most similar stored pairs.
+     *
+     * @return Stored similar pairs at or above the confidence, most similar first, or an empty list if cancelled.
+     * @throws SQLException If the database can't be read or updated.
+     */
+    private List<SimilarPair<MediaItem>> getStoredPairs() throws SQLException {
+        final DatabaseManager db = menagerie.getDatabaseManager();
+
+        db.startSimilarPairsScan();
+        int watermark = db.getSimilarPairsWatermark();
+        final double storedConfidence = db.getSimilarPairsConfidence();
+        if (watermark > 0 && storedConfidence > confidence) {
+            LOGGER.info("Stored similar pairs were found with confidence " + storedConfidence + ", scanning library again with " + confidence);
+            db.clearSimilarPairs();
+            watermark = 0;
+        }
+        final double scanConfidence = watermark > 0 ? storedConfidence : confidence;
+        if (foundQueue != null && watermark > 0) {
+            List<SimilarPair<MediaItem>> stored = db.getSimilarPairs(menagerie, confidence, maxResults, filter);
+            published.addAndGet(stored.size());
+            foundQueue.addAll(stored);
+        }
+
+        List<Item> scanned = new ArrayList<>(), added = new ArrayList<>();
+        int highest = watermark;
+        for (Item item : new ArrayList<>(menagerie.getItems())) {
+            if (!(item instanceof MediaItem) || ((MediaItem) item).getHistogram() == null) continue;
+
+            if (item.getId() > watermark) {
+                added.add(item);
+                highest = Math.max(highest, item.getId());
+            } else {
+                scanned.add(item);
+            }
+        }
+
+        if (!added.isEmpty()) {
+            LOGGER.info("Scanning " + added.size() + " media added since item " + watermark + " against " + (added.size() + scanned.size()) + " in library");
+            // Added media are compared among themselves once per pair, then against the rest of the library
+            final double addedPairs = (double) added.size() * added.size() / 2, scannedPairs = (double) added.size() * scanned.size();
+            final double split = addedPairs / (addedPairs + scannedPairs);
+            List<SimilarPair<MediaItem>> found = scan(added, added, scanConfidence, 0, false, 0, split);
+            if (!scanned.isEmpty()) found.addAll(scan(added, scanned, scanConfidence, 0, false, split, 1));
+            if (!running) return new ArrayList<>();
+
+            final int newWatermark = db.finishSimilarPairsScan(watermark, highest, scanConfidence, found);
+            if (newWatermark < highest) LOGGER.info("Items changed during the scan, they will be scanned again from item " + newWatermark);
+        } else if (progressListener != null) {
+            progressListener.pass(1.0);
+        }
+
+        return db.getSimilarPairs(menagerie, confidence, maxResults, filter);
+    }
+
+    /**
+     * Compares two sets of items on a {@link DuplicateManagerThread}, and waits for it to finish.
+     *
+     * @param maxResults        Maximum number of pairs to find. 0 to keep every pair.
+     * @param skipNonDuplicates False to find pairs marked as not duplicates too, e.g. to store them.
+     * @param progressStart     Progress passed on when the scan starts.
+     * @param progressEnd       Progress passed on when the scan finishes.
+     * @return Pairs found, most similar first, or an empty list if cancelled.
+     */
+    private List<SimilarPair<MediaItem>> scan(List<Item> compareFrom, List<Item> compareTo, double confidence, int maxResults, boolean skipNonDuplicates, double progressStart, double progressEnd) {
+        List<SimilarPair<MediaItem>> results = new ArrayList<>();
+        ObjectListener<Double> progress = null;
+        if (progressListener != null) progress = p -> progressListener.pass(progressStart + (progressEnd - progressStart) * p);
+
+        synchronized (this) {
+            if (!running) return results;
+            scanner = new DuplicateManagerThread(menagerie, compareFrom, compareTo, confidence, 0, progress, results::addAll);
+            scanner.setMaxResults(maxResults);
+            scanner.setSkipNonDuplicates(skipNonDuplicates);
+            if (foundQueue != null) {
+                // Scans that are stored find pairs outside the sets and below the confidence, which aren't results
+                scanner.setFoundQueue(foundQueue);
+                scanner.setFoundFilter(pair -> pair.getSimilarity() >= this.confidence && filter.test(pair) && (this.maxResults < 1 || published.incrementAndGet() <= this.maxResults));
+            }
+            scanner.start();
+        }
+
+        try {
+            scanner.join();
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.WARNING, "Interrupted while waiting for duplicate scan", e);
+            cancel();
+        }
+
+        return results;
+    }
+
+    @Override
+    public synchronized void cancel() {
+        super.cancel();
+        if (scanner != null) scanner.cancel();
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.util.CancellableThread;
+import menagerie.util.HammingIndex;
+import menagerie.util.PerceptualHasher;
+import menagerie.util.listeners.ObjectListener;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Finds similar pairs between two sets of items by the Hamming distance between their perceptual hashes. Items missing a
+ * hash are hashed first, then the hashes being compared with are indexed in a {@link HammingIndex} so each item only
+ * looks at the few hashes close to its own.
+ */
+public class PerceptualDuplicateFinder extends CancellableThread {
+
+    private static final Logger LOGGER = Logger.getLogger(PerceptualDuplicateFinder.class.getName());
+
+    /**
+     * Share of the progress given to hashing items that are missing a perceptual hash.
+     */
+    private static final double HASHING_PROGRESS = 0.9;
+
+    private final Menagerie menagerie;
+    private final List<MediaItem> compareFrom;
+    private final List<MediaItem> compareTo;
+    private final boolean symmetric;
+    private final double confidence;
+    private final ObjectListener<Double> progressListener;
+    private final ObjectListener<List<SimilarPair<MediaItem>>> finishListener;
+
+
+    /**
+     * @param menagerie        Menagerie the items belong to.
+     * @param compareFrom      Items to compare.
+     * @param compareTo        Items to compare with.
+     * @param confidence       Minimum similarity of a pair.
+     * @param progressListener Passed the progress [0.0-1.0] as the search goes on.
+     * @param finishListener   Passed the pairs found, most similar first, if not cancelled.
+     */
+    public PerceptualDuplicateFinder(Menagerie menagerie, List<Item> compareFrom, List<Item> compareTo, double confidence, ObjectListener<Double> progressListener, ObjectListener<List<SimilarPair<MediaItem>>> finishListener) {
+        this.menagerie = menagerie;
+        this.compareFrom = getHashableMedia(compareFrom);
+        this.symmetric = compareFrom.equals(compareTo);
+        this.compareTo = symmetric ? this.compareFrom : getHashableMedia(compareTo);
+        this.confidence = confidence;
+        this.progressListener = progressListener;
+        this.finishListener = finishListener;
+
+        setName("Perceptual Duplicate Finder");
+    }
+
+    private static List<MediaItem> getHashableMedia(List<Item> items) {
+        List<MediaItem> results = new ArrayList<>();
+        for (Item item : items) {
+            if (item instanceof MediaItem && ((MediaItem) item).isHashableImage()) results.add((MediaItem) item);
+        }
+        return results;
+    }
+
+    @Override
+    public void run() {
+        initializeHashes();
+        if (!running) return;
+
+        final long[] fromHashes = getHashes(compareFrom);
+        final long[] toHashes = symmetric ? fromHashes : getHashes(compareTo);
+        final HammingIndex index = new HammingIndex(toHashes);
+        final BitSet sharedIDs = symmetric ? null : ComparableMedia.getSharedIDs(compareFrom, compareTo);
+        final int distance = getMaxDistance(confidence);
+
+        List<SimilarPair<MediaItem>> pairs = new ArrayList<>();
+        final int progressStep = Math.max(1, compareFrom.size() / 1000);
+        for (int i = 0; i < compareFrom.size() && running; i++) {
+            final MediaItem item1 = compareFrom.get(i);
+            if (item1.getPerceptualHash() == null) continue;
+
+            final int from = i;
+            index.forEachWithin(fromHashes[i], distance, j -> {
+                final MediaItem item2 = compareTo.get(j);
+                if (item2.getPerceptualHash() == null || item1.getId() == item2.getId() || (symmetric && j <= from)) return;
+                // Pairs of items in both sets are met in both orders, so only keep one
+                if (sharedIDs != null && ComparableMedia.isReversedRepeat(sharedIDs, item1.getId(), item2.getId())) return;
+
+                if (!menagerie.hasNonDuplicate(item1.getId(), item2.getId())) {
+                    pairs.add(new SimilarPair<>(item1, item2, PerceptualHasher.getSimilarity(fromHashes[from], toHashes[j])));
+                }
+            });
+
+            if (progressListener != null && (i + 1) % progressStep == 0) {
+                progressListener.pass(HASHING_PROGRESS + (1 - HASHING_PROGRESS) * (i + 1) / compareFrom.size());
+            }
+        }
+
+        if (running && finishListener != null) {
+            List<SimilarPair<MediaItem>> temp = new ArrayList<>(new HashSet<>(pairs)); // Put into hashset to remove all duplicates
+            temp.sort(Collections.reverseOrder(Comparator.comparing(SimilarPair::getSimilarity)));
+            finishListener.pass(temp);
+        }
+
+        running = false;
+    }
+
+    /**
+     * Hashes every item that doesn't have a perceptual hash yet, in parallel.
+     */
+    private void initializeHashes() {
+        Set<MediaItem> missingSet = new LinkedHashSet<>();
+        for (MediaItem item : compareFrom) {
+            if (item.getPerceptualHash() == null) missingSet.add(item);
+        }
+        for (MediaItem item : compareTo) {
+            if (item.getPerceptualHash() == null) missingSet.add(item);
+        }
+        if (missingSet.isEmpty()) return;
+
+        LOGGER.info("Computing perceptual hashes of " + missingSet.size() + " items");
+        final MediaItem[] missing = missingSet.toArray(new MediaItem[0]);
+        final int progressStep = Math.max(1, missing.length / 1000);
+        final AtomicInteger finished = new AtomicInteger();
+
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            pool.submit(() -> IntStream.range(0, missing.length).parallel().forEach(i -> {
+                if (!running) return;
+                missing[i].initializePerceptualHash();
+
+                final int done = finished.incrementAndGet();
+                if (progressListener != null && (done % progressStep == 0 || done == missing.length)) {
+                    progressListener.pass(HASHING_PROGRESS * done / missing.length);
+                }
+            })).get();
+        } catch (InterruptedException | ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Failed to compute perceptual hashes", e);
+            running = false;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long[] getHashes(List<MediaItem> items) {
+        long[] hashes = new long[items.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            final Long hash = items.get(i).getPerceptualHash();
+            if (hash != null) hashes[i] = hash;
+        }
+        return hashes;
+    }
+
+    /**
+     * @param confidence Minimum similarity of a pair.
+     * @return Greatest number of bits two hashes can differ by and still be that similar.
+     */
+    static int getMaxDistance(double confidence) {
+        return (int) Math.floor((1 - confidence) * 64 + 1e-9);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most similar pairs added to it, up to a capacity. Pairs are stored as the indices of their items in the sets
+ * being compared, in a min-heap of primitive arrays, so a scan that finds far more pairs than it can show only holds its
+ * best ones. Arrays grow as pairs are added, so an unbounded collector costs no more than the pairs it holds.
+ * <p>
+ * Not thread safe. Each worker collects into its own, and they are merged when the scan is finished.
+ */
+class TopPairs {
+
+    private static final int INITIAL_SIZE = 64;
+
+    private final int capacity;
+
+    private int[] from = new int[0], to = new int[0];
+    private double[] similarity = new double[0];
+    private int size = 0;
+
+
+    /**
+     * @param capacity Maximum number of pairs to keep. 0 or less to keep every pair.
+     */
+    TopPairs(int capacity) {
+        this.capacity = capacity > 0 ? capacity : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Adds a pair, if there is room for it or it is more similar than the least similar pair kept.
+     *
+     * @param i          Index of the compareFrom item.
+     * @param j          Index of the compareTo item.
+     * @param similarity Similarity of the pair.
+     * @return True if the pair was kept.
+     */
+    boolean add(int i, int j, double similarity) {
+        if (size < capacity) {
+            if (size == from.length) grow();
+            set(size, i, j, similarity);
+            siftUp(size++);
+            return true;
+        } else if (similarity > this.similarity[0]) {
+            set(0, i, j, similarity);
+            siftDown(0, size);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sorts the pairs kept, most similar first. No pairs may be added afterwards.
+     */
+    void sort() {
+        // Heap sort: moving the least similar pair to the end each time leaves the most similar pairs at the front
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    /**
+     * @return Number of pairs kept.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param k Index of the pair.
+     * @return Index of the compareFrom item of the pair.
+     */
+    int getFrom(int k) {
+        return from[k];
+    }
+
+    /**
+     * @param k Index of the pair.
+     * @return Index of the compareTo item of the pair.
+     */
+    int getTo(int k) {
+        return to[k];
+    }
+
+    /**
+     * @param k Index of the pair.
+     * @return Similarity of the pair.
+     */
+    double getSimilarity(int k) {
+        return similarity[k];
+    }
+
+    private void grow() {
+        final int length = (int) Math.min(capacity, Math.max(INITIAL_SIZE, from.length * 2L));
+        from = Arrays.copyOf(from, length);
+        to = Arrays.copyOf(to, length);
+        similarity = Arrays.copyOf(similarity, length);
+    }
+
+    private void set(int k, int i, int j, double s) {
+        from[k] = i;
+        to[k] = j;
+        similarity[k] = s;
+    }
+
+    private void swap(int a, int b) {
+        final int i = from[a], j = to[a];
+        final double s = similarity[a];
+        set(a, from[b], to[b], similarity[b]);
+        set(b, i, j, s);
+    }
+
+    private void siftUp(int k) {
+        while (k > 0) {
+            final int parent = (k - 1) >>> 1;
+            if (similarity[parent] <= similarity[k]) break;
+            swap(parent, k);
+            k = parent;
+        }
+    }
+
+    private void siftDown(int k, int end) {
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= end) break;
+            if (child + 1 < end && similarity[child + 1] < similarity[child]) child++;
+            if (similarity[k] <= similarity[child]) break;
+            swap(k, child);
+            k = child;
+        }
+    }
+
+}
@@ -111,8 +111,10 @@ public abstract class Item implements Comparable<Item> {
         tags.add(t);
         if (!isInvalidated()) {
             t.incrementFrequency();
+            t.addItemID(id);
 
             if (hasDatabase()) menagerie.getDatabaseManager().tagItemAsync(id, t.getId());
+            if (menagerie != null) menagerie.itemTagsChanged(this, t, true);
         }
 
         return true;
@@ -130,8 +132,10 @@ public abstract class Item implements Comparable<Item> {
         tags.remove(t);
         if (!isInvalidated()) {
             t.decrementFrequency();
+            t.removeItemID(id);
 
             if (hasDatabase()) menagerie.getDatabaseManager().untagItemAsync(id, t.getId());
+            if (menagerie != null) menagerie.itemTagsChanged(this, t, false);
         }
 
         return true;
@@ -167,7 +171,10 @@ public abstract class Item implements Comparable<Item> {
 
         menagerie.itemRemoved(this);
         if (hasDatabase()) getDatabase().removeItemAsync(getId());
-        getTags().forEach(Tag::decrementFrequency);
+        for (Tag t : getTags()) {
+            t.decrementFrequency();
+            t.removeItemID(id);
+        }
         invalidate();
 
         return true;
@@ -0,0 +1,163 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Set of item IDs that adapts to its density. Most tags are on few items, so IDs are kept in a sorted array while the set is
+ * sparse, and only moved into a bitmap once the array would be larger than the bitmap. A bitmap sized to the highest
+ * item ID costs the same for a tag on one item as for a tag on every item.
+ * <p>
+ * Not thread safe.
+ */
+class ItemIDSet {
+
+    private static final int INITIAL_SIZE = 4;
+
+    private int[] sorted = new int[0];
+    private BitSet bits = null;
+    private int size = 0;
+
+
+    /**
+     * @param id ID to add. Must not be negative.
+     * @return True if the ID was added, false if it was already in this set.
+     */
+    boolean add(int id) {
+        if (bits != null) {
+            if (bits.get(id)) return false;
+            bits.set(id);
+            size++;
+            return true;
+        }
+
+        // IDs are mostly added in increasing order, so check the end first
+        int index = size == 0 || sorted[size - 1] < id ? -size - 1 : Arrays.binarySearch(sorted, 0, size, id);
+        if (index >= 0) return false;
+        index = -index - 1;
+
+        if (size == sorted.length) {
+            if (isDense(size + 1, Math.max(id, sorted.length == 0 ? 0 : sorted[size - 1]))) {
+                toBitmap();
+                return add(id);
+            }
+            sorted = Arrays.copyOf(sorted, Math.max(INITIAL_SIZE, size * 2));
+        }
+        System.arraycopy(sorted, index, sorted, index + 1, size - index);
+        sorted[index] = id;
+        size++;
+        return true;
+    }
+
+    /**
+     * @param id ID to remove.
+     * @return True if the ID was removed, false if it wasn't in this set.
+     */
+    boolean remove(int id) {
+        if (bits != null) {
+            if (id < 0 || !bits.get(id)) return false;
+            bits.clear(id);
+            size--;
+            // Go back to an array once well below the density the bitmap was made at, so sets don't flip back and forth
+            if (size * 2 < bits.length() / Integer.SIZE) toArray();
+            return true;
+        }
+
+        final int index = Arrays.binarySearch(sorted, 0, size, id);
+        if (index < 0) return false;
+        System.arraycopy(sorted, index + 1, sorted, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * @param id ID to check.
+     * @return True if the ID is in this set.
+     */
+    boolean contains(int id) {
+        if (bits != null) return id >= 0 && bits.get(id);
+        return Arrays.binarySearch(sorted, 0, size, id) >= 0;
+    }
+
+    /**
+     * @return Number of IDs in this set.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return True if the IDs are kept in a bitmap.
+     */
+    boolean isBitmap() {
+        return bits != null;
+    }
+
+    /**
+     * @return A new bitmap of the IDs in this set.
+     */
+    BitSet toBitSet() {
+        if (bits != null) return (BitSet) bits.clone();
+
+        BitSet result = new BitSet(size == 0 ? 0 : sorted[size - 1] + 1);
+        orInto(result);
+        return result;
+    }
+
+    /**
+     * Adds every ID in this set to a bitmap.
+     *
+     * @param ids Bitmap to add to.
+     */
+    void orInto(BitSet ids) {
+        if (bits != null) {
+            ids.or(bits);
+        } else {
+            for (int i = 0; i < size; i++) ids.set(sorted[i]);
+        }
+    }
+
+    /**
+     * @return True if a set of this many IDs up to the highest ID takes less memory as a bitmap than as an array.
+     */
+    private static boolean isDense(int size, int highest) {
+        return (long) size * Integer.SIZE > highest + 1L;
+    }
+
+    private void toBitmap() {
+        bits = new BitSet(size == 0 ? 0 : sorted[size - 1] + 1);
+        for (int i = 0; i < size; i++) bits.set(sorted[i]);
+        sorted = null;
+    }
+
+    private void toArray() {
+        sorted = new int[Math.max(INITIAL_SIZE, size)];
+        int i = 0;
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) sorted[i++] = id;
+        bits = null;
+    }
+
+}
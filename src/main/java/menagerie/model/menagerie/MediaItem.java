@@ -33,6 +33,7 @@ import menagerie.model.menagerie.histogram.HistogramReadException;
 import menagerie.model.menagerie.histogram.ImageHistogram;
 import menagerie.util.Filters;
 import menagerie.util.MD5Hasher;
+import menagerie.util.PerceptualHasher;
 
 import java.io.File;
 import java.io.IOException;
@@ -58,9 +59,11 @@ public class MediaItem extends Item {
     private final ObjectProperty<File> file = new SimpleObjectProperty<>();
     private final StringProperty md5 = new SimpleStringProperty();
     private final ObjectProperty<ImageHistogram> histogram = new SimpleObjectProperty<>();
+    private final ObjectProperty<Long> perceptualHash = new SimpleObjectProperty<>();
 
     private SoftReference<Thumbnail> thumbnail;
     private WeakReference<Image> image;
+    private String absolutePath;
 
     private final ObjectProperty<GroupItem> group = new SimpleObjectProperty<>();
     private final IntegerProperty pageIndex = new SimpleIntegerProperty();
@@ -79,10 +82,28 @@ public class MediaItem extends Item {
      * @param histogram    Color histogram of the image. (If the media is an image)
      */
     public MediaItem(Menagerie menagerie, int id, long dateAdded, int pageIndex, boolean hasNoSimilar, GroupItem group, File file, String md5, ImageHistogram histogram) {
+        this(menagerie, id, dateAdded, pageIndex, hasNoSimilar, group, file, md5, histogram, null);
+    }
+
+    /**
+     * @param menagerie      Menagerie this item belongs to.
+     * @param id             Unique ID of this item.
+     * @param dateAdded      Date this item was added.
+     * @param pageIndex      Index of this item within its parent group.
+     * @param hasNoSimilar   This item has no similar items with the weakest confidence.
+     * @param group          Parent group containing this item.
+     * @param file           File this item points to.
+     * @param md5            MD5 hash of the file.
+     * @param histogram      Color histogram of the image. (If the media is an image)
+     * @param perceptualHash Perceptual hash of the image. (If the media is an image)
+     */
+    public MediaItem(Menagerie menagerie, int id, long dateAdded, int pageIndex, boolean hasNoSimilar, GroupItem group, File file, String md5, ImageHistogram histogram, Long perceptualHash) {
         super(menagerie, id, dateAdded);
         this.file.set(file);
+        this.file.addListener((observable, oldValue, newValue) -> absolutePath = null);
         this.md5.set(md5);
         this.histogram.set(histogram);
+        this.perceptualHash.set(perceptualHash);
         this.group.set(group);
         this.pageIndex.set(pageIndex);
         this.noSimilar.set(hasNoSimilar);
@@ -111,6 +132,18 @@ public class MediaItem extends Item {
         return file;
     }
 
+    /**
+     * @return The absolute path of this item's file. Cached until the file changes. Null if there is no file.
+     */
+    public String getAbsolutePath() {
+        String path = absolutePath;
+        if (path == null && getFile() != null) {
+            path = getFile().getAbsolutePath();
+            absolutePath = path;
+        }
+        return path;
+    }
+
     /**
      * Creates a thumbnail if one does not already exist.
      *
@@ -199,6 +232,7 @@ public class MediaItem extends Item {
         try {
             md5.set(HexBin.encode(MD5Hasher.hash(getFile())));
             if (hasDatabase()) menagerie.getDatabaseManager().setMD5Async(getId(), md5.get());
+            if (menagerie != null) menagerie.itemModified(this);
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Failed to hash file: " + getFile(), e);
         }
@@ -216,13 +250,60 @@ public class MediaItem extends Item {
     }
 
     /**
-     * Computes the color histogram of the image. No operation if file is not an image, or is a GIF image.
+     * @return The perceptual hash of the image. Null if this file is not an image, or it hasn't been computed.
+     */
+    public Long getPerceptualHash() {
+        return perceptualHash.get();
+    }
+
+    public ObjectProperty<Long> perceptualHashProperty() {
+        return perceptualHash;
+    }
+
+    /**
+     * @return True if this item is an image that histograms and perceptual hashes can be computed for.
+     */
+    public boolean isHashableImage() {
+        return !getFile().getName().toLowerCase().endsWith(".gif") && Filters.IMAGE_NAME_FILTER.accept(getFile());
+    }
+
+    /**
+     * Computes the perceptual hash of the image. No operation if file is not an image, is a GIF image, or the hash already
+     * exists.
+     *
+     * @return True if the item has a perceptual hash afterwards.
+     */
+    public boolean initializePerceptualHash() {
+        if (perceptualHash.get() == null && isHashableImage()) setPerceptualHash(getImageSynchronously());
+        return perceptualHash.get() != null;
+    }
+
+    private void setPerceptualHash(Image image) {
+        Long hash = PerceptualHasher.hash(image);
+        if (hash == null) {
+            LOGGER.warning("Failed to create perceptual hash for: " + getId());
+            return;
+        }
+
+        perceptualHash.set(hash);
+        if (hasDatabase()) menagerie.getDatabaseManager().setPerceptualHashAsync(getId(), hash);
+    }
+
+    /**
+     * Computes the color histogram and perceptual hash of the image. No operation if file is not an image, or is a GIF
+     * image.
      */
     public boolean initializeHistogram() {
-        if (!getFile().getName().toLowerCase().endsWith(".gif") && Filters.IMAGE_NAME_FILTER.accept(getFile())) {
+        if (isHashableImage()) {
             try {
-                histogram.set(new ImageHistogram(getImageSynchronously()));
+                final Image image = getImageSynchronously();
+                histogram.set(new ImageHistogram(image));
                 if (hasDatabase()) menagerie.getDatabaseManager().setHistAsync(getId(), histogram.get());
+                setPerceptualHash(image);
+                if (menagerie != null) {
+                    menagerie.histogramChanged(this);
+                    menagerie.itemModified(this);
+                }
                 return true;
             } catch (HistogramReadException e) {
                 LOGGER.log(Level.WARNING, "Failed to create histogram for: " + getId(), e);
@@ -303,7 +384,9 @@ public class MediaItem extends Item {
         boolean succeeded = file.get().renameTo(dest);
 
         if (succeeded) {
+            final File oldFile = file.get();
             file.set(dest);
+            if (menagerie != null) menagerie.itemFileMoved(this, oldFile);
 
             if (hasDatabase()) {
                 try {
@@ -331,6 +414,24 @@ public class MediaItem extends Item {
         return 0;
     }
 
+    /**
+     * Compares to another image, giving up early if it is less similar than a minimum. See
+     * {@link ImageHistogram#getSimilarity(ImageHistogram, double)}.
+     *
+     * @param other         Target to compare with.
+     * @param minSimilarity Least similarity of interest.
+     * @return Similarity to another image if at least the minimum, otherwise some value under the minimum.
+     */
+    public double getSimilarityTo(MediaItem other, double minSimilarity) {
+        if (md5.get() != null && md5.get().equals(other.getMD5())) {
+            return 1.0;
+        } else if (histogram.get() != null && other.getHistogram() != null) {
+            return histogram.get().getSimilarity(other.getHistogram(), minSimilarity);
+        }
+
+        return 0;
+    }
+
     /**
      * @param group The new parent group of this item.
      */
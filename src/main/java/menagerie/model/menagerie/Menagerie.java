@@ -27,11 +27,15 @@ package menagerie.model.menagerie;
 import javafx.application.Platform;
 import menagerie.model.SimilarPair;
 import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.menagerie.histogram.HistogramIndex;
+import menagerie.model.menagerie.histogram.ImageHistogram;
 import menagerie.model.search.Search;
+import menagerie.util.FileStatusService;
 
 import java.io.File;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -42,17 +46,40 @@ public class Menagerie {
 
     private static final Logger LOGGER = Logger.getLogger(Menagerie.class.getName());
 
+    /**
+     * Number of item modifications remembered by the modification log.
+     */
+    private static final int MODIFICATION_LOG_SIZE = 8192;
+    /**
+     * Maximum number of tags of the items being tagged used to find related tags.
+     */
+    private static final int MAX_RELATED_CONTEXT = 32;
+
     // ------------------------------ Variables -----------------------------------
 
     private final List<Item> items = new ArrayList<>();
     private final Set<File> fileSet = new HashSet<>();
     private final List<Tag> tags = new ArrayList<>();
-    private final Set<SimilarPair<MediaItem>> nonDuplicates = new HashSet<>();
+    private TagDictionary tagDictionary = null;
+    private final TagCompletionIndex tagCompletionIndex = new TagCompletionIndex();
+    private final TagCooccurrence tagCooccurrence = new TagCooccurrence();
+    private final NonDuplicateSet nonDuplicates = new NonDuplicateSet();
+    private Item[] itemsByID = null;
+    private final BitSet itemIDs = new BitSet();
+    private final SortedRangeIndex dateAddedIndex = new SortedRangeIndex();
+    private final TagCountIndex tagCountIndex = new TagCountIndex();
+    private final PathIndex pathIndex = new PathIndex();
+    private final HistogramIndex<MediaItem> histogramIndex = new HistogramIndex<>();
+    private boolean histogramIndexBuilt = false;
+
+    private final Item[] modificationLog = new Item[MODIFICATION_LOG_SIZE];
+    private long modificationCount = 0;
 
     private int nextItemID;
     private int nextTagID;
 
     private final DatabaseManager databaseManager;
+    private final FileStatusService fileStatusService = new FileStatusService();
 
     private final List<Search> activeSearches = new ArrayList<>();
 
@@ -79,7 +106,11 @@ public class Menagerie {
             if (item instanceof MediaItem) {
                 fileSet.add(((MediaItem) item).getFile());
             }
+            for (Tag tag : item.getTags()) {
+                tag.addItemID(item.getId());
+            }
         }
+        buildItemIDIndex();
     }
 
     /**
@@ -102,6 +133,8 @@ public class Menagerie {
                 getDatabaseManager().deleteTag(t.getId());
             }
         }
+        buildTagDictionary();
+        tagCompletionIndex.invalidate();
     }
 
     /**
@@ -119,6 +152,7 @@ public class Menagerie {
 
         // Add media and commit to database
         items.add(media);
+        indexItem(media);
         fileSet.add(file);
         nextItemID++;
         try {
@@ -169,6 +203,7 @@ public class Menagerie {
 
             nextItemID++;
             items.add(group);
+            indexItem(group);
         }
 
         for (Item item : elements) {
@@ -211,6 +246,8 @@ public class Menagerie {
         nextTagID++;
 
         tags.add(t);
+        getTagDictionary().add(t);
+        tagCompletionIndex.invalidate();
 
         getDatabaseManager().createTagAsync(t.getId(), t.getName());
 
@@ -292,35 +329,206 @@ public class Menagerie {
      * @return Tag with given name, or null if none exist.
      */
     public Tag getTagByName(String name) {
-        name = name.replace(' ', '_');
-        for (Tag t : tags) {
-            if (t.getName().equalsIgnoreCase(name)) return t;
+        return getTagDictionary().get(name.replace(' ', '_'));
+    }
+
+    /**
+     * Finds all tags whose names match a wildcard pattern, where '*' matches any sequence of characters.
+     * <p>
+     * Case insensitive.
+     *
+     * @param pattern Pattern to match.
+     * @return Matching tags, in no particular order.
+     */
+    public List<Tag> getTagsMatching(String pattern) {
+        return getTagDictionary().find(pattern.replace(' ', '_'));
+    }
+
+    /**
+     * Finds the most frequently used tags whose names start with a prefix, for completing partially typed tag names.
+     * <p>
+     * Case insensitive.
+     *
+     * @param prefix Prefix of the tag names.
+     * @param limit  Maximum number of tags to find.
+     * @return Matching tags, most frequently used first.
+     */
+    public List<Tag> getTagsByPrefix(String prefix, int limit) {
+        synchronized (tagCompletionIndex) {
+            if (!tagCompletionIndex.isValid() || tagCompletionIndex.size() != tags.size()) tagCompletionIndex.build(tags);
+            return tagCompletionIndex.find(prefix.toLowerCase(), limit);
         }
-        return null;
     }
 
-    public Set<SimilarPair<MediaItem>> getNonDuplicates() {
+    /**
+     * Suggests tags for a partially typed tag name. Tags starting with the text come first, followed by tags that start
+     * with something within a few typos of the text.
+     * <p>
+     * Case insensitive.
+     *
+     * @param text  Partially typed tag name.
+     * @param limit Maximum number of tags to suggest.
+     * @return Suggested tags, closest first, then most frequently used first.
+     */
+    public List<Tag> getTagSuggestions(String text, int limit) {
+        synchronized (tagCompletionIndex) {
+            if (!tagCompletionIndex.isValid() || tagCompletionIndex.size() != tags.size()) tagCompletionIndex.build(tags);
+            return tagCompletionIndex.findSimilar(text.toLowerCase(), limit);
+        }
+    }
+
+    /**
+     * Finds tags that are often used together with the tags of some items, for suggesting tags to add to them. Tags that
+     * every one of the items already has are not suggested.
+     * <p>
+     * Co-occurrence counts are built in the background on the first call, and nothing is found until they are ready.
+     *
+     * @param items  Items whose tags to find related tags for.
+     * @param prefix Prefix the names of related tags must start with. Case insensitive.
+     * @param limit  Maximum number of tags to find.
+     * @return Related tags, most related first.
+     */
+    public List<Tag> getRelatedTags(Collection<? extends Item> items, String prefix, int limit) {
+        if (!tagCooccurrence.isBuilt()) {
+            tagCooccurrence.buildAsync(this.items);
+            return new ArrayList<>();
+        }
+
+        Map<Tag, Integer> context = new HashMap<>();
+        for (Item item : items) {
+            for (Tag tag : item.getTags()) {
+                context.merge(tag, 1, Integer::sum);
+            }
+        }
+
+        final String lowerPrefix = prefix.toLowerCase();
+        final int itemCount = items.size();
+        Predicate<Tag> filter = tag -> tag.getName().startsWith(lowerPrefix) && context.getOrDefault(tag, 0) < itemCount;
+
+        // Only the most common tags of large selections are worth the lookup
+        if (context.size() > MAX_RELATED_CONTEXT) {
+            List<Map.Entry<Tag, Integer>> entries = new ArrayList<>(context.entrySet());
+            entries.sort((a, b) -> b.getValue() - a.getValue());
+            Map<Tag, Integer> common = new HashMap<>();
+            entries.subList(0, MAX_RELATED_CONTEXT).forEach(entry -> common.put(entry.getKey(), entry.getValue()));
+            return tagCooccurrence.findRelated(common, filter, limit);
+        }
+
+        return tagCooccurrence.findRelated(context, filter, limit);
+    }
+
+    /**
+     * Called by tags when the number of items tagged with them changes.
+     *
+     * @param tag Tag whose frequency changed.
+     */
+    void tagFrequencyChanged(Tag tag) {
+        tagCompletionIndex.frequencyChanged(tag);
+    }
+
+    /**
+     * @return The tag dictionary, rebuilt if tags were added to the tag list directly (e.g. while loading from the database).
+     */
+    private synchronized TagDictionary getTagDictionary() {
+        if (tagDictionary == null || tagDictionary.size() != tags.size()) buildTagDictionary();
+        return tagDictionary;
+    }
+
+    /**
+     * Rebuilds the tag dictionary from the tag list.
+     */
+    private synchronized void buildTagDictionary() {
+        if (tagDictionary == null) tagDictionary = new TagDictionary();
+        tagDictionary.clear();
+        tags.forEach(tagDictionary::add);
+    }
+
+    /**
+     * Finds media items with histograms similar to a histogram, without comparing against every item. The histogram index
+     * is built on the first call.
+     *
+     * @param histogram     Histogram to compare with.
+     * @param minSimilarity Minimum similarity of histograms [0.0-1.0]. See {@link ImageHistogram#getSimilarity(ImageHistogram)}.
+     * @return Items whose histograms are at least as similar, in no particular order.
+     */
+    public List<MediaItem> getItemsWithSimilarHistogram(ImageHistogram histogram, double minSimilarity) {
+        List<MediaItem> candidates;
+        synchronized (histogramIndex) {
+            if (!histogramIndexBuilt) buildHistogramIndex();
+            // Candidates are found in single precision, so search slightly further and check them exactly
+            candidates = histogramIndex.findWithin(histogram, (float) ((1 - minSimilarity) * 8) + 1e-3f);
+        }
+
+        candidates.removeIf(item -> item.getHistogram() == null || histogram.getSimilarity(item.getHistogram(), minSimilarity) < minSimilarity);
+        return candidates;
+    }
+
+    /**
+     * Builds the histogram index from the histograms of all media items.
+     */
+    private void buildHistogramIndex() {
+        Map<MediaItem, ImageHistogram> histograms = new HashMap<>();
+        for (Item item : new ArrayList<>(items)) {
+            if (item instanceof MediaItem && ((MediaItem) item).getHistogram() != null) {
+                histograms.put((MediaItem) item, ((MediaItem) item).getHistogram());
+            }
+        }
+        histogramIndex.build(histograms);
+        histogramIndexBuilt = true;
+    }
+
+    /**
+     * Called by media items when their histogram changes.
+     *
+     * @param item Item whose histogram changed.
+     */
+    void histogramChanged(MediaItem item) {
+        databaseManager.invalidateSimilarPairsAsync(item.getId());
+
+        synchronized (histogramIndex) {
+            if (!histogramIndexBuilt) return;
+
+            if (item.getHistogram() == null) {
+                histogramIndex.remove(item);
+            } else {
+                histogramIndex.add(item, item.getHistogram());
+            }
+        }
+    }
+
+    public NonDuplicateSet getNonDuplicates() {
         return nonDuplicates;
     }
 
     public boolean hasNonDuplicate(SimilarPair<MediaItem> pair) {
-        return nonDuplicates.contains(pair);
+        return hasNonDuplicate(pair.getObject1().getId(), pair.getObject2().getId());
+    }
+
+    /**
+     * @param id1 ID of the first item.
+     * @param id2 ID of the second item.
+     * @return True if the items are marked as not duplicates of each other.
+     */
+    public boolean hasNonDuplicate(int id1, int id2) {
+        return nonDuplicates.contains(id1, id2);
     }
 
     public boolean addNonDuplicate(SimilarPair<MediaItem> pair) {
-        if (nonDuplicates.contains(pair)) return false;
+        final int id1 = pair.getObject1().getId(), id2 = pair.getObject2().getId();
+        if (!nonDuplicates.add(id1, id2)) return false;
 
-        databaseManager.addNonDuplicateAsync(pair.getObject1().getId(), pair.getObject2().getId());
+        databaseManager.addNonDuplicateAsync(id1, id2);
 
-        return nonDuplicates.add(pair);
+        return true;
     }
 
     public boolean removeNonDuplicate(SimilarPair<MediaItem> pair) {
-        if (!nonDuplicates.contains(pair)) return false;
+        final int id1 = pair.getObject1().getId(), id2 = pair.getObject2().getId();
+        if (!nonDuplicates.remove(id1, id2)) return false;
 
-        databaseManager.removeNonDuplicateAsync(pair.getObject1().getId(), pair.getObject2().getId());
+        databaseManager.removeNonDuplicateAsync(id1, id2);
 
-        return nonDuplicates.remove(pair);
+        return true;
     }
 
     /**
@@ -329,6 +537,7 @@ public class Menagerie {
      * @param items Items to check.
      */
     public void refreshInSearches(List<Item> items) {
+        items.forEach(this::itemModified);
         activeSearches.forEach(search -> Platform.runLater(() -> search.refreshSearch(items)));
     }
 
@@ -348,12 +557,167 @@ public class Menagerie {
         return items;
     }
 
-    public Item getItemByID(int id) {
+    /**
+     * Finds an item by its ID in constant time.
+     *
+     * @param id ID of the item.
+     * @return The item with the given ID, or null if no such item exists.
+     */
+    public synchronized Item getItemByID(int id) {
+        if (itemsByID == null) buildItemIDIndex();
+        if (id < 0 || id >= itemsByID.length) return null;
+
+        return itemsByID[id];
+    }
+
+    /**
+     * Rebuilds the ID lookup table from the item list.
+     */
+    private synchronized void buildItemIDIndex() {
+        int max = 0;
         for (Item item : items) {
-            if (item.getId() == id) return item;
+            max = Math.max(max, item.getId());
         }
 
-        return null;
+        itemsByID = new Item[max + 1];
+        itemIDs.clear();
+        tagCountIndex.clear();
+        long[] dates = new long[items.size()];
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            itemsByID[item.getId()] = item;
+            itemIDs.set(item.getId());
+            tagCountIndex.set(item.getId(), item.getTags().size());
+            if (item instanceof MediaItem && ((MediaItem) item).getFile() != null) pathIndex.add(item.getId(), ((MediaItem) item).getAbsolutePath());
+            dates[i] = item.getDateAdded();
+            ids[i] = item.getId();
+        }
+        dateAddedIndex.build(dates, ids, items.size());
+    }
+
+    /**
+     * Adds an item to the ID lookup table, growing it if necessary.
+     *
+     * @param item Item to index.
+     */
+    private synchronized void indexItem(Item item) {
+        if (itemsByID == null) {
+            buildItemIDIndex();
+            return;
+        }
+
+        if (item.getId() >= itemsByID.length) {
+            itemsByID = Arrays.copyOf(itemsByID, Math.max(item.getId() + 1, itemsByID.length * 2));
+        }
+        itemsByID[item.getId()] = item;
+        itemIDs.set(item.getId());
+        dateAddedIndex.add(item.getDateAdded(), item.getId());
+        tagCountIndex.set(item.getId(), item.getTags().size());
+        if (item instanceof MediaItem && ((MediaItem) item).getFile() != null) pathIndex.add(item.getId(), ((MediaItem) item).getAbsolutePath());
+    }
+
+    /**
+     * @return IDs of all items in this Menagerie. A copy of the backing set.
+     */
+    public synchronized BitSet getItemIDs() {
+        if (itemsByID == null) buildItemIDIndex();
+        return (BitSet) itemIDs.clone();
+    }
+
+    /**
+     * Finds items by the date they were added, using a sorted index.
+     *
+     * @param min Earliest time, in milliseconds since epoch, inclusive.
+     * @param max Latest time, in milliseconds since epoch, inclusive.
+     * @return IDs of all items added within the range.
+     */
+    public BitSet getItemIDsAddedBetween(long min, long max) {
+        return dateAddedIndex.find(min, max);
+    }
+
+    /**
+     * Finds items by the number of tags they have.
+     *
+     * @param min Minimum number of tags, inclusive.
+     * @param max Maximum number of tags, inclusive.
+     * @return IDs of all items with a tag count within the range.
+     */
+    public BitSet getItemIDsWithTagCount(int min, int max) {
+        return tagCountIndex.find(min, max);
+    }
+
+    /**
+     * Finds media items by their file path, using a trigram index.
+     *
+     * @param text Text to find in the absolute path of the file. Case sensitive.
+     * @return IDs of all media items with paths containing the text.
+     */
+    public BitSet getItemIDsWithPathContaining(String text) {
+        return pathIndex.find(text);
+    }
+
+    /**
+     * @return Number of item modifications that have occurred since this Menagerie was loaded. Only ever increases.
+     */
+    public synchronized long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Finds the items that have been modified since a given point in time.
+     *
+     * @param count Modification count to look back to.
+     * @return Items modified since the count, possibly containing repeats. Null if the modification log no longer reaches back that far.
+     */
+    public synchronized List<Item> getItemsModifiedSince(long count) {
+        if (count < 0 || modificationCount - count > MODIFICATION_LOG_SIZE) return null;
+
+        List<Item> results = new ArrayList<>();
+        for (long i = count; i < modificationCount; i++) {
+            results.add(modificationLog[(int) (i % MODIFICATION_LOG_SIZE)]);
+        }
+        return results;
+    }
+
+    /**
+     * Called by media items when their file has been moved.
+     *
+     * @param item    Item that was moved.
+     * @param oldFile File the item previously pointed to.
+     */
+    void itemFileMoved(MediaItem item, File oldFile) {
+        fileSet.remove(oldFile);
+        fileSet.add(item.getFile());
+        pathIndex.add(item.getId(), item.getAbsolutePath());
+        itemModified(item);
+    }
+
+    /**
+     * Called by items when tags are added to or removed from them.
+     *
+     * @param item  Item whose tags changed.
+     * @param tag   Tag that was added or removed.
+     * @param added True if the tag was added, false if it was removed.
+     */
+    void itemTagsChanged(Item item, Tag tag, boolean added) {
+        tagCountIndex.set(item.getId(), item.getTags().size());
+        if (added) {
+            tagCooccurrence.tagAdded(item, tag);
+        } else {
+            tagCooccurrence.tagRemoved(item, tag);
+        }
+        itemModified(item);
+    }
+
+    /**
+     * Records a modification to an item that may change which searches it is valid in.
+     *
+     * @param item Item that was modified.
+     */
+    synchronized void itemModified(Item item) {
+        modificationLog[(int) (modificationCount % MODIFICATION_LOG_SIZE)] = item;
+        modificationCount++;
     }
 
     /**
@@ -363,6 +727,13 @@ public class Menagerie {
         return databaseManager;
     }
 
+    /**
+     * @return Cache of file statuses for the files of items in this Menagerie.
+     */
+    public FileStatusService getFileStatusService() {
+        return fileStatusService;
+    }
+
     /**
      * @param file File to search for.
      * @return True if this file has already been imported into this Menagerie.
@@ -398,6 +769,17 @@ public class Menagerie {
      */
     void itemRemoved(Item item) {
         if (item instanceof MediaItem) fileSet.remove(((MediaItem) item).getFile());
+        tagCooccurrence.itemRemoved(item);
+        if (item instanceof MediaItem) histogramIndex.remove((MediaItem) item);
+        synchronized (this) {
+            if (itemsByID != null && item.getId() < itemsByID.length && itemsByID[item.getId()] == item) {
+                itemsByID[item.getId()] = null;
+                itemIDs.clear(item.getId());
+                dateAddedIndex.remove(item.getId());
+                tagCountIndex.remove(item.getId());
+                pathIndex.remove(item.getId());
+            }
+        }
     }
 
 }
@@ -0,0 +1,191 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Set of pairs of item IDs that are marked as not duplicates of each other.
+ * <p>
+ * Duplicate finders look up every similar pair they find from many threads at once, so pairs are packed into longs (lower
+ * ID in the high 32 bits, higher ID in the low 32 bits) and kept in an open addressing table with linear probing. Lookups
+ * are optimistic reads that only take the lock if a write happened at the same time.
+ */
+public class NonDuplicateSet {
+
+    /**
+     * Marks an empty slot. Never a pair, because an item can't be paired with itself.
+     */
+    private static final long EMPTY = 0;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] table = new long[16];
+    private int size = 0;
+
+
+    /**
+     * @param id1 ID of the first item.
+     * @param id2 ID of the second item.
+     * @return True if the pair is in this set. Order of the IDs doesn't matter.
+     */
+    public boolean contains(int id1, int id2) {
+        if (id1 == id2) return false;
+        final long key = key(id1, id2);
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            final boolean found = find(table, key) >= 0;
+            if (lock.validate(stamp)) return found;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return find(table, key) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @param id1 ID of the first item.
+     * @param id2 ID of the second item.
+     * @return True if the pair was added, false if it was already in this set.
+     * @throws IllegalArgumentException When both IDs are the same.
+     */
+    public boolean add(int id1, int id2) {
+        if (id1 == id2) throw new IllegalArgumentException("IDs must not be equal: " + id1);
+        final long key = key(id1, id2);
+
+        final long stamp = lock.writeLock();
+        try {
+            if (find(table, key) >= 0) return false;
+
+            if ((size + 1) * 2 > table.length) grow();
+            insert(table, key);
+            size++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param id1 ID of the first item.
+     * @param id2 ID of the second item.
+     * @return True if the pair was removed, false if it wasn't in this set.
+     */
+    public boolean remove(int id1, int id2) {
+        if (id1 == id2) return false;
+        final long key = key(id1, id2);
+
+        final long stamp = lock.writeLock();
+        try {
+            int i = find(table, key);
+            if (i < 0) return false;
+
+            // Shift later entries of the probe run back into the hole, so no tombstones are needed
+            final int mask = table.length - 1;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (table[j] == EMPTY) break;
+
+                final int home = slot(table[j], mask);
+                final boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!stays) {
+                    table[i] = table[j];
+                    i = j;
+                }
+            }
+            table[i] = EMPTY;
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return Number of pairs in this set.
+     */
+    public int size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Doubles the table. Must be called while holding the write lock.
+     */
+    private void grow() {
+        // Fill a new table so optimistic readers of the old one never see it half moved
+        final long[] grown = new long[table.length * 2];
+        for (long key : table) {
+            if (key != EMPTY) insert(grown, key);
+        }
+        table = grown;
+    }
+
+    private static void insert(long[] table, long key) {
+        final int mask = table.length - 1;
+        int i = slot(key, mask);
+        while (table[i] != EMPTY) i = (i + 1) & mask;
+        table[i] = key;
+    }
+
+    /**
+     * @return Slot of the key in the table, or -1 if it isn't in the table.
+     */
+    private static int find(long[] table, long key) {
+        final int mask = table.length - 1;
+        int i = slot(key, mask);
+        // Bounded by the table length, as optimistic reads may race a removal
+        for (int n = 0; n < table.length; n++) {
+            final long k = table[i];
+            if (k == key) return i;
+            if (k == EMPTY) return -1;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int slot(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    /**
+     * @return Pair of IDs packed into a long, the same for either order of the IDs.
+     */
+    static long key(int id1, int id2) {
+        final int low = Math.min(id1, id2), high = Math.max(id1, id2);
+        return (long) low << 32 | (high & 0xFFFFFFFFL);
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.menagerie;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Substring index over the absolute file paths of items.
+ * <p>
+ * Paths are split into their directory prefix and file name. File names are indexed by trigram, while directory
+ * prefixes are few enough to be scanned directly. Candidates from the trigram index are verified exactly, so results
+ * are identical to a case sensitive {@link String#contains(CharSequence)} on the whole path.
+ * <p>
+ * Removed and moved items leave stale entries behind that are ignored during lookups, and the index is rebuilt once
+ * stale entries outnumber live ones.
+ */
+class PathIndex {
+
+    private final List<String> directories = new ArrayList<>();
+    private final Map<String, Integer> directoryIDs = new HashMap<>();
+    private final List<IntList> directoryItems = new ArrayList<>();
+
+    private final Map<Long, IntList> nameTrigrams = new HashMap<>();
+
+    private int[] directoryOf = new int[0];
+    private String[] nameOf = new String[0];
+
+    private int liveCount = 0;
+    private int staleCount = 0;
+
+
+    /**
+     * Adds or replaces the path of an item.
+     *
+     * @param id   ID of the item.
+     * @param path Absolute path of the item's file.
+     */
+    synchronized void add(int id, String path) {
+        remove(id);
+
+        if (id >= nameOf.length) {
+            int oldLength = nameOf.length;
+            nameOf = Arrays.copyOf(nameOf, Math.max(id + 1, nameOf.length * 2));
+            directoryOf = Arrays.copyOf(directoryOf, nameOf.length);
+            Arrays.fill(directoryOf, oldLength, directoryOf.length, -1);
+        }
+
+        final int split = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar)) + 1;
+        final String directory = path.substring(0, split);
+        final String name = path.substring(split);
+
+        Integer dir = directoryIDs.get(directory);
+        if (dir == null) {
+            dir = directories.size();
+            directories.add(directory);
+            directoryIDs.put(directory, dir);
+            directoryItems.add(new IntList());
+        }
+        directoryItems.get(dir).add(id);
+        directoryOf[id] = dir;
+        nameOf[id] = name;
+
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            if (trigrams.add(trigram(name, i))) {
+                nameTrigrams.computeIfAbsent(trigram(name, i), k -> new IntList()).add(id);
+            }
+        }
+
+        liveCount++;
+    }
+
+    /**
+     * Removes the path of an item.
+     *
+     * @param id ID of the item.
+     */
+    synchronized void remove(int id) {
+        if (id >= nameOf.length || nameOf[id] == null) return;
+
+        nameOf[id] = null;
+        directoryOf[id] = -1;
+        liveCount--;
+        staleCount++;
+
+        if (staleCount > liveCount && staleCount > 1024) rebuild();
+    }
+
+    /**
+     * Finds all items whose path contains a string.
+     *
+     * @param text String to find. Case sensitive.
+     * @return IDs of all items with paths containing the text.
+     */
+    synchronized BitSet find(String text) {
+        BitSet result = new BitSet();
+        if (text.isEmpty()) {
+            for (int id = 0; id < nameOf.length; id++) {
+                if (nameOf[id] != null) result.set(id);
+            }
+            return result;
+        }
+
+        final int lastSeparator = Math.max(text.lastIndexOf('/'), text.lastIndexOf(File.separatorChar));
+        final boolean spansName = lastSeparator >= 0 && lastSeparator < text.length() - 1;
+        final String directorySuffix = spansName ? text.substring(0, lastSeparator + 1) : null;
+        final String namePrefix = spansName ? text.substring(lastSeparator + 1) : null;
+
+        // Text is entirely inside the file name
+        if (lastSeparator < 0) findInNames(text, result);
+
+        for (int dir = 0; dir < directories.size(); dir++) {
+            final String directory = directories.get(dir);
+            if (directory.contains(text)) {
+                // Text is entirely inside the directory
+                addDirectory(dir, null, result);
+            } else if (spansName && directory.endsWith(directorySuffix)) {
+                // Text spans the directory and the start of the file name
+                addDirectory(dir, namePrefix, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds items whose file name contains a string.
+     *
+     * @param text   Text containing no path separators.
+     * @param result Set to add matching IDs to.
+     */
+    private void findInNames(String text, BitSet result) {
+        if (text.length() < 3) {
+            for (int id = 0; id < nameOf.length; id++) {
+                if (nameOf[id] != null && nameOf[id].contains(text)) result.set(id);
+            }
+            return;
+        }
+
+        // Intersect the posting lists of the rarest trigrams to get candidates
+        List<IntList> postings = new ArrayList<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            IntList list = nameTrigrams.get(trigram(text, i));
+            if (list == null) return;
+            postings.add(list);
+        }
+        postings.sort(Comparator.comparingInt(list -> list.size));
+
+        BitSet candidates = postings.get(0).toBitSet();
+        for (int i = 1; i < postings.size() && i < 3; i++) {
+            candidates.and(postings.get(i).toBitSet());
+        }
+
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            if (nameOf[id] != null && nameOf[id].contains(text)) result.set(id);
+        }
+    }
+
+    /**
+     * Adds the items in a directory to a result set.
+     *
+     * @param dir        Directory index.
+     * @param namePrefix Prefix that file names must start with, or null to include every item in the directory.
+     * @param result     Set to add matching IDs to.
+     */
+    private void addDirectory(int dir, String namePrefix, BitSet result) {
+        IntList items = directoryItems.get(dir);
+        for (int i = 0; i < items.size; i++) {
+            final int id = items.values[i];
+            if (directoryOf[id] == dir && (namePrefix == null || nameOf[id].startsWith(namePrefix))) result.set(id);
+        }
+    }
+
+    /**
+     * Rebuilds the index without any stale entries.
+     */
+    private void rebuild() {
+        String[] names = nameOf;
+        int[] dirs = directoryOf;
+        List<String> oldDirectories = new ArrayList<>(directories);
+
+        directories.clear();
+        directoryIDs.clear();
+        directoryItems.clear();
+        nameTrigrams.clear();
+        nameOf = new String[0];
+        directoryOf = new int[0];
+        liveCount = 0;
+        staleCount = 0;
+
+        for (int id = 0; id < names.length; id++) {
+            if (names[id] != null) add(id, oldDirectories.get(dirs[id]) + names[id]);
+        }
+    }
+
+    private static long trigram(String str, int i) {
+        return ((long) str.charAt(i) << 32) | ((long) str.charAt(i + 1) << 16) | str.charAt(i + 2);
+    }
+
+    /**
+     * Minimal growable list of primitive ints.
+     */
+    private static class IntList {
+
+        private int[] values = new int[4];
+        private int size = 0;
+
+
+        private void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        private BitSet toBitSet() {
+            BitSet set = new BitSet();
+            for (int i = 0; i < size; i++) {
+                set.set(values[i]);
+            }
+            return set;
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.menagerie;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Index of item IDs sorted by an immutable long key, such as the date an item was added. Range lookups are resolved by
+ * binary search.
+ * <p>
+ * Removed IDs are only marked as removed, and are compacted out once they make up half of the index.
+ */
+class SortedRangeIndex {
+
+    private long[] keys = new long[16];
+    private int[] ids = new int[16];
+    private int size = 0;
+
+    private final BitSet removed = new BitSet();
+    private int removedCount = 0;
+
+
+    /**
+     * Replaces the contents of this index.
+     *
+     * @param newKeys Keys to index. Parallel with IDs.
+     * @param newIDs  IDs to index.
+     * @param count   Number of entries in the arrays to use.
+     */
+    synchronized void build(long[] newKeys, int[] newIDs, int count) {
+        keys = Arrays.copyOf(newKeys, Math.max(16, count));
+        ids = Arrays.copyOf(newIDs, Math.max(16, count));
+        size = count;
+        removed.clear();
+        removedCount = 0;
+
+        sort(keys, ids, new long[count], new int[count], 0, count);
+    }
+
+    /**
+     * Adds an ID to this index. Cheapest when the key is greater than or equal to every other key.
+     *
+     * @param key Key of the ID.
+     * @param id  ID to add.
+     */
+    synchronized void add(long key, int id) {
+        if (removed.get(id)) compact();
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+
+        int i = upperBound(key);
+        if (i < size) {
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+        }
+        keys[i] = key;
+        ids[i] = id;
+        size++;
+    }
+
+    /**
+     * Removes an ID from this index.
+     *
+     * @param id ID to remove.
+     */
+    synchronized void remove(int id) {
+        if (removed.get(id)) return;
+
+        removed.set(id);
+        removedCount++;
+        if (removedCount > size / 2) compact();
+    }
+
+    /**
+     * Finds all IDs with keys inside a range.
+     *
+     * @param min Minimum key, inclusive.
+     * @param max Maximum key, inclusive.
+     * @return IDs with keys in the range.
+     */
+    synchronized BitSet find(long min, long max) {
+        BitSet result = new BitSet();
+        if (min > max) return result;
+
+        for (int i = lowerBound(min); i < size && keys[i] <= max; i++) {
+            result.set(ids[i]);
+        }
+        result.andNot(removed);
+
+        return result;
+    }
+
+    /**
+     * @param key Key to search for.
+     * @return Index of the first entry with a key greater than or equal to the given key.
+     */
+    private int lowerBound(long key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @param key Key to search for.
+     * @return Index of the first entry with a key strictly greater than the given key.
+     */
+    private int upperBound(long key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Drops all removed entries from the backing arrays.
+     */
+    private void compact() {
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removed.get(ids[i])) {
+                keys[j] = keys[i];
+                ids[j] = ids[i];
+                j++;
+            }
+        }
+        size = j;
+        removed.clear();
+        removedCount = 0;
+    }
+
+    /**
+     * Stable merge sort of parallel key and ID arrays, by key.
+     */
+    private static void sort(long[] keys, int[] ids, long[] tempKeys, int[] tempIDs, int from, int to) {
+        if (to - from < 2) return;
+
+        int mid = (from + to) >>> 1;
+        sort(keys, ids, tempKeys, tempIDs, from, mid);
+        sort(keys, ids, tempKeys, tempIDs, mid, to);
+        if (keys[mid - 1] <= keys[mid]) return; // Already in order, common when keys follow IDs
+
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            if (keys[j] < keys[i]) {
+                tempKeys[k] = keys[j];
+                tempIDs[k++] = ids[j++];
+            } else {
+                tempKeys[k] = keys[i];
+                tempIDs[k++] = ids[i++];
+            }
+        }
+        while (i < mid) {
+            tempKeys[k] = keys[i];
+            tempIDs[k++] = ids[i++];
+        }
+        while (j < to) {
+            tempKeys[k] = keys[j];
+            tempIDs[k++] = ids[j++];
+        }
+        System.arraycopy(tempKeys, from, keys, from, to - from);
+        System.arraycopy(tempIDs, from, ids, from, to - from);
+    }
+
+}
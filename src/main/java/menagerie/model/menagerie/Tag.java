@@ -31,6 +31,7 @@ import javafx.beans.property.StringProperty;
 import javafx.scene.paint.Paint;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -53,6 +54,7 @@ public class Tag implements Comparable<Tag> {
     private final StringProperty color = new SimpleStringProperty(null);
 
     private final IntegerProperty frequency = new SimpleIntegerProperty(0);
+    private final ItemIDSet itemIDs = new ItemIDSet();
 
 
     /**
@@ -91,6 +93,38 @@ public class Tag implements Comparable<Tag> {
         return name;
     }
 
+    /**
+     * Checks if this tag's name matches a wildcard pattern, where '*' matches any sequence of characters.
+     *
+     * @param pattern Pattern to match. Expected to be lowercase.
+     * @return True if the whole name matches the pattern.
+     */
+    public boolean matches(String pattern) {
+        int p = 0, n = 0;
+        int star = -1, starMatch = 0;
+
+        while (n < name.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                starMatch = n;
+            } else if (p < pattern.length() && pattern.charAt(p) == name.charAt(n)) {
+                p++;
+                n++;
+            } else if (star >= 0) {
+                // Let the last star consume one more character and retry from there
+                p = star + 1;
+                n = ++starMatch;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+
+        return p == pattern.length();
+    }
+
     /**
      * @return Frequency this tag is used by items.
      */
@@ -107,6 +141,7 @@ public class Tag implements Comparable<Tag> {
      */
     public void incrementFrequency() {
         frequency.set(getFrequency() + 1);
+        if (menagerie != null) menagerie.tagFrequencyChanged(this);
     }
 
     /**
@@ -114,6 +149,41 @@ public class Tag implements Comparable<Tag> {
      */
     void decrementFrequency() {
         frequency.set(getFrequency() - 1);
+        if (menagerie != null) menagerie.tagFrequencyChanged(this);
+    }
+
+    /**
+     * @return IDs of all items tagged with this tag. A copy of the backing set.
+     */
+    public synchronized BitSet getItemIDs() {
+        return itemIDs.toBitSet();
+    }
+
+    /**
+     * Adds the IDs of all items tagged with this tag to a set, without copying the backing set.
+     *
+     * @param ids Set to add IDs to.
+     */
+    public synchronized void unionItemIDs(BitSet ids) {
+        itemIDs.orInto(ids);
+    }
+
+    /**
+     * Records that an item is tagged with this tag.
+     *
+     * @param id ID of the item.
+     */
+    synchronized void addItemID(int id) {
+        itemIDs.add(id);
+    }
+
+    /**
+     * Records that an item is no longer tagged with this tag.
+     *
+     * @param id ID of the item.
+     */
+    synchronized void removeItemID(int id) {
+        itemIDs.remove(id);
     }
 
     /**
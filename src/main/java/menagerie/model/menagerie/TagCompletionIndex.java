@@ -0,0 +1,312 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Index for completing tag names. Tags are sorted by name so every prefix covers a contiguous range, and a segment tree
+ * over that order caches the most frequent tags of each segment, so the most frequent tags with a prefix are merged from
+ * a few cached lists instead of sorting every tag.
+ * <p>
+ * Frequency changes update a single path of the tree. Adding or removing tags invalidates the index, which is rebuilt
+ * by its owner on the next lookup.
+ * <p>
+ * The sorted names also form an implicit trie, which is walked with an edit distance table to find tags starting with
+ * something close to a mistyped prefix. Once every name below a trie node is known to be equally close, that whole range
+ * is answered by the segment tree.
+ */
+class TagCompletionIndex {
+
+    /**
+     * Number of tags cached by each segment, and the maximum number of tags a single lookup can return.
+     */
+    static final int MAX_RESULTS = 16;
+
+    private static final int[] EMPTY = new int[0];
+
+    private Tag[] tags = new Tag[0];
+    private String[] names = new String[0];
+    private int capacity = 1;
+    private int[][] tree = new int[][]{EMPTY, EMPTY};
+    private boolean valid = false;
+
+
+    /**
+     * Rebuilds this index from a set of tags.
+     *
+     * @param all Every tag.
+     */
+    synchronized void build(Collection<Tag> all) {
+        tags = all.toArray(new Tag[0]);
+        Arrays.sort(tags, Comparator.comparing(Tag::getName));
+        names = new String[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            names[i] = tags[i].getName();
+        }
+
+        capacity = 1;
+        while (capacity < tags.length) capacity *= 2;
+        tree = new int[capacity * 2][];
+        for (int i = 0; i < capacity; i++) {
+            tree[capacity + i] = i < tags.length ? new int[]{i} : EMPTY;
+        }
+        for (int node = capacity - 1; node > 0; node--) {
+            tree[node] = merge(tree[node * 2], tree[node * 2 + 1], MAX_RESULTS);
+        }
+
+        valid = true;
+    }
+
+    /**
+     * @return True if this index is up to date with the set of tags.
+     */
+    synchronized boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Marks this index as out of date, e.g. because a tag was created or removed.
+     */
+    synchronized void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * @return Number of tags in this index.
+     */
+    synchronized int size() {
+        return tags.length;
+    }
+
+    /**
+     * Updates the cached ordering after the frequency of a tag has changed.
+     *
+     * @param tag Tag whose frequency changed.
+     */
+    synchronized void frequencyChanged(Tag tag) {
+        if (!valid) return;
+
+        final int i = Arrays.binarySearch(names, tag.getName());
+        if (i < 0 || tags[i] != tag) {
+            valid = false;
+            return;
+        }
+
+        for (int node = (capacity + i) / 2; node > 0; node /= 2) {
+            tree[node] = merge(tree[node * 2], tree[node * 2 + 1], MAX_RESULTS);
+        }
+    }
+
+    /**
+     * Finds the most frequently used tags whose names start with a prefix.
+     *
+     * @param prefix Lowercase prefix.
+     * @param limit  Maximum number of tags to find. At most {@link #MAX_RESULTS}.
+     * @return Matching tags, most frequent first.
+     */
+    synchronized List<Tag> find(String prefix, int limit) {
+        limit = Math.min(limit, MAX_RESULTS);
+
+        return toTags(top(lowerBound(prefix), lowerBound(prefix + Character.MAX_VALUE), limit));
+    }
+
+    /**
+     * @param length Length of the typed text.
+     * @return Maximum edit distance tolerated for text of that length, so short text is not matched to everything.
+     */
+    static int getMaxDistance(int length) {
+        if (length < 4) return 0;
+        else if (length < 8) return 1;
+        else return 2;
+    }
+
+    /**
+     * Finds tags whose names start with something close to the typed text: the fewest insertions, deletions, or
+     * substitutions that turn the text into the start of the name is at most {@link #getMaxDistance(int)}.
+     *
+     * @param text  Lowercase typed text.
+     * @param limit Maximum number of tags to find. At most {@link #MAX_RESULTS}.
+     * @return Matching tags, closest first, then most frequent first.
+     */
+    synchronized List<Tag> findSimilar(String text, int limit) {
+        limit = Math.min(limit, MAX_RESULTS);
+        final int maxDistance = getMaxDistance(text.length());
+
+        // Most frequent matches at each distance
+        int[][] best = new int[maxDistance + 1][];
+        Arrays.fill(best, EMPTY);
+
+        int[] column = new int[text.length() + 1];
+        for (int i = 0; i < column.length; i++) column[i] = i;
+        walk(text, maxDistance, limit, 0, names.length, 0, column, column[text.length()], best);
+
+        int[] results = EMPTY;
+        for (int[] distance : best) {
+            int[] joined = Arrays.copyOf(results, Math.min(limit, results.length + distance.length));
+            System.arraycopy(distance, 0, joined, results.length, joined.length - results.length);
+            results = joined;
+        }
+        return toTags(results);
+    }
+
+    /**
+     * Visits a node of the implicit trie of names.
+     *
+     * @param text        Typed text.
+     * @param maxDistance Maximum edit distance of a match.
+     * @param limit       Maximum number of matches to keep at each distance.
+     * @param lo          First name below this node.
+     * @param hi          End of the names below this node.
+     * @param depth       Length of the prefix this node represents.
+     * @param column      Edit distances between each prefix of the text and this node's prefix.
+     * @param distance    Fewest edits that turn the text into this prefix or any shorter one.
+     * @param best        Most frequent matches at each distance so far.
+     */
+    private void walk(String text, int maxDistance, int limit, int lo, int hi, int depth, int[] column, int distance, int[][] best) {
+        int min = column[0];
+        for (int d : column) min = Math.min(min, d);
+
+        // Distances never decrease further down the trie, so every name here is as close as it will get
+        if (distance <= min) {
+            if (distance <= maxDistance) best[distance] = merge(best[distance], top(lo, hi, limit), limit);
+            return;
+        }
+        if (min > maxDistance) return;
+
+        // A name ending at this node is as close as its prefixes got
+        if (lo < hi && names[lo].length() == depth) {
+            if (distance <= maxDistance) best[distance] = merge(best[distance], top(lo, lo + 1, limit), limit);
+            lo++;
+        }
+
+        while (lo < hi) {
+            final char c = names[lo].charAt(depth);
+            final int end = childEnd(lo, hi, depth, c);
+
+            int[] next = new int[column.length];
+            next[0] = column[0] + 1;
+            for (int i = 1; i < next.length; i++) {
+                final int cost = text.charAt(i - 1) == c ? 0 : 1;
+                next[i] = Math.min(Math.min(next[i - 1] + 1, column[i] + 1), column[i - 1] + cost);
+            }
+            walk(text, maxDistance, limit, lo, end, depth + 1, next, Math.min(distance, next[next.length - 1]), best);
+
+            lo = end;
+        }
+    }
+
+    /**
+     * @param lo    First name below a trie node, which has a character at depth.
+     * @param hi    End of the names below the trie node.
+     * @param depth Length of the trie node's prefix.
+     * @param c     Character of the child node at depth.
+     * @return End of the names below the child node.
+     */
+    private int childEnd(int lo, int hi, int depth, char c) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (names[mid].charAt(depth) <= c) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param lo    First index of a range of tags.
+     * @param hi    End of the range.
+     * @param limit Maximum number of tags to find.
+     * @return The most frequent tags in the range, most frequent first.
+     */
+    private int[] top(int lo, int hi, int limit) {
+        int[] best = EMPTY;
+        for (lo += capacity, hi += capacity; lo < hi; lo /= 2, hi /= 2) {
+            if ((lo & 1) == 1) best = merge(best, tree[lo++], limit);
+            if ((hi & 1) == 1) best = merge(best, tree[--hi], limit);
+        }
+        return best;
+    }
+
+    private List<Tag> toTags(int[] indices) {
+        List<Tag> results = new ArrayList<>(indices.length);
+        for (int i : indices) {
+            results.add(tags[i]);
+        }
+        return results;
+    }
+
+    /**
+     * @param key Key to search for.
+     * @return Index of the first name that is not less than the key.
+     */
+    private int lowerBound(String key) {
+        int lo = 0, hi = names.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (names[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Merges two lists of tag indices ordered by descending frequency, then by name.
+     *
+     * @param a     First list.
+     * @param b     Second list.
+     * @param limit Maximum length of the result.
+     * @return Merged list.
+     */
+    private int[] merge(int[] a, int[] b, int limit) {
+        if (b.length == 0 && a.length <= limit) return a;
+        if (a.length == 0 && b.length <= limit) return b;
+
+        int[] result = new int[Math.min(limit, a.length + b.length)];
+        int i = 0, j = 0;
+        for (int k = 0; k < result.length; k++) {
+            if (j >= b.length || (i < a.length && before(a[i], b[j]))) {
+                result[k] = a[i++];
+            } else {
+                result[k] = b[j++];
+            }
+        }
+        return result;
+    }
+
+    private boolean before(int a, int b) {
+        final int fa = tags[a].getFrequency(), fb = tags[b].getFrequency();
+        return fa > fb || (fa == fb && a < b);
+    }
+
+}
@@ -0,0 +1,377 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Sparse counts of how many items each pair of tags appears on together, for suggesting tags that are often used
+ * alongside the tags an item already has.
+ * <p>
+ * Counts are built on a background thread from a snapshot of every item's tags, and kept up to date by the owning
+ * Menagerie as tags are added to and removed from items. Changes made while the snapshot is being counted are queued, and
+ * applied in order once it has been.
+ */
+class TagCooccurrence {
+
+    private static final Logger LOGGER = Logger.getLogger(TagCooccurrence.class.getName());
+
+    /**
+     * Number of items counted by the builder per acquisition of the lock, so tagging is never blocked for long.
+     */
+    private static final int BUILD_CHUNK_SIZE = 1000;
+
+    /**
+     * Counts for each tag, indexed by tag ID.
+     */
+    private CountMap[] counts = new CountMap[0];
+    private Tag[] tagsByID = new Tag[0];
+    /**
+     * Changes to counts made since the snapshot was taken, queued until the builder has counted it.
+     */
+    private final List<Change> queued = new ArrayList<>();
+    private boolean started = false;
+    private boolean built = false;
+
+    /**
+     * Scratch space for scoring related tags, indexed by tag ID, and the IDs with non-zero scores.
+     */
+    private double[] scores = new double[0];
+    private int[] touched = new int[16];
+
+
+    /**
+     * Starts building the counts on a background thread. No effect if already started. Must be called on the thread that
+     * changes item tags, so the snapshot of the tags is consistent.
+     *
+     * @param items Every item.
+     */
+    synchronized void buildAsync(List<Item> items) {
+        if (started) return;
+        started = true;
+
+        final Tag[][] snapshot = new Tag[items.size()][];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = items.get(i).getTags().toArray(new Tag[0]);
+        }
+
+        Thread thread = new Thread(() -> build(snapshot), "Tag Co-occurrence Builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Counts the tag pairs of every item in a snapshot, then applies the changes queued since it was taken.
+     *
+     * @param snapshot Tags of each item.
+     */
+    private void build(Tag[][] snapshot) {
+        final long t = System.currentTimeMillis();
+        for (int start = 0; start < snapshot.length; start += BUILD_CHUNK_SIZE) {
+            synchronized (this) {
+                for (int i = start; i < snapshot.length && i < start + BUILD_CHUNK_SIZE; i++) {
+                    final Tag[] tags = snapshot[i];
+                    for (int a = 0; a < tags.length; a++) {
+                        for (int b = a + 1; b < tags.length; b++) {
+                            add(tags[a], tags[b], 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized (this) {
+            for (Change change : queued) {
+                add(change.a, change.b, change.delta);
+            }
+            queued.clear();
+            built = true;
+        }
+        LOGGER.info("Counted tag co-occurrences of " + snapshot.length + " items in " + (System.currentTimeMillis() - t) + "ms");
+    }
+
+    /**
+     * @return True if the counts have been built.
+     */
+    synchronized boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Counts a tag that was added to an item.
+     *
+     * @param item Item, already with the tag.
+     * @param tag  Tag that was added.
+     */
+    synchronized void tagAdded(Item item, Tag tag) {
+        if (!started) return;
+
+        for (Tag other : item.getTags()) {
+            if (other != tag) change(tag, other, 1);
+        }
+    }
+
+    /**
+     * Uncounts a tag that was removed from an item.
+     *
+     * @param item Item, already without the tag.
+     * @param tag  Tag that was removed.
+     */
+    synchronized void tagRemoved(Item item, Tag tag) {
+        if (!started) return;
+
+        for (Tag other : item.getTags()) {
+            if (other != tag) change(tag, other, -1);
+        }
+    }
+
+    /**
+     * Uncounts every tag of an item that was removed.
+     *
+     * @param item Item that was removed.
+     */
+    synchronized void itemRemoved(Item item) {
+        if (!started) return;
+
+        final Tag[] tags = item.getTags().toArray(new Tag[0]);
+        for (int a = 0; a < tags.length; a++) {
+            for (int b = a + 1; b < tags.length; b++) {
+                change(tags[a], tags[b], -1);
+            }
+        }
+    }
+
+    /**
+     * @param a First tag.
+     * @param b Second tag.
+     * @return Number of items with both tags.
+     */
+    synchronized int getCount(Tag a, Tag b) {
+        if (a.getId() >= counts.length || counts[a.getId()] == null) return 0;
+        return counts[a.getId()].get(b.getId());
+    }
+
+    /**
+     * Finds the tags most likely to appear alongside a set of tags. Each context tag votes for the tags it appears with,
+     * by the fraction of its items that also have them, weighted by how many of the items being tagged have it.
+     *
+     * @param context Tags and their weights.
+     * @param filter  Tags to consider.
+     * @param limit   Maximum number of tags to find.
+     * @return Related tags, most related first. Empty if the counts have not been built yet.
+     */
+    synchronized List<Tag> findRelated(Map<Tag, Integer> context, Predicate<Tag> filter, int limit) {
+        if (!built || limit <= 0) return new ArrayList<>();
+        if (scores.length < counts.length) scores = new double[counts.length];
+
+        int touchedCount = 0;
+        for (Map.Entry<Tag, Integer> entry : context.entrySet()) {
+            final int id = entry.getKey().getId();
+            if (id >= counts.length || counts[id] == null) continue;
+
+            final CountMap map = counts[id];
+            final double weight = (double) entry.getValue() / Math.max(1, entry.getKey().getFrequency());
+            for (int i = 0; i < map.keys.length; i++) {
+                final int other = map.keys[i];
+                if (other == CountMap.EMPTY) continue;
+
+                if (scores[other] == 0) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = other;
+                }
+                scores[other] += weight * map.values[i];
+            }
+        }
+
+        // Keep the best few in order, inserting each better candidate
+        final Comparator<Tag> order = Comparator.comparingDouble((Tag tag) -> -scores[tag.getId()]).thenComparing(Comparator.comparingInt(Tag::getFrequency).reversed()).thenComparing(Tag::getName);
+        List<Tag> results = new ArrayList<>(limit + 1);
+        for (int i = 0; i < touchedCount; i++) {
+            if (results.size() >= limit && scores[touched[i]] < scores[results.get(results.size() - 1).getId()]) continue;
+            final Tag tag = tagsByID[touched[i]];
+            if (tag == null || !filter.test(tag)) continue;
+            if (results.size() >= limit && order.compare(tag, results.get(results.size() - 1)) >= 0) continue;
+
+            int index = Collections.binarySearch(results, tag, order);
+            results.add(index < 0 ? -index - 1 : index, tag);
+            if (results.size() > limit) results.remove(results.size() - 1);
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            scores[touched[i]] = 0;
+        }
+
+        return results;
+    }
+
+    /**
+     * Changes the count of a pair of tags, or queues the change if the snapshot hasn't been counted yet.
+     *
+     * @param a     First tag.
+     * @param b     Second tag.
+     * @param delta Change in count.
+     */
+    private void change(Tag a, Tag b, int delta) {
+        if (built) {
+            add(a, b, delta);
+        } else {
+            queued.add(new Change(a, b, delta));
+        }
+    }
+
+    /**
+     * Changes the count of a pair of tags, in both directions.
+     *
+     * @param a     First tag.
+     * @param b     Second tag.
+     * @param delta Change in count.
+     */
+    private void add(Tag a, Tag b, int delta) {
+        if (a == b) return;
+        map(a).add(b.getId(), delta);
+        map(b).add(a.getId(), delta);
+    }
+
+    private CountMap map(Tag tag) {
+        final int id = tag.getId();
+        if (id >= counts.length) {
+            final int length = Math.max(id + 1, counts.length * 2);
+            counts = Arrays.copyOf(counts, length);
+            tagsByID = Arrays.copyOf(tagsByID, length);
+        }
+        if (counts[id] == null) {
+            counts[id] = new CountMap();
+            tagsByID[id] = tag;
+        }
+        return counts[id];
+    }
+
+    /**
+     * Change to the count of a pair of tags.
+     */
+    private static class Change {
+
+        private final Tag a, b;
+        private final int delta;
+
+
+        private Change(Tag a, Tag b, int delta) {
+            this.a = a;
+            this.b = b;
+            this.delta = delta;
+        }
+
+    }
+
+    /**
+     * Open addressing map of tag IDs to positive counts. Counts that drop to zero are removed.
+     */
+    private static class CountMap {
+
+        private static final int EMPTY = -1;
+
+        private int[] keys = newKeys(4);
+        private int[] values = new int[4];
+        private int size = 0;
+
+
+        private static int[] newKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private static int home(int key, int mask) {
+            final int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private int slot(int key) {
+            final int mask = keys.length - 1;
+            int i = home(key, mask);
+            while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+            return i;
+        }
+
+        int get(int key) {
+            final int i = slot(key);
+            return keys[i] == key ? values[i] : 0;
+        }
+
+        void add(int key, int delta) {
+            int i = slot(key);
+            if (keys[i] == key) {
+                values[i] += delta;
+                if (values[i] <= 0) remove(i);
+            } else if (delta > 0) {
+                if ((size + 1) * 4 > keys.length * 3) {
+                    grow();
+                    i = slot(key);
+                }
+                keys[i] = key;
+                values[i] = delta;
+                size++;
+            }
+        }
+
+        /**
+         * Removes the entry in a slot, shifting later entries of the same probe sequence back into the gap.
+         *
+         * @param gap Slot to remove.
+         */
+        private void remove(int gap) {
+            final int mask = keys.length - 1;
+            keys[gap] = EMPTY;
+            size--;
+
+            for (int i = (gap + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                final int home = home(keys[i], mask);
+                // Move the entry if the gap lies cyclically between its home slot and its current slot
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    keys[i] = EMPTY;
+                    gap = i;
+                }
+            }
+        }
+
+        private void grow() {
+            final int[] oldKeys = keys, oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    final int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+    }
+
+}
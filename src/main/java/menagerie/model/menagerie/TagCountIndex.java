@@ -0,0 +1,99 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.menagerie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Index of item IDs bucketed by the number of tags on each item. Counts change constantly as items are tagged, so each
+ * update only moves a single ID between buckets, and range lookups are the union of a contiguous run of buckets.
+ */
+class TagCountIndex {
+
+    private final List<BitSet> buckets = new ArrayList<>();
+    private int[] counts = new int[0];
+
+
+    /**
+     * Sets the tag count of an ID, moving it out of its previous bucket.
+     *
+     * @param id    ID of the item.
+     * @param count Number of tags on the item.
+     */
+    synchronized void set(int id, int count) {
+        remove(id);
+
+        if (id >= counts.length) {
+            int oldLength = counts.length;
+            counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+            Arrays.fill(counts, oldLength, counts.length, -1);
+        }
+        while (buckets.size() <= count) {
+            buckets.add(new BitSet());
+        }
+
+        buckets.get(count).set(id);
+        counts[id] = count;
+    }
+
+    /**
+     * Removes an ID from this index.
+     *
+     * @param id ID of the item.
+     */
+    synchronized void remove(int id) {
+        if (id < counts.length && counts[id] >= 0) {
+            buckets.get(counts[id]).clear(id);
+            counts[id] = -1;
+        }
+    }
+
+    /**
+     * Removes every ID from this index.
+     */
+    synchronized void clear() {
+        buckets.clear();
+        counts = new int[0];
+    }
+
+    /**
+     * Finds all IDs with tag counts inside a range.
+     *
+     * @param min Minimum tag count, inclusive.
+     * @param max Maximum tag count, inclusive.
+     * @return IDs with tag counts in the range.
+     */
+    synchronized BitSet find(int min, int max) {
+        BitSet result = new BitSet();
+        for (int i = Math.max(0, min); i <= max && i < buckets.size(); i++) {
+            result.or(buckets.get(i));
+        }
+        return result;
+    }
+
+}
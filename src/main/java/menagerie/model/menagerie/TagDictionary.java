@@ -0,0 +1,125 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Sorted dictionary of tags by name. Names are also kept reversed so that both prefix and suffix wildcard patterns
+ * resolve to a contiguous range of the dictionary instead of a scan over every tag.
+ */
+class TagDictionary {
+
+    private final TreeMap<String, Tag> byName = new TreeMap<>();
+    private final TreeMap<String, Tag> byReversedName = new TreeMap<>();
+
+
+    /**
+     * Adds a tag to this dictionary.
+     *
+     * @param tag Tag to add.
+     */
+    synchronized void add(Tag tag) {
+        byName.put(tag.getName(), tag);
+        byReversedName.put(reverse(tag.getName()), tag);
+    }
+
+    /**
+     * Removes a tag from this dictionary.
+     *
+     * @param tag Tag to remove.
+     */
+    synchronized void remove(Tag tag) {
+        byName.remove(tag.getName());
+        byReversedName.remove(reverse(tag.getName()));
+    }
+
+    /**
+     * @return Number of tags in this dictionary.
+     */
+    synchronized int size() {
+        return byName.size();
+    }
+
+    /**
+     * @param name Name of the tag. Case insensitive.
+     * @return Tag with the given name, or null if none exist.
+     */
+    synchronized Tag get(String name) {
+        return byName.get(name.toLowerCase());
+    }
+
+    /**
+     * Finds all tags whose names match a pattern, where '*' matches any sequence of characters.
+     *
+     * @param pattern Pattern to match. Case insensitive.
+     * @return Matching tags, in no particular order.
+     */
+    synchronized List<Tag> find(String pattern) {
+        pattern = pattern.toLowerCase();
+        List<Tag> results = new ArrayList<>();
+
+        final int first = pattern.indexOf('*');
+        if (first < 0) {
+            Tag t = byName.get(pattern);
+            if (t != null) results.add(t);
+            return results;
+        }
+        final String prefix = pattern.substring(0, first);
+        final String suffix = pattern.substring(pattern.lastIndexOf('*') + 1);
+
+        // Only tags sharing the longer literal end of the pattern need to be checked against the whole pattern
+        Collection<Tag> range;
+        if (prefix.isEmpty() && suffix.isEmpty()) {
+            range = byName.values();
+        } else if (prefix.length() >= suffix.length()) {
+            range = byName.subMap(prefix, prefix + Character.MAX_VALUE).values();
+        } else {
+            String reversed = reverse(suffix);
+            range = byReversedName.subMap(reversed, reversed + Character.MAX_VALUE).values();
+        }
+
+        for (Tag t : range) {
+            if (t.matches(pattern)) results.add(t);
+        }
+
+        return results;
+    }
+
+    /**
+     * Removes every tag from this dictionary.
+     */
+    synchronized void clear() {
+        byName.clear();
+        byReversedName.clear();
+    }
+
+    private static String reverse(String str) {
+        return new StringBuilder(str).reverse().toString();
+    }
+
+}
@@ -33,13 +33,17 @@ import menagerie.util.listeners.ObjectListener;
 import java.io.File;
 import java.io.InputStream;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -57,6 +61,7 @@ public class DatabaseManager extends Thread {
     private final PreparedStatement PS_SET_MEDIA_MD5;
     private final PreparedStatement PS_SET_MEDIA_PATH;
     private final PreparedStatement PS_SET_MEDIA_HISTOGRAM;
+    private final PreparedStatement PS_SET_MEDIA_PHASH;
     private final PreparedStatement PS_SET_MEDIA_PAGE;
     private final PreparedStatement PS_SET_MEDIA_NOSIMILAR;
     // Non Duplicates
@@ -64,6 +69,15 @@ public class DatabaseManager extends Thread {
     private final PreparedStatement PS_REMOVE_NON_DUPE;
     private final PreparedStatement PS_GET_NON_DUPES;
     private final PreparedStatement PS_GET_NON_DUPES_COUNT;
+
+    private final PreparedStatement PS_GET_SIMILAR_PAIRS;
+    private final PreparedStatement PS_ADD_SIMILAR_PAIR;
+    private final PreparedStatement PS_CLEAR_SIMILAR_PAIRS;
+    private final PreparedStatement PS_REMOVE_SIMILAR_PAIRS_OF_ITEM;
+    private final PreparedStatement PS_REMOVE_SIMILAR_PAIRS_ABOVE;
+    private final PreparedStatement PS_GET_SIMILAR_SCAN;
+    private final PreparedStatement PS_SET_SIMILAR_SCAN;
+    private final PreparedStatement PS_LOWER_SIMILAR_SCAN_WATERMARK;
     // Groups
     private final PreparedStatement PS_GET_GROUPS;
     private final PreparedStatement PS_CREATE_GROUP;
@@ -93,6 +107,9 @@ public class DatabaseManager extends Thread {
     private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
     private volatile boolean running = false;
 
+    private final Object similarScanLock = new Object();
+    private int lowestInvalidatedSinceScan = Integer.MAX_VALUE;
+
     private MenagerieDatabaseLoadListener loadListener = null;
     private ObjectListener<Integer> queueSizeListener = null;
 
@@ -107,12 +124,13 @@ public class DatabaseManager extends Thread {
 
         // ------------------------------------ Init statements -----------------------------------
         // Media
-        PS_GET_MEDIA = database.prepareStatement("SELECT items.id, items.added, media.gid, media.page, media.no_similar, media.path, media.md5, media.hist_a, media.hist_r, media.hist_g, media.hist_b FROM media JOIN items ON items.id=media.id;");
-        PS_CREATE_MEDIA = database.prepareStatement("INSERT INTO media(id, path, md5, hist_a, hist_r, hist_g, hist_b) VALUES (?, ?, ?, ?, ?, ?, ?);");
+        PS_GET_MEDIA = database.prepareStatement("SELECT items.id, items.added, media.gid, media.page, media.no_similar, media.path, media.md5, media.hist_a, media.hist_r, media.hist_g, media.hist_b, media.phash FROM media JOIN items ON items.id=media.id;");
+        PS_CREATE_MEDIA = database.prepareStatement("INSERT INTO media(id, path, md5, hist_a, hist_r, hist_g, hist_b, phash) VALUES (?, ?, ?, ?, ?, ?, ?, ?);");
         PS_SET_MEDIA_GID = database.prepareStatement("UPDATE media SET gid=? WHERE id=?;");
         PS_SET_MEDIA_MD5 = database.prepareStatement("UPDATE media SET md5=? WHERE id=?;");
         PS_SET_MEDIA_PATH = database.prepareStatement("UPDATE media SET path=? WHERE id=?;");
         PS_SET_MEDIA_HISTOGRAM = database.prepareStatement("UPDATE media SET hist_a=?, hist_r=?, hist_g=?, hist_b=? WHERE id=?");
+        PS_SET_MEDIA_PHASH = database.prepareStatement("UPDATE media SET phash=? WHERE id=?;");
         PS_SET_MEDIA_PAGE = database.prepareStatement("UPDATE media SET page=? WHERE id=?;");
         PS_SET_MEDIA_NOSIMILAR = database.prepareStatement("UPDATE media SET no_similar=? WHERE id=?;");
         // Non Duplicates
@@ -120,6 +138,15 @@ public class DatabaseManager extends Thread {
         PS_ADD_NON_DUPE = database.prepareStatement("INSERT INTO non_dupes(item_1, item_2) VALUES(?, ?);");
         PS_REMOVE_NON_DUPE = database.prepareStatement("DELETE FROM non_dupes WHERE (item_1=? AND item_2=?) OR (item_2=? AND item_1=?);");
         PS_GET_NON_DUPES_COUNT = database.prepareStatement("SELECT count(*) FROM non_dupes;");
+
+        PS_GET_SIMILAR_PAIRS = database.prepareStatement("SELECT item_1, item_2, similarity FROM similar_pairs WHERE similarity>=? ORDER BY similarity DESC;");
+        PS_ADD_SIMILAR_PAIR = database.prepareStatement("MERGE INTO similar_pairs(item_1, item_2, similarity) KEY(item_1, item_2) VALUES (?, ?, ?);");
+        PS_CLEAR_SIMILAR_PAIRS = database.prepareStatement("DELETE FROM similar_pairs;");
+        PS_REMOVE_SIMILAR_PAIRS_OF_ITEM = database.prepareStatement("DELETE FROM similar_pairs WHERE item_1=? OR item_2=?;");
+        PS_REMOVE_SIMILAR_PAIRS_ABOVE = database.prepareStatement("DELETE FROM similar_pairs WHERE item_2>?;");
+        PS_GET_SIMILAR_SCAN = database.prepareStatement("SELECT watermark, confidence FROM similar_scan WHERE id=0;");
+        PS_SET_SIMILAR_SCAN = database.prepareStatement("MERGE INTO similar_scan(id, watermark, confidence) KEY(id) VALUES (0, ?, ?);");
+        PS_LOWER_SIMILAR_SCAN_WATERMARK = database.prepareStatement("UPDATE similar_scan SET watermark=? WHERE watermark>?;");
         // Groups
         PS_GET_GROUPS = database.prepareStatement("SELECT items.id, items.added, groups.title FROM groups JOIN items ON items.id=groups.id;");
         PS_CREATE_GROUP = database.prepareStatement("INSERT INTO groups(id, title) VALUES (?, ?);");
@@ -279,6 +306,37 @@ public class DatabaseManager extends Thread {
         });
     }
 
+    /**
+     * Stores a perceptual hash in the database.
+     *
+     * @param id    ID of item to update.
+     * @param phash Perceptual hash to store.
+     * @throws SQLException If database update fails.
+     */
+    public void setPerceptualHash(int id, long phash) throws SQLException {
+        synchronized (PS_SET_MEDIA_PHASH) {
+            PS_SET_MEDIA_PHASH.setLong(1, phash);
+            PS_SET_MEDIA_PHASH.setInt(2, id);
+            PS_SET_MEDIA_PHASH.executeUpdate();
+        }
+    }
+
+    /**
+     * Queues a perceptual hash to be stored in the database.
+     *
+     * @param id    ID of item to update.
+     * @param phash Perceptual hash to store.
+     */
+    public void setPerceptualHashAsync(int id, long phash) {
+        queue.add(() -> {
+            try {
+                setPerceptualHash(id, phash);
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Failed to set perceptual hash async: " + id, e);
+            }
+        });
+    }
+
     /**
      * Stores a path in the database.
      *
@@ -485,6 +543,11 @@ public class DatabaseManager extends Thread {
                 PS_CREATE_MEDIA.setBinaryStream(6, media.getHistogram().getGreenAsInputStream());
                 PS_CREATE_MEDIA.setBinaryStream(7, media.getHistogram().getBlueAsInputStream());
             }
+            if (media.getPerceptualHash() != null) {
+                PS_CREATE_MEDIA.setLong(8, media.getPerceptualHash());
+            } else {
+                PS_CREATE_MEDIA.setNull(8, Types.BIGINT);
+            }
             PS_CREATE_MEDIA.executeUpdate();
         }
     }
@@ -796,6 +859,185 @@ public class DatabaseManager extends Thread {
         });
     }
 
+    /**
+     * Loads the most similar stored pairs of media at or above a similarity. Pairs are read most similar first, and reading
+     * stops once enough pairs have been accepted, so the rest of the table is never loaded.
+     *
+     * @param menagerie     Menagerie to find the items in.
+     * @param minSimilarity Minimum similarity of a pair.
+     * @param maxResults    Maximum number of pairs to load. Unbounded if less than 1.
+     * @param filter        Pairs to accept. Rejected pairs don't count towards the maximum. Accepts every pair if null.
+     * @return Accepted stored pairs whose items are both in the menagerie, most similar first.
+     * @throws SQLException If database query fails.
+     */
+    public List<SimilarPair<MediaItem>> getSimilarPairs(Menagerie menagerie, double minSimilarity, int maxResults, Predicate<SimilarPair<MediaItem>> filter) throws SQLException {
+        List<SimilarPair<MediaItem>> results = new ArrayList<>();
+        synchronized (PS_GET_SIMILAR_PAIRS) {
+            PS_GET_SIMILAR_PAIRS.setDouble(1, minSimilarity);
+            try (ResultSet rs = PS_GET_SIMILAR_PAIRS.executeQuery()) {
+                while ((maxResults < 1 || results.size() < maxResults) && rs.next()) {
+                    Item item1 = menagerie.getItemByID(rs.getInt(1)), item2 = menagerie.getItemByID(rs.getInt(2));
+                    if (item1 instanceof MediaItem && item2 instanceof MediaItem) {
+                        SimilarPair<MediaItem> pair = new SimilarPair<>((MediaItem) item1, (MediaItem) item2, rs.getDouble(3));
+                        if (filter == null || filter.test(pair)) results.add(pair);
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Stores similar pairs of media, replacing the similarity of pairs that are already stored.
+     *
+     * @param pairs Pairs to store.
+     * @throws SQLException If database update fails.
+     */
+    public void addSimilarPairs(Collection<SimilarPair<MediaItem>> pairs) throws SQLException {
+        synchronized (PS_ADD_SIMILAR_PAIR) {
+            for (SimilarPair<MediaItem> pair : pairs) {
+                final int id1 = pair.getObject1().getId(), id2 = pair.getObject2().getId();
+                PS_ADD_SIMILAR_PAIR.setInt(1, Math.min(id1, id2));
+                PS_ADD_SIMILAR_PAIR.setInt(2, Math.max(id1, id2));
+                PS_ADD_SIMILAR_PAIR.setDouble(3, pair.getSimilarity());
+                PS_ADD_SIMILAR_PAIR.addBatch();
+            }
+            PS_ADD_SIMILAR_PAIR.executeBatch();
+        }
+    }
+
+    /**
+     * Removes all stored similar pairs, and forgets which items have been scanned for them.
+     *
+     * @throws SQLException If database update fails.
+     */
+    public void clearSimilarPairs() throws SQLException {
+        synchronized (PS_CLEAR_SIMILAR_PAIRS) {
+            PS_CLEAR_SIMILAR_PAIRS.executeUpdate();
+        }
+        setSimilarPairsScanned(0, 1);
+    }
+
+    /**
+     * @return Highest item ID that has been scanned for similar pairs, or 0 if none.
+     * @throws SQLException If database query fails.
+     */
+    public int getSimilarPairsWatermark() throws SQLException {
+        synchronized (PS_GET_SIMILAR_SCAN) {
+            try (ResultSet rs = PS_GET_SIMILAR_SCAN.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return Minimum similarity of the stored similar pairs, or 1 if none have been scanned.
+     * @throws SQLException If database query fails.
+     */
+    public double getSimilarPairsConfidence() throws SQLException {
+        synchronized (PS_GET_SIMILAR_SCAN) {
+            try (ResultSet rs = PS_GET_SIMILAR_SCAN.executeQuery()) {
+                if (rs.next()) return rs.getDouble(2);
+            }
+        }
+
+        return 1;
+    }
+
+    /**
+     * Records that every pair of items up to an ID has been scanned, and their pairs stored.
+     *
+     * @param watermark  Highest item ID scanned.
+     * @param confidence Minimum similarity of the stored pairs.
+     * @throws SQLException If database update fails.
+     */
+    public void setSimilarPairsScanned(int watermark, double confidence) throws SQLException {
+        synchronized (PS_SET_SIMILAR_SCAN) {
+            PS_SET_SIMILAR_SCAN.setInt(1, watermark);
+            PS_SET_SIMILAR_SCAN.setDouble(2, confidence);
+            PS_SET_SIMILAR_SCAN.executeUpdate();
+        }
+    }
+
+    /**
+     * Starts tracking invalidated items for a scan for similar pairs. Must be called before the watermark is read.
+     */
+    public void startSimilarPairsScan() {
+        synchronized (similarScanLock) {
+            lowestInvalidatedSinceScan = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Stores the pairs found by a scan for similar pairs, and advances the watermark past the scanned items. Pairs with an
+     * item above the old watermark are replaced, since the scan compared those items again.
+     * <p>
+     * Items invalidated since {@link #startSimilarPairsScan()} may have been compared with their old histograms, so the
+     * watermark is kept below them and they are scanned again next time.
+     *
+     * @param watermark  Watermark the scan started from.
+     * @param highest    Highest item ID scanned.
+     * @param confidence Minimum similarity of the stored pairs.
+     * @param pairs      Pairs found by the scan.
+     * @return The new watermark.
+     * @throws SQLException If database update fails.
+     */
+    public int finishSimilarPairsScan(int watermark, int highest, double confidence, Collection<SimilarPair<MediaItem>> pairs) throws SQLException {
+        synchronized (similarScanLock) {
+            synchronized (PS_REMOVE_SIMILAR_PAIRS_ABOVE) {
+                PS_REMOVE_SIMILAR_PAIRS_ABOVE.setInt(1, watermark);
+                PS_REMOVE_SIMILAR_PAIRS_ABOVE.executeUpdate();
+            }
+            addSimilarPairs(pairs);
+
+            final int scanned = Math.min(highest, lowestInvalidatedSinceScan - 1);
+            setSimilarPairsScanned(scanned, confidence);
+            return scanned;
+        }
+    }
+
+    /**
+     * Removes the stored similar pairs of an item whose histogram changed, and lowers the watermark below it so it is
+     * scanned again.
+     *
+     * @param id ID of item.
+     * @throws SQLException If database update fails.
+     */
+    public void invalidateSimilarPairs(int id) throws SQLException {
+        synchronized (similarScanLock) {
+            lowestInvalidatedSinceScan = Math.min(lowestInvalidatedSinceScan, id);
+
+            synchronized (PS_REMOVE_SIMILAR_PAIRS_OF_ITEM) {
+                PS_REMOVE_SIMILAR_PAIRS_OF_ITEM.setInt(1, id);
+                PS_REMOVE_SIMILAR_PAIRS_OF_ITEM.setInt(2, id);
+                PS_REMOVE_SIMILAR_PAIRS_OF_ITEM.executeUpdate();
+            }
+            synchronized (PS_LOWER_SIMILAR_SCAN_WATERMARK) {
+                PS_LOWER_SIMILAR_SCAN_WATERMARK.setInt(1, id - 1);
+                PS_LOWER_SIMILAR_SCAN_WATERMARK.setInt(2, id - 1);
+                PS_LOWER_SIMILAR_SCAN_WATERMARK.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Queues the stored similar pairs of an item to be invalidated.
+     *
+     * @param id ID of item.
+     */
+    public void invalidateSimilarPairsAsync(int id) {
+        queue.add(() -> {
+            try {
+                invalidateSimilarPairs(id);
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Failed to invalidate similar pairs of: " + id, e);
+            }
+        });
+    }
+
     /**
      * Finds the highest item ID value.
      *
@@ -937,7 +1179,7 @@ public class DatabaseManager extends Thread {
                 int i = 0;
                 while (rs.next()) {
                     i++;
-                    menagerie.getNonDuplicates().add(new SimilarPair<>((MediaItem) menagerie.getItemByID(rs.getInt(1)), (MediaItem) menagerie.getItemByID(rs.getInt(2)), 0));
+                    menagerie.getNonDuplicates().add(rs.getInt(1), rs.getInt(2));
                     if (loadListener != null) loadListener.nonDupeLoading(i, total);
                 }
             }
@@ -991,6 +1233,9 @@ public class DatabaseManager extends Thread {
                         }
                     }
 
+                    long phash = rs.getLong("media.phash");
+                    Long perceptualHash = rs.wasNull() ? null : phash;
+
                     // Try to get group
                     int gid = rs.getInt("media.gid");
                     GroupItem group = null;
@@ -1003,7 +1248,7 @@ public class DatabaseManager extends Thread {
                         }
                     }
 
-                    MediaItem media = new MediaItem(menagerie, rs.getInt("items.id"), rs.getLong("items.added"), rs.getInt("media.page"), rs.getBoolean("media.no_similar"), group, new File(rs.getNString("media.path")), rs.getNString("media.md5"), histogram);
+                    MediaItem media = new MediaItem(menagerie, rs.getInt("items.id"), rs.getLong("items.added"), rs.getInt("media.page"), rs.getBoolean("media.no_similar"), group, new File(rs.getNString("media.path")), rs.getNString("media.md5"), histogram, perceptualHash);
                     menagerie.getItems().add(media);
                     if (group != null) group.getElements().add(media);
 
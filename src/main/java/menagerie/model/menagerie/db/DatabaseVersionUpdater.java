@@ -110,6 +110,16 @@ public class DatabaseVersionUpdater {
             version++;
         }
         if (version == 8) {
+            LOGGER.warning("!!! Database needs to update from v" + version + " to v" + (version + 1) + " !!!");
+            updateFromV8ToV9(db);
+            version++;
+        }
+        if (version == 9) {
+            LOGGER.warning("!!! Database needs to update from v" + version + " to v" + (version + 1) + " !!!");
+            updateFromV9ToV10(db);
+            version++;
+        }
+        if (version == 10) {
             LOGGER.info("Database is up to date");
         }
     }
@@ -442,6 +452,37 @@ public class DatabaseVersionUpdater {
         }
     }
 
+    private static void updateFromV8ToV9(Connection db) throws SQLException {
+        LOGGER.warning("Database updating from v8 to v9...");
+        long t = System.currentTimeMillis();
+        try (Statement s = db.createStatement()) {
+            LOGGER.info("Adding phash column to media");
+            s.executeUpdate("ALTER TABLE media ADD COLUMN phash BIGINT;");
+
+            LOGGER.info("Setting database version");
+            s.executeUpdate("INSERT INTO version(version) VALUES (9);");
+
+            LOGGER.info("Finished updating database in: " + (System.currentTimeMillis() - t) / 1000.0 + "s");
+        }
+    }
+
+    private static void updateFromV9ToV10(Connection db) throws SQLException {
+        LOGGER.warning("Database updating from v9 to v10...");
+        long t = System.currentTimeMillis();
+        try (Statement s = db.createStatement()) {
+            LOGGER.info("Creating 'similar_pairs' table");
+            s.executeUpdate("CREATE TABLE similar_pairs(item_1 INT NOT NULL, item_2 INT NOT NULL, similarity DOUBLE NOT NULL, FOREIGN KEY (item_1) REFERENCES items(id) ON DELETE CASCADE, FOREIGN KEY (item_2) REFERENCES items(id) ON DELETE CASCADE, PRIMARY KEY (item_1, item_2));");
+            s.executeUpdate("CREATE INDEX similar_pairs_similarity ON similar_pairs(similarity DESC);");
+            LOGGER.info("Creating 'similar_scan' table");
+            s.executeUpdate("CREATE TABLE similar_scan(id INT NOT NULL PRIMARY KEY, watermark INT NOT NULL, confidence DOUBLE NOT NULL);");
+
+            LOGGER.info("Setting database version");
+            s.executeUpdate("INSERT INTO version(version) VALUES (10);");
+
+            LOGGER.info("Finished updating database in: " + (System.currentTimeMillis() - t) / 1000.0 + "s");
+        }
+    }
+
     /**
      * @param tags List of available tags to get from.
      * @param name Name of tag to get.
@@ -0,0 +1,350 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie.histogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vantage point tree over image histograms under L1 distance, for finding every histogram within a distance of another
+ * without comparing against all of them.
+ * <p>
+ * Each branch picks a vantage histogram and splits the others around their median distance to it, so a query only
+ * descends into the sides the triangle inequality can't rule out. Added histograms fill leaves, which split when full.
+ * Removed histograms are only marked until more than half of the tree is removed, when it is rebuilt. Histograms are
+ * packed into one array, in the same layout as a {@link HistogramStore}. Thread safe.
+ *
+ * @param <T> Type of the items the histograms belong to.
+ */
+public class HistogramIndex<T> {
+
+    /**
+     * Maximum number of histograms in a leaf.
+     */
+    private static final int LEAF_SIZE = 16;
+
+    /**
+     * Slack for the rounding error of single precision distances when pruning with the triangle inequality.
+     */
+    private static final float EPSILON = 1e-4f;
+
+    private final Map<T, Integer> slots = new HashMap<>();
+    /**
+     * Packed histograms, by slot.
+     */
+    private float[] data = new float[0];
+    /**
+     * Item of each slot, or null if it was removed.
+     */
+    private Object[] items = new Object[0];
+    private int used = 0;
+    private Node root = new Node(new int[LEAF_SIZE], 0);
+
+
+    /**
+     * Replaces all histograms in this index, building a balanced tree at once.
+     *
+     * @param histograms Histograms of items.
+     */
+    public synchronized void build(Map<T, ImageHistogram> histograms) {
+        clear();
+        final int capacity = Math.max(16, histograms.size());
+        data = new float[capacity * HistogramStore.HISTOGRAM_SIZE];
+        items = new Object[capacity];
+        histograms.forEach((item, histogram) -> {
+            HistogramStore.pack(histogram, data, used * HistogramStore.HISTOGRAM_SIZE);
+            items[used] = item;
+            slots.put(item, used);
+            used++;
+        });
+        rebuild();
+    }
+
+    /**
+     * Adds the histogram of an item, replacing the one already added for it.
+     *
+     * @param item      Item the histogram belongs to.
+     * @param histogram Histogram of the item.
+     */
+    public synchronized void add(T item, ImageHistogram histogram) {
+        remove(item);
+
+        if (used == items.length) {
+            final int capacity = Math.max(16, used * 2);
+            data = Arrays.copyOf(data, capacity * HistogramStore.HISTOGRAM_SIZE);
+            items = Arrays.copyOf(items, capacity);
+        }
+        final int slot = used++;
+        HistogramStore.pack(histogram, data, slot * HistogramStore.HISTOGRAM_SIZE);
+        items[slot] = item;
+        slots.put(item, slot);
+
+        if (insert(slot) > getMaxDepth()) rebuild();
+    }
+
+    /**
+     * @param item Item whose histogram to remove.
+     * @return True if the item had a histogram in this index.
+     */
+    public synchronized boolean remove(T item) {
+        Integer slot = slots.remove(item);
+        if (slot == null) return false;
+
+        items[slot] = null;
+        if (used - slots.size() > slots.size()) rebuild();
+        return true;
+    }
+
+    /**
+     * Removes all histograms.
+     */
+    public synchronized void clear() {
+        slots.clear();
+        data = new float[0];
+        items = new Object[0];
+        used = 0;
+        root = new Node(new int[LEAF_SIZE], 0);
+    }
+
+    /**
+     * @return Number of histograms in this index.
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * Finds every item whose histogram is within a distance of a histogram.
+     *
+     * @param histogram Histogram to search around.
+     * @param distance  Maximum L1 distance [0.0-8.0]. See {@link ImageHistogram#getSimilarity(ImageHistogram)}.
+     * @return Items within the distance, in no particular order.
+     */
+    public synchronized List<T> findWithin(ImageHistogram histogram, float distance) {
+        float[] bins = new float[HistogramStore.HISTOGRAM_SIZE];
+        HistogramStore.pack(histogram, bins, 0);
+
+        List<T> results = new ArrayList<>();
+        search(root, bins, distance, results);
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void search(Node node, float[] bins, float distance, List<T> results) {
+        if (node.slots != null) {
+            for (int i = 0; i < node.count; i++) {
+                final int slot = node.slots[i];
+                if (items[slot] != null && distanceTo(slot, bins) <= distance) results.add((T) items[slot]);
+            }
+            return;
+        }
+
+        final float d = distanceTo(node.vantage, bins);
+        if (items[node.vantage] != null && d <= distance) results.add((T) items[node.vantage]);
+        if (d - distance <= node.radius + EPSILON) search(node.inside, bins, distance, results);
+        if (d + distance >= node.radius - EPSILON) search(node.outside, bins, distance, results);
+    }
+
+    private float distanceTo(int slot, float[] bins) {
+        return HistogramStore.distance(data, slot * HistogramStore.HISTOGRAM_SIZE, bins, 0);
+    }
+
+    private float distance(int slotA, int slotB) {
+        return HistogramStore.distance(data, slotA * HistogramStore.HISTOGRAM_SIZE, slotB * HistogramStore.HISTOGRAM_SIZE);
+    }
+
+    /**
+     * Inserts a slot into the leaf it belongs in, splitting the leaf if it is full.
+     *
+     * @param slot Slot to insert.
+     * @return Depth of the leaf the slot was inserted into.
+     */
+    private int insert(int slot) {
+        Node node = root;
+        int depth = 0;
+        while (node.slots == null) {
+            node = distance(slot, node.vantage) <= node.radius ? node.inside : node.outside;
+            depth++;
+        }
+
+        if (node.count == node.slots.length) {
+            // Split the full leaf, leaving out removed slots
+            int[] live = new int[node.count + 1];
+            int count = 0;
+            for (int i = 0; i < node.count; i++) {
+                if (items[node.slots[i]] != null) live[count++] = node.slots[i];
+            }
+            live[count++] = slot;
+            node.set(build(live, new float[count], 0, count));
+        } else {
+            node.slots[node.count++] = slot;
+        }
+
+        return depth;
+    }
+
+    /**
+     * @return Depth past which the tree is unbalanced enough to be worth rebuilding.
+     */
+    private int getMaxDepth() {
+        return 2 * (32 - Integer.numberOfLeadingZeros(slots.size() / LEAF_SIZE)) + 8;
+    }
+
+    /**
+     * Rebuilds a balanced tree from the histograms that haven't been removed. Slots are renumbered in the order the tree
+     * is searched, so each leaf's histograms are next to each other in memory.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebuild() {
+        int[] live = new int[slots.size()];
+        int count = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (items[slot] != null) live[count++] = slot;
+        }
+        root = build(live, new float[count], 0, count);
+
+        final int capacity = Math.max(16, count * 2);
+        float[] newData = new float[capacity * HistogramStore.HISTOGRAM_SIZE];
+        Object[] newItems = new Object[capacity];
+        used = renumber(root, newData, newItems, 0);
+        data = newData;
+        items = newItems;
+        for (int slot = 0; slot < used; slot++) {
+            slots.put((T) items[slot], slot);
+        }
+    }
+
+    /**
+     * Moves the histograms of a subtree to new slots, in search order.
+     *
+     * @return The next free slot.
+     */
+    private int renumber(Node node, float[] newData, Object[] newItems, int next) {
+        if (node.slots != null) {
+            for (int i = 0; i < node.count; i++) {
+                node.slots[i] = move(node.slots[i], newData, newItems, next++);
+            }
+            return next;
+        }
+
+        node.vantage = move(node.vantage, newData, newItems, next++);
+        next = renumber(node.inside, newData, newItems, next);
+        return renumber(node.outside, newData, newItems, next);
+    }
+
+    private int move(int slot, float[] newData, Object[] newItems, int newSlot) {
+        System.arraycopy(data, slot * HistogramStore.HISTOGRAM_SIZE, newData, newSlot * HistogramStore.HISTOGRAM_SIZE, HistogramStore.HISTOGRAM_SIZE);
+        newItems[newSlot] = items[slot];
+        return newSlot;
+    }
+
+    private Node build(int[] slots, float[] distances, int start, int end) {
+        if (end - start <= LEAF_SIZE) {
+            int[] leaf = new int[LEAF_SIZE];
+            System.arraycopy(slots, start, leaf, 0, end - start);
+            return new Node(leaf, end - start);
+        }
+
+        final int vantage = slots[start];
+        for (int i = start + 1; i < end; i++) {
+            distances[i] = distance(slots[i], vantage);
+        }
+
+        // Slots before the median are no further than it, and slots after are no closer
+        final int median = (start + 1 + end) >>> 1;
+        select(slots, distances, start + 1, end, median);
+
+        Node node = new Node(null, 0);
+        node.vantage = vantage;
+        node.radius = distances[median];
+        node.inside = build(slots, distances, start + 1, median);
+        node.outside = build(slots, distances, median, end);
+        return node;
+    }
+
+    /**
+     * Partially sorts a range of slots by distance, so the slot at k is the one that would be there if fully sorted.
+     */
+    private static void select(int[] slots, float[] distances, int start, int end, int k) {
+        while (end - start > 1) {
+            final float pivot = distances[(start + end) >>> 1];
+            int i = start, j = end - 1;
+            while (i <= j) {
+                while (distances[i] < pivot) i++;
+                while (distances[j] > pivot) j--;
+                if (i <= j) {
+                    final int slot = slots[i];
+                    slots[i] = slots[j];
+                    slots[j] = slot;
+                    final float distance = distances[i];
+                    distances[i] = distances[j];
+                    distances[j] = distance;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j) {
+                end = j + 1;
+            } else if (k >= i) {
+                start = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A leaf of slots, or a branch around a vantage slot whose inside holds slots no further than the radius from it, and
+     * whose outside holds slots no closer.
+     */
+    private static final class Node {
+
+        private int[] slots;
+        private int count;
+        private int vantage;
+        private float radius;
+        private Node inside, outside;
+
+
+        private Node(int[] slots, int count) {
+            this.slots = slots;
+            this.count = count;
+        }
+
+        private void set(Node other) {
+            slots = other.slots;
+            count = other.count;
+            vantage = other.vantage;
+            radius = other.radius;
+            inside = other.inside;
+            outside = other.outside;
+        }
+
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie.histogram;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Histograms of many images packed into one contiguous float array, so large numbers of them can be compared without
+ * chasing pointers.
+ * <p>
+ * Each histogram is given a dense slot, and occupies {@link #HISTOGRAM_SIZE} consecutive floats starting at
+ * slot * {@link #HISTOGRAM_SIZE}: its alpha, red, green, then blue bins. Not thread safe while histograms are being
+ * added, but any number of threads may compare histograms once the store is filled.
+ * <p>
+ * Each histogram also keeps {@link #BOUNDS_SIZE} summary values, the centered first moment and the mass of each channel,
+ * that give a lower bound of the distance between two histograms without reading their bins. See
+ * {@link #getDistanceWithin(int, int, float)}.
+ */
+public final class HistogramStore {
+
+    /**
+     * Number of floats occupied by each histogram.
+     */
+    public static final int HISTOGRAM_SIZE = ImageHistogram.BIN_SIZE * ImageHistogram.NUM_CHANNELS;
+    /**
+     * Number of floats of lower bound values kept for each histogram.
+     */
+    static final int BOUNDS_SIZE = 2 * ImageHistogram.NUM_CHANNELS;
+    /**
+     * Allowance for rounding error when comparing a lower bound to a budget, so a bound never rejects a pair within it.
+     */
+    private static final float BOUND_SLACK = 1e-4f;
+
+    private float[] data;
+    private float[] bounds;
+    private boolean[] colorful;
+    private int size = 0;
+
+    private final Map<ImageHistogram, Integer> slots = new IdentityHashMap<>();
+
+
+    /**
+     * @param capacity Number of histograms to make space for. The store grows as needed.
+     */
+    public HistogramStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        data = new float[capacity * HISTOGRAM_SIZE];
+        bounds = new float[capacity * BOUNDS_SIZE];
+        colorful = new boolean[capacity];
+    }
+
+    /**
+     * Adds a histogram to this store, if it is not already stored.
+     *
+     * @param histogram Histogram to add.
+     * @return Slot of the histogram.
+     */
+    public int add(ImageHistogram histogram) {
+        Integer existing = slots.get(histogram);
+        if (existing != null) return existing;
+
+        if (size == colorful.length) {
+            data = Arrays.copyOf(data, size * 2 * HISTOGRAM_SIZE);
+            bounds = Arrays.copyOf(bounds, size * 2 * BOUNDS_SIZE);
+            colorful = Arrays.copyOf(colorful, size * 2);
+        }
+
+        final int slot = size++;
+        pack(histogram, data, slot * HISTOGRAM_SIZE);
+        packBounds(data, slot * HISTOGRAM_SIZE, bounds, slot * BOUNDS_SIZE);
+        colorful[slot] = histogram.isColorful();
+        slots.put(histogram, slot);
+
+        return slot;
+    }
+
+    /**
+     * @return Number of histograms in this store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param slot Slot of a histogram.
+     * @return True if the histogram is colorful. See {@link ImageHistogram#isColorful()}.
+     */
+    public boolean isColorful(int slot) {
+        return colorful[slot];
+    }
+
+    /**
+     * @return The packed histograms. Only the first {@link #size()} * {@link #HISTOGRAM_SIZE} floats are used.
+     */
+    public float[] getData() {
+        return data;
+    }
+
+    /**
+     * Compares two stored histograms in the same way as {@link ImageHistogram#getSimilarity(ImageHistogram)}, in single
+     * precision.
+     *
+     * @param a Slot of the first histogram.
+     * @param b Slot of the second histogram.
+     * @return Percent similarity [0.0-1.0].
+     */
+    public double getSimilarity(int a, int b) {
+        return 1 - getDistance(a, b) / 8;
+    }
+
+    /**
+     * @param a Slot of the first histogram.
+     * @param b Slot of the second histogram.
+     * @return Sum of the absolute differences of every bin of the two histograms [0.0-8.0].
+     */
+    public float getDistance(int a, int b) {
+        return distance(data, a * HISTOGRAM_SIZE, b * HISTOGRAM_SIZE);
+    }
+
+    /**
+     * Compares two stored histograms, giving up as soon as their distance is known to be over a budget. The lower bounds
+     * are checked first, then the bins are summed a channel at a time until the partial sum passes the budget.
+     *
+     * @param a      Slot of the first histogram.
+     * @param b      Slot of the second histogram.
+     * @param budget Greatest distance of interest.
+     * @return The same distance as {@link #getDistance(int, int)} if it is within the budget. Otherwise some value over the
+     * budget, and no greater than the distance.
+     */
+    public float getDistanceWithin(int a, int b, float budget) {
+        final float bound = lowerBound(bounds, a * BOUNDS_SIZE, bounds, b * BOUNDS_SIZE);
+        if (bound - BOUND_SLACK > budget) return bound - BOUND_SLACK;
+
+        return distanceWithin(data, a * HISTOGRAM_SIZE, data, b * HISTOGRAM_SIZE, budget);
+    }
+
+    /**
+     * @param a Slot of the first histogram.
+     * @param b Slot of the second histogram.
+     * @return A lower bound of the distance between the histograms, up to rounding error.
+     */
+    public float getLowerBound(int a, int b) {
+        return lowerBound(bounds, a * BOUNDS_SIZE, bounds, b * BOUNDS_SIZE);
+    }
+
+    /**
+     * Packs the bins of a histogram into an array, in the layout used by this store.
+     *
+     * @param histogram Histogram to pack.
+     * @param dest      Array to pack into.
+     * @param offset    Offset to pack the histogram at.
+     */
+    static void pack(ImageHistogram histogram, float[] dest, int offset) {
+        final double[][] channels = {histogram.getAlpha(), histogram.getRed(), histogram.getGreen(), histogram.getBlue()};
+        for (int c = 0; c < ImageHistogram.NUM_CHANNELS; c++) {
+            for (int i = 0; i < ImageHistogram.BIN_SIZE; i++) {
+                dest[offset + c * ImageHistogram.BIN_SIZE + i] = (float) channels[c][i];
+            }
+        }
+    }
+
+    /**
+     * Computes the lower bound values of a packed histogram: for each channel, its first moment around the middle bin,
+     * scaled so the difference between two channels' moments is at most their L1 distance, and its total mass.
+     *
+     * @param data         Array holding the histogram.
+     * @param offset       Offset of the histogram.
+     * @param dest         Array to write the bound values into.
+     * @param boundsOffset Offset to write the {@link #BOUNDS_SIZE} values at.
+     */
+    static void packBounds(float[] data, int offset, float[] dest, int boundsOffset) {
+        final float middle = (ImageHistogram.BIN_SIZE - 1) / 2f;
+        for (int c = 0; c < ImageHistogram.NUM_CHANNELS; c++) {
+            float moment = 0, mass = 0;
+            for (int i = 0; i < ImageHistogram.BIN_SIZE; i++) {
+                final float bin = data[offset + c * ImageHistogram.BIN_SIZE + i];
+                moment += (i - middle) * bin;
+                mass += bin;
+            }
+            dest[boundsOffset + 2 * c] = moment / middle;
+            dest[boundsOffset + 2 * c + 1] = mass;
+        }
+    }
+
+    /**
+     * Each channel's L1 distance is at least the difference of its masses, and at least the difference of its scaled
+     * moments, since no bin is further than the scale from the middle.
+     *
+     * @return Sum over the channels of the greater of the two bounds.
+     */
+    static float lowerBound(float[] a, int offsetA, float[] b, int offsetB) {
+        float bound = 0;
+        for (int c = 0; c < BOUNDS_SIZE; c += 2) {
+            bound += Math.max(Math.abs(a[offsetA + c] - b[offsetB + c]), Math.abs(a[offsetA + c + 1] - b[offsetB + c + 1]));
+        }
+        return bound;
+    }
+
+    /**
+     * Sums the absolute differences of two histograms in the same array.
+     *
+     * @param data    Packed histograms.
+     * @param offsetA Offset of the first histogram.
+     * @param offsetB Offset of the second histogram.
+     * @return L1 distance between the histograms.
+     */
+    static float distance(float[] data, int offsetA, int offsetB) {
+        return distance(data, offsetA, data, offsetB);
+    }
+
+    /**
+     * Sums the absolute differences of two packed histograms. Kept as a simple counted loop, with independent partial
+     * sums, so the JIT can unroll and vectorize it.
+     *
+     * @param a       Array holding the first histogram.
+     * @param offsetA Offset of the first histogram.
+     * @param b       Array holding the second histogram.
+     * @param offsetB Offset of the second histogram.
+     * @return L1 distance between the histograms.
+     */
+    static float distance(float[] a, int offsetA, float[] b, int offsetB) {
+        float d0 = 0, d1 = 0, d2 = 0, d3 = 0;
+        for (int i = 0; i < HISTOGRAM_SIZE; i += 4) {
+            d0 += Math.abs(a[offsetA + i] - b[offsetB + i]);
+            d1 += Math.abs(a[offsetA + i + 1] - b[offsetB + i + 1]);
+            d2 += Math.abs(a[offsetA + i + 2] - b[offsetB + i + 2]);
+            d3 += Math.abs(a[offsetA + i + 3] - b[offsetB + i + 3]);
+        }
+        return (d0 + d1) + (d2 + d3);
+    }
+
+    /**
+     * Sums the absolute differences of two packed histograms in the same order as
+     * {@link #distance(float[], int, float[], int)}, checking the partial sum against a budget after each channel.
+     *
+     * @return The L1 distance if it is within the budget, otherwise the first partial sum over it.
+     */
+    static float distanceWithin(float[] a, int offsetA, float[] b, int offsetB, float budget) {
+        float d0 = 0, d1 = 0, d2 = 0, d3 = 0;
+        for (int c = 0; c < HISTOGRAM_SIZE; c += ImageHistogram.BIN_SIZE) {
+            for (int i = c; i < c + ImageHistogram.BIN_SIZE; i += 4) {
+                d0 += Math.abs(a[offsetA + i] - b[offsetB + i]);
+                d1 += Math.abs(a[offsetA + i + 1] - b[offsetB + i + 1]);
+                d2 += Math.abs(a[offsetA + i + 2] - b[offsetB + i + 2]);
+                d3 += Math.abs(a[offsetA + i + 3] - b[offsetB + i + 3]);
+            }
+            final float partial = (d0 + d1) + (d2 + d3);
+            if (partial > budget) return partial;
+        }
+        return (d0 + d1) + (d2 + d3);
+    }
+
+}
@@ -48,6 +48,7 @@ public final class ImageHistogram {
     private final double[] blue;
 
     private Boolean colorful = null;
+    private double[] bounds = null;
 
 
     /**
@@ -192,6 +193,74 @@ public final class ImageHistogram {
         return 1 - (da + dr + dg + db) / 8;
     }
 
+    /**
+     * Compares two histograms, giving up as soon as they are known to be less similar than a minimum. A lower bound of
+     * the distance from each channel's mean and mass is checked first, then channels are compared one at a time.
+     *
+     * @param other         Other histogram to compare to.
+     * @param minSimilarity Least similarity of interest.
+     * @return The same similarity as {@link #getSimilarity(ImageHistogram)} if it is at least the minimum. Otherwise some
+     * value under the minimum, and no less than the similarity.
+     */
+    public double getSimilarity(ImageHistogram other, double minSimilarity) {
+        final double budget = (1 - minSimilarity) * 8;
+        final double bound = getLowerBound(other) - 1e-9;
+        if (bound > budget) return 1 - bound / 8;
+
+        final double[][] channels = {alpha, red, green, blue}, otherChannels = {other.alpha, other.red, other.green, other.blue};
+        double d = 0;
+        for (int c = 0; c < NUM_CHANNELS; c++) {
+            final double[] channel = channels[c], otherChannel = otherChannels[c];
+            double dc = 0;
+            for (int i = 0; i < BIN_SIZE; i++) {
+                dc += Math.abs(channel[i] - otherChannel[i]);
+            }
+            d += dc;
+            if (d > budget) break;
+        }
+
+        return 1 - d / 8;
+    }
+
+    /**
+     * @param other Other histogram.
+     * @return A lower bound of the sum of the absolute differences of the two histograms' bins, up to rounding error.
+     */
+    double getLowerBound(ImageHistogram other) {
+        final double[] a = getBounds(), b = other.getBounds();
+        double bound = 0;
+        for (int c = 0; c < a.length; c += 2) {
+            bound += Math.max(Math.abs(a[c] - b[c]), Math.abs(a[c + 1] - b[c + 1]));
+        }
+        return bound;
+    }
+
+    /**
+     * Each channel's first moment around the middle bin, scaled so that the difference of two channels' moments is at
+     * most their L1 distance, followed by its mass.
+     *
+     * @return Moment and mass of each channel.
+     */
+    private double[] getBounds() {
+        if (bounds == null) {
+            final double middle = (BIN_SIZE - 1) / 2.0;
+            final double[][] channels = {alpha, red, green, blue};
+            double[] values = new double[2 * NUM_CHANNELS];
+            for (int c = 0; c < NUM_CHANNELS; c++) {
+                double moment = 0, mass = 0;
+                for (int i = 0; i < BIN_SIZE; i++) {
+                    moment += (i - middle) * channels[c][i];
+                    mass += channels[c][i];
+                }
+                values[2 * c] = moment / middle;
+                values[2 * c + 1] = mass;
+            }
+            bounds = values;
+        }
+
+        return bounds;
+    }
+
     /**
      * Converts an array into a stream.
      *
@@ -303,20 +303,19 @@ public class ImportJob {
             final double confidence = settings.duplicatesConfidence.getValue();
             final double confidenceSquare = 1 - (1 - confidence) * (1 - confidence);
             boolean anyMinimallySimilar = false;
-            for (Item i : menagerie.getItems()) {
-                if (i instanceof MediaItem && !item.equals(i) && ((MediaItem) i).getHistogram() != null) {
-                    double similarity = ((MediaItem) i).getSimilarityTo(item);
+            for (MediaItem i : menagerie.getItemsWithSimilarHistogram(item.getHistogram(), MediaItem.MIN_CONFIDENCE)) {
+                if (item.equals(i)) continue;
+                double similarity = i.getSimilarityTo(item, MediaItem.MIN_CONFIDENCE);
 
-                    if (similarity > MediaItem.MIN_CONFIDENCE) {
-                        anyMinimallySimilar = true;
-                        if (((MediaItem) i).hasNoSimilar()) ((MediaItem) i).setHasNoSimilar(false);
-                    }
+                if (similarity > MediaItem.MIN_CONFIDENCE) {
+                    anyMinimallySimilar = true;
+                    if (i.hasNoSimilar()) i.setHasNoSimilar(false);
+                }
 
-                    if (similarity >= confidenceSquare || (similarity >= confidence && item.getHistogram().isColorful() && ((MediaItem) i).getHistogram().isColorful())) {
-                        synchronized (this) {
-                            LOGGER.info("Found similar item (To ID: " + item.getId() + "): " + i.getId());
-                            similarTo.add(new SimilarPair<>(item, (MediaItem) i, similarity));
-                        }
+                if (similarity >= confidenceSquare || (similarity >= confidence && item.getHistogram().isColorful() && i.getHistogram().isColorful())) {
+                    synchronized (this) {
+                        LOGGER.info("Found similar item (To ID: " + item.getId() + "): " + i.getId());
+                        similarTo.add(new SimilarPair<>(item, i, similarity));
                     }
                 }
             }
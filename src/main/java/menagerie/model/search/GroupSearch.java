@@ -27,6 +27,9 @@ package menagerie.model.search;
 import menagerie.model.menagerie.GroupItem;
 import menagerie.model.menagerie.Item;
 import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.BitSet;
 
 public class GroupSearch extends Search {
 
@@ -58,16 +61,17 @@ public class GroupSearch extends Search {
     }
 
     @Override
-    protected boolean isItemValid(Item item) {
-        if (item instanceof MediaItem) {
-            if (!((MediaItem) item).isInGroup() || !((MediaItem) item).getGroup().equals(group)) {
-                return false;
-            }
-        } else {
-            return false;
+    public BitSet getCandidateIDs(Menagerie menagerie) {
+        BitSet ids = new BitSet();
+        for (MediaItem element : group.getElements()) {
+            ids.set(element.getId());
         }
+        return ids;
+    }
 
-        return super.isItemValid(item);
+    @Override
+    protected boolean isInScope(Item item) {
+        return item instanceof MediaItem && ((MediaItem) item).isInGroup() && ((MediaItem) item).getGroup().equals(group);
     }
 
     public GroupItem getGroup() {
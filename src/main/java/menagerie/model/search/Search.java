@@ -25,52 +25,79 @@
 package menagerie.model.search;
 
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import menagerie.model.menagerie.Item;
 import menagerie.model.menagerie.MediaItem;
-import menagerie.model.search.rules.*;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.search.query.QueryNode;
+import menagerie.model.search.query.QueryParser;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Random;
 
 /**
  * Data class that contains results of a search filtered and sorted by the given rules.
  */
 public class Search {
 
-    private static final Logger LOGGER = Logger.getLogger(Search.class.getName());
-
-    private final List<SearchRule> rules = new ArrayList<>();
+    private final QueryNode query;
     private final boolean showGrouped;
     private final boolean descending;
     private final boolean shuffled;
+    private final long seed;
     private final String searchString;
 
     private final ObservableList<Item> results = FXCollections.observableArrayList();
+    private final BitSet resultIDs = new BitSet();
 
     protected Comparator<Item> comparator;
 
 
     /**
-     * Constructs a search with given rules.
+     * Constructs a search with given rules. Shuffled results are ordered by a new random seed.
      *
      * @param search      User input string to parse.
      * @param descending  Sort the results descending.
      * @param showGrouped Show items that are part of a group.
+     * @param shuffled    Order the results randomly.
      */
     public Search(String search, boolean descending, boolean showGrouped, boolean shuffled) {
+        this(search, descending, showGrouped, shuffled, new Random().nextLong());
+    }
+
+    /**
+     * Constructs a search with given rules.
+     *
+     * @param search      User input string to parse.
+     * @param descending  Sort the results descending.
+     * @param showGrouped Show items that are part of a group.
+     * @param shuffled    Order the results randomly.
+     * @param seed        Seed of the random order. The same seed always produces the same order.
+     */
+    public Search(String search, boolean descending, boolean showGrouped, boolean shuffled, long seed) {
         this.descending = descending;
         this.showGrouped = showGrouped;
         this.shuffled = shuffled;
+        this.seed = seed;
         this.searchString = search;
 
-        if (search != null && !search.isEmpty()) parseRules(search);
-        rules.sort(null);
+        this.query = QueryParser.parse(search);
+
+        results.addListener((ListChangeListener<? super Item>) c -> {
+            while (c.next()) {
+                c.getRemoved().forEach(item -> resultIDs.clear(item.getId()));
+                c.getAddedSubList().forEach(item -> resultIDs.set(item.getId()));
+            }
+        });
 
         comparator = (o1, o2) -> {
-            if (shuffled) return 0;
+            if (shuffled) return Long.compare(getShuffleKey(o1.getId()), getShuffleKey(o2.getId()));
             if (descending) {
                 return o2.getId() - o1.getId();
             } else {
@@ -79,140 +106,43 @@ public class Search {
         };
     }
 
-    protected void parseRules(String search) {
-        // this would be a test str"ing that doesn't tokenize the "quotes
-        // This would be a test "string that DOES tokenize the quotes"
-        // "This   " too
-        List<String> tokens = tokenize(search);
-
-        // OLD
-        for (String arg : tokens) {
-            if (arg == null || arg.isEmpty()) continue;
-
-            boolean inverted = false;
-            if (arg.charAt(0) == '-') {
-                inverted = true;
-                arg = arg.substring(1);
-            }
-
-            if (arg.startsWith("id:")) {
-                String temp = arg.substring(arg.indexOf(':') + 1);
-                IDRule.Type type = IDRule.Type.EQUAL_TO;
-                if (temp.startsWith("<")) {
-                    type = IDRule.Type.LESS_THAN;
-                    temp = temp.substring(1);
-                } else if (temp.startsWith(">")) {
-                    type = IDRule.Type.GREATER_THAN;
-                    temp = temp.substring(1);
-                }
-                try {
-                    rules.add(new IDRule(type, Integer.parseInt(temp), inverted));
-                } catch (NumberFormatException e) {
-                    LOGGER.warning("Failed to convert parameter to integer: " + temp);
-                }
-            } else if (arg.startsWith("date:") || arg.startsWith("time:")) {
-                String temp = arg.substring(arg.indexOf(':') + 1);
-                DateAddedRule.Type type = DateAddedRule.Type.EQUAL_TO;
-                if (temp.startsWith("<")) {
-                    type = DateAddedRule.Type.LESS_THAN;
-                    temp = temp.substring(1);
-                } else if (temp.startsWith(">")) {
-                    type = DateAddedRule.Type.GREATER_THAN;
-                    temp = temp.substring(1);
-                }
-                try {
-                    rules.add(new DateAddedRule(type, Long.parseLong(temp), inverted));
-                } catch (NumberFormatException e) {
-                    LOGGER.warning("Failed to convert parameter to long: " + temp);
-                }
-            } else if (arg.startsWith("path:") || arg.startsWith("file:")) {
-                rules.add(new FilePathRule(arg.substring(arg.indexOf(':') + 1), inverted));
-            } else if (arg.startsWith("missing:")) {
-                String type = arg.substring(arg.indexOf(':') + 1);
-                switch (type.toLowerCase()) {
-                    case "md5":
-                        rules.add(new MissingRule(MissingRule.Type.MD5, inverted));
-                        break;
-                    case "file":
-                        rules.add(new MissingRule(MissingRule.Type.FILE, inverted));
-                        break;
-                    case "histogram":
-                    case "hist":
-                        rules.add(new MissingRule(MissingRule.Type.HISTOGRAM, inverted));
-                        break;
-                    default:
-                        LOGGER.warning("Unknown type for missing type: " + type);
-                        break;
-                }
-            } else if (arg.startsWith("type:") || arg.startsWith("is:")) {
-                String type = arg.substring(arg.indexOf(':') + 1);
-                if (type.equalsIgnoreCase("group")) {
-                    rules.add(new TypeRule(TypeRule.Type.GROUP, inverted));
-                } else if (type.equalsIgnoreCase("media")) {
-                    rules.add(new TypeRule(TypeRule.Type.MEDIA, inverted));
-                } else if (type.equalsIgnoreCase("image")) {
-                    rules.add(new TypeRule(TypeRule.Type.IMAGE, inverted));
-                } else if (type.equalsIgnoreCase("video")) {
-                    rules.add(new TypeRule(TypeRule.Type.VIDEO, inverted));
-                }
-            } else if (arg.startsWith("tags:")) {
-                String temp = arg.substring(arg.indexOf(':') + 1);
-                TagCountRule.Type type = TagCountRule.Type.EQUAL_TO;
-                if (temp.startsWith("<")) {
-                    type = TagCountRule.Type.LESS_THAN;
-                    temp = temp.substring(1);
-                } else if (temp.startsWith(">")) {
-                    type = TagCountRule.Type.GREATER_THAN;
-                    temp = temp.substring(1);
-                }
-                try {
-                    rules.add(new TagCountRule(type, Integer.parseInt(temp), inverted));
-                } catch (NumberFormatException e) {
-                    LOGGER.warning("Failed to convert parameter to integer: " + temp);
-                }
-            } else if (arg.startsWith("title:")) {
-                String temp = arg.substring(arg.indexOf(':') + 1);
-                if (temp.charAt(0) == '"') temp = temp.substring(1); // Strip first quote
-                if (temp.charAt(temp.length() - 1) == '"') temp = temp.substring(0, temp.length() - 1); // Strip second quote
-                rules.add(new TitleRule(temp, inverted));
-            } else {
-                rules.add(new TagRule(arg, inverted));
-            }
-        }
+    /**
+     * @return List of all results currently in the search. Is a direct reference to the backing list.
+     */
+    public ObservableList<Item> getResults() {
+        return results;
     }
 
-    private List<String> tokenize(String search) {
-        List<String> tokens = new ArrayList<>();
-        int i = 0;
-        while (i < search.length()) {
-            // Read a word
-            int k = i + 1;
-            while (k < search.length() && !Character.isWhitespace(search.charAt(k))) {
-                if (search.charAt(k - 1) == ':' && search.charAt(k) == '"') {
-                    k++;
-                    while (k < search.length() && search.charAt(k) != '"') {
-                        k++;
-                    }
-                }
-
-                k++;
-            }
+    /**
+     * @return Root node of the parsed search query. Null if the search has no terms.
+     */
+    public QueryNode getQuery() {
+        return query;
+    }
 
-            tokens.add(search.substring(i, k));
-            i = k;
-            while (i < search.length() && search.charAt(i) == ' ') {
-                i++;
-            }
-        }
+    /**
+     * @return True if the results of this search only change when items change, so they can be cached.
+     */
+    public boolean isCacheable() {
+        return query == null || query.isCacheable();
+    }
 
-        return tokens;
+    /**
+     * @return True if this search has slow work to do before it is evaluated, which should be done off the JavaFX thread
+     * with {@link #prepare(Menagerie, BitSet)}.
+     */
+    public boolean needsPreparation() {
+        return query != null && query.needsPreparation();
     }
 
     /**
-     * @return List of all results currently in the search. Is a direct reference to the backing list.
+     * Does slow work needed before this search is evaluated, e.g. checking the file system. Can be called from any thread.
+     *
+     * @param menagerie  Menagerie being searched.
+     * @param candidates IDs of items that will be checked. Not modified.
      */
-    public ObservableList<Item> getResults() {
-        return results;
+    public void prepare(Menagerie menagerie, BitSet candidates) {
+        if (query != null) query.prepare(menagerie, candidates);
     }
 
     public String getSearchString() {
@@ -231,6 +161,30 @@ public class Search {
         return shuffled;
     }
 
+    /**
+     * @return Seed of the random order used when this search is shuffled.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Maps an item ID to its position in the shuffled order of this search. The upper half of the key is a hash of the
+     * ID and seed, and the lower half is the ID itself, so keys are unique and can be sorted as primitives.
+     *
+     * @param id ID of the item.
+     * @return Sort key of the item when shuffled.
+     */
+    long getShuffleKey(int id) {
+        // SplitMix64 finalizer
+        long z = seed + id * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+
+        return (z & 0xFFFFFFFF00000000L) | id;
+    }
+
     /**
      * @return The comparator being used to sort search results.
      */
@@ -248,7 +202,7 @@ public class Search {
         List<Item> toAdd = new ArrayList<>();
         for (Item item : check) {
             if (isItemValid(item)) {
-                if (!results.contains(item)) {
+                if (!resultIDs.get(item.getId())) {
                     toAdd.add(item);
                 }
             } else {
@@ -260,26 +214,110 @@ public class Search {
 
         results.removeAll(toRemove);
         if (isShuffled()) {
-            toAdd.forEach(item -> results.add((int) Math.floor(Math.random() * results.size()), item));
+            for (Item item : toAdd) {
+                int i = Collections.binarySearch(results, item, getComparator());
+                results.add(i < 0 ? -i - 1 : i, item);
+            }
         } else {
             results.addAll(toAdd);
         }
     }
 
-    protected boolean isItemValid(Item item) {
-        if (item.isInvalidated()) return false;
+    /**
+     * Evaluates this search over every item in a Menagerie and replaces the current results.
+     * <p>
+     * The query is evaluated as set operations over item ID bitmaps instead of checking items one by one.
+     *
+     * @param menagerie Menagerie to search.
+     */
+    public void refreshSearch(Menagerie menagerie) {
+        BitSet ids = getCandidateIDs(menagerie);
+        if (query != null) ids = query.filter(menagerie, ids);
+
+        setResults(menagerie, ids);
+    }
+
+    /**
+     * Replaces the current results with a set of items, in display order.
+     *
+     * @param menagerie Menagerie being searched.
+     * @param ids       IDs of the results.
+     */
+    void setResults(Menagerie menagerie, BitSet ids) {
+        List<Item> found = new ArrayList<>(ids.cardinality());
+        if (isShuffled()) {
+            long[] keys = new long[ids.cardinality()];
+            int i = 0;
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                keys[i++] = getShuffleKey(id);
+            }
+            Arrays.sort(keys);
 
-        if (item instanceof MediaItem && ((MediaItem) item).getGroup() != null && !showGrouped) {
-            return false;
+            for (long key : keys) {
+                Item item = menagerie.getItemByID((int) key);
+                if (item != null && !item.isInvalidated() && isInScope(item)) found.add(item);
+            }
+            results.setAll(found);
         } else {
-            for (SearchRule rule : rules) {
-                if (!rule.accept(item)) {
-                    return false;
-                }
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                Item item = menagerie.getItemByID(id);
+                if (item != null && !item.isInvalidated() && isInScope(item)) found.add(item);
             }
+            results.setAll(found);
+            sort();
         }
+    }
+
+    /**
+     * Adds items to the results of this search, skipping any that are already present.
+     *
+     * @param items Items that have been found to be valid in this search.
+     */
+    public void addResults(List<Item> items) {
+        List<Item> toAdd = new ArrayList<>(items.size());
+        for (Item item : items) {
+            if (!resultIDs.get(item.getId())) toAdd.add(item);
+        }
+        results.addAll(toAdd);
+    }
+
+    /**
+     * Finds the results of this search among some of the candidates.
+     *
+     * @param menagerie  Menagerie being searched.
+     * @param candidates IDs of items to check. Not modified.
+     * @return IDs of valid results among the candidates.
+     */
+    BitSet findResultIDs(Menagerie menagerie, BitSet candidates) {
+        BitSet ids = query != null ? query.filter(menagerie, candidates) : (BitSet) candidates.clone();
+
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            Item item = menagerie.getItemByID(id);
+            if (item == null || item.isInvalidated() || !isInScope(item)) ids.clear(id);
+        }
+        return ids;
+    }
+
+    /**
+     * @param menagerie Menagerie being searched.
+     * @return IDs of all items that could possibly be results of this search.
+     */
+    public BitSet getCandidateIDs(Menagerie menagerie) {
+        return menagerie.getItemIDs();
+    }
+
+    /**
+     * @param item Item to check.
+     * @return True if the item is within the scope of this search, regardless of the search query.
+     */
+    protected boolean isInScope(Item item) {
+        return showGrouped || !(item instanceof MediaItem) || ((MediaItem) item).getGroup() == null;
+    }
+
+    protected boolean isItemValid(Item item) {
+        if (item.isInvalidated() || !isInScope(item)) return false;
 
-        return true;
+        return query == null || query.accept(item);
     }
 
     public void sort() {
@@ -37,15 +37,17 @@ public class SearchHistory {
     private final boolean descending;
     private final boolean showGrouped;
     private final boolean shuffled;
+    private final long seed;
     private final GroupItem groupScope;
 
 
-    public SearchHistory(String search, GroupItem scope, List<Item> selected, boolean descending, boolean showGrouped, boolean shuffled) {
+    public SearchHistory(String search, GroupItem scope, List<Item> selected, boolean descending, boolean showGrouped, boolean shuffled, long seed) {
         this.search = search;
         this.groupScope = scope;
         this.descending = descending;
         this.showGrouped = showGrouped;
         this.shuffled = shuffled;
+        this.seed = seed;
         this.selected.addAll(selected);
     }
 
@@ -73,4 +75,8 @@ public class SearchHistory {
         return shuffled;
     }
 
+    public long getSeed() {
+        return seed;
+    }
+
 }
@@ -0,0 +1,166 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.search;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Least recently used cache of materialized search results, keyed by search string and scope.
+ * <p>
+ * Cached results are patched with the items modified since they were stored, so revisiting a recent search only
+ * re-evaluates the items that have changed instead of the entire Menagerie. Searches whose results can change without
+ * any item changing (relative dates, missing files) are never cached.
+ */
+public class SearchResultCache {
+
+    private static final Logger LOGGER = Logger.getLogger(SearchResultCache.class.getName());
+
+    private final Map<Key, CachedResults> cache;
+
+
+    /**
+     * @param capacity Maximum number of searches to keep results for.
+     */
+    public SearchResultCache(int capacity) {
+        cache = new LinkedHashMap<Key, CachedResults>(capacity + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResults> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Fills a search with its results, using cached results if they exist and are recent enough to be patched.
+     * Otherwise the search is evaluated and its results are cached.
+     *
+     * @param search    Search to fill with results.
+     * @param menagerie Menagerie the search is operating on.
+     */
+    public void populate(Search search, Menagerie menagerie) {
+        if (!restore(search, menagerie)) {
+            final long modificationCount = menagerie.getModificationCount();
+            search.refreshSearch(menagerie);
+            store(search, menagerie, modificationCount);
+        }
+    }
+
+    /**
+     * Attempts to fill a search with cached results, patching them with any items that have been modified since they
+     * were cached.
+     *
+     * @param search    Search to fill with results.
+     * @param menagerie Menagerie the search is operating on.
+     * @return True if the search was filled from the cache. False if there are no usable cached results.
+     */
+    public boolean restore(Search search, Menagerie menagerie) {
+        if (!search.isCacheable()) return false;
+        final long modificationCount = menagerie.getModificationCount();
+
+        CachedResults cached = cache.get(new Key(search));
+        if (cached == null || cached.menagerie != menagerie) return false;
+
+        List<Item> modified = menagerie.getItemsModifiedSince(cached.modificationCount);
+        if (modified == null) return false;
+
+        for (Item item : modified) {
+            cached.ids.set(item.getId(), search.isItemValid(item));
+        }
+        cached.modificationCount = modificationCount;
+
+        search.setResults(menagerie, cached.ids);
+
+        LOGGER.info("Reused cached results for search: \"" + search.getSearchString() + "\", patched " + modified.size() + " modifications");
+        return true;
+    }
+
+    /**
+     * Caches the current results of a search.
+     *
+     * @param search            Search whose results are complete.
+     * @param menagerie         Menagerie the search is operating on.
+     * @param modificationCount Modification count of the Menagerie from before the search was evaluated.
+     */
+    public void store(Search search, Menagerie menagerie, long modificationCount) {
+        if (!search.isCacheable()) return;
+
+        BitSet ids = new BitSet();
+        for (Item item : search.getResults()) {
+            ids.set(item.getId());
+        }
+        cache.put(new Key(search), new CachedResults(menagerie, ids, modificationCount));
+    }
+
+    /**
+     * Identifies the result set of a search. Ordering flags are deliberately excluded since they do not change which
+     * items are in the results.
+     */
+    private static final class Key {
+
+        private final String search;
+        private final int scope;
+        private final boolean showGrouped;
+
+
+        private Key(Search search) {
+            this.search = search.getSearchString() == null ? "" : search.getSearchString().trim();
+            this.scope = search instanceof GroupSearch ? ((GroupSearch) search).getGroup().getId() : -1;
+            this.showGrouped = search.isShowGrouped();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return scope == other.scope && showGrouped == other.showGrouped && search.equals(other.search);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(search, scope, showGrouped);
+        }
+
+    }
+
+    private static final class CachedResults {
+
+        private final Menagerie menagerie;
+        private final BitSet ids;
+        private long modificationCount;
+
+
+        private CachedResults(Menagerie menagerie, BitSet ids, long modificationCount) {
+            this.menagerie = menagerie;
+            this.ids = ids;
+            this.modificationCount = modificationCount;
+        }
+
+    }
+
+}
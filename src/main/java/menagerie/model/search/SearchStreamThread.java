@@ -0,0 +1,163 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.search;
+
+import javafx.application.Platform;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.util.CancellableThread;
+import menagerie.util.listeners.ObjectListener;
+import menagerie.util.listeners.PokeListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread that evaluates a search in chunks of item IDs, in the order the results will be displayed, and publishes each
+ * chunk's results as soon as they are found.
+ * <p>
+ * Chunks start small so the first results are available quickly, and grow as the search progresses. Items are only read on
+ * the JavaFX thread, where they are changed, so each chunk is evaluated there. Slow work the search needs first, like
+ * checking files, is done on this thread.
+ */
+public class SearchStreamThread extends CancellableThread {
+
+    private static final Logger LOGGER = Logger.getLogger(SearchStreamThread.class.getName());
+
+    private static final int FIRST_CHUNK_SIZE = 1024;
+    private static final int MAX_CHUNK_SIZE = 65536;
+
+    private final Search search;
+    private final Menagerie menagerie;
+    private final ObjectListener<List<Item>> batchListener;
+    private final PokeListener finishListener;
+
+
+    /**
+     * @param search         Search to evaluate. Results are not added to the search by this thread.
+     * @param menagerie      Menagerie to search.
+     * @param batchListener  Listener notified with each batch of results, in display order. Called on the JavaFX thread.
+     * @param finishListener Listener notified when every item has been checked. Not called if this thread is cancelled.
+     */
+    public SearchStreamThread(Search search, Menagerie menagerie, ObjectListener<List<Item>> batchListener, PokeListener finishListener) {
+        super();
+        this.search = search;
+        this.menagerie = menagerie;
+        this.batchListener = batchListener;
+        this.finishListener = finishListener;
+
+        setName("Search Stream Thread");
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        final BitSet candidates = runOnFXThread(() -> search.getCandidateIDs(menagerie));
+        if (candidates == null) return;
+        final int end = candidates.length();
+
+        int chunkSize = FIRST_CHUNK_SIZE;
+        int from = search.isDescending() ? end : 0;
+        while (running && (search.isDescending() ? from > 0 : from < end)) {
+            int lo, hi;
+            if (search.isDescending()) {
+                hi = from;
+                lo = Math.max(0, hi - chunkSize);
+                from = lo;
+            } else {
+                lo = from;
+                hi = Math.min(end, lo + chunkSize);
+                from = hi;
+            }
+
+            BitSet chunk = new BitSet(hi);
+            for (int id = candidates.nextSetBit(lo); id >= 0 && id < hi; id = candidates.nextSetBit(id + 1)) {
+                chunk.set(id);
+            }
+            if (chunk.isEmpty()) continue;
+
+            search.prepare(menagerie, chunk);
+            if (!running) break;
+
+            final int top = hi;
+            if (runOnFXThread(() -> publish(chunk, top)) == null) return;
+
+            chunkSize = Math.min(MAX_CHUNK_SIZE, chunkSize * 2);
+        }
+
+        if (running && finishListener != null) finishListener.poke();
+    }
+
+    /**
+     * Evaluates a chunk and passes its results to the batch listener. Must be called on the JavaFX thread.
+     *
+     * @param chunk IDs of items to check.
+     * @param hi    Highest ID in the chunk, exclusive.
+     * @return Number of results in the chunk.
+     */
+    private int publish(BitSet chunk, int hi) {
+        if (!running) return 0;
+
+        BitSet ids = search.findResultIDs(menagerie, chunk);
+        if (ids.isEmpty()) return 0;
+
+        List<Item> batch = new ArrayList<>(ids.cardinality());
+        if (search.isDescending()) {
+            for (int id = ids.previousSetBit(hi - 1); id >= 0; id = ids.previousSetBit(id - 1)) {
+                Item item = menagerie.getItemByID(id);
+                if (item != null) batch.add(item);
+            }
+        } else {
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                Item item = menagerie.getItemByID(id);
+                if (item != null) batch.add(item);
+            }
+        }
+        batchListener.pass(batch);
+        return batch.size();
+    }
+
+    /**
+     * Runs a task on the JavaFX thread and waits for it to finish.
+     *
+     * @param task Task to run.
+     * @return Result of the task, or null if it failed or this thread was interrupted.
+     */
+    private static <T> T runOnFXThread(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, Platform::runLater).get();
+        } catch (InterruptedException | ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Failed to evaluate search on the JavaFX thread", e);
+            return null;
+        }
+    }
+
+}
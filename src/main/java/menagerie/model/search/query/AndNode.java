@@ -0,0 +1,106 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.search.query;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Query node that accepts items accepted by all of its children.
+ */
+public class AndNode extends QueryNode {
+
+    private final List<QueryNode> children = new ArrayList<>();
+
+
+    /**
+     * @param children Child nodes. Evaluated in order of priority.
+     */
+    public AndNode(List<QueryNode> children) {
+        this.children.addAll(children);
+        this.children.sort(Comparator.comparingInt(QueryNode::getPriority));
+    }
+
+    public List<QueryNode> getChildren() {
+        return children;
+    }
+
+    @Override
+    public int getPriority() {
+        return children.isEmpty() ? Integer.MAX_VALUE : children.get(0).getPriority();
+    }
+
+    @Override
+    public boolean isCacheable() {
+        for (QueryNode child : children) {
+            if (!child.isCacheable()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean needsPreparation() {
+        for (QueryNode child : children) {
+            if (child.needsPreparation()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void prepare(Menagerie menagerie, BitSet candidates) {
+        for (QueryNode child : children) {
+            child.prepare(menagerie, candidates);
+        }
+    }
+
+    @Override
+    public boolean accept(Item item) {
+        for (QueryNode child : children) {
+            if (!child.accept(item)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        BitSet result = candidates;
+        for (QueryNode child : children) {
+            if (result.isEmpty()) break;
+            result = child.filter(menagerie, result);
+        }
+        return result == candidates ? (BitSet) candidates.clone() : result;
+    }
+
+    @Override
+    public String toString() {
+        return "And" + children;
+    }
+
+}
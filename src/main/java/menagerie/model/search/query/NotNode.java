@@ -0,0 +1,88 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.search.query;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.BitSet;
+
+/**
+ * Query node that accepts items not accepted by its child.
+ */
+public class NotNode extends QueryNode {
+
+    private final QueryNode child;
+
+
+    /**
+     * @param child Node to negate.
+     */
+    public NotNode(QueryNode child) {
+        this.child = child;
+    }
+
+    public QueryNode getChild() {
+        return child;
+    }
+
+    @Override
+    public int getPriority() {
+        return child.getPriority();
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return child.isCacheable();
+    }
+
+    @Override
+    public boolean needsPreparation() {
+        return child.needsPreparation();
+    }
+
+    @Override
+    public void prepare(Menagerie menagerie, BitSet candidates) {
+        child.prepare(menagerie, candidates);
+    }
+
+    @Override
+    public boolean accept(Item item) {
+        return !child.accept(item);
+    }
+
+    @Override
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        BitSet result = (BitSet) candidates.clone();
+        result.andNot(child.filter(menagerie, candidates));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Not[" + child + "]";
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.search.query;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Query node that accepts items accepted by any of its children.
+ */
+public class OrNode extends QueryNode {
+
+    private final List<QueryNode> children = new ArrayList<>();
+
+
+    /**
+     * @param children Child nodes.
+     */
+    public OrNode(List<QueryNode> children) {
+        this.children.addAll(children);
+    }
+
+    public List<QueryNode> getChildren() {
+        return children;
+    }
+
+    @Override
+    public boolean isCacheable() {
+        for (QueryNode child : children) {
+            if (!child.isCacheable()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean needsPreparation() {
+        for (QueryNode child : children) {
+            if (child.needsPreparation()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void prepare(Menagerie menagerie, BitSet candidates) {
+        for (QueryNode child : children) {
+            child.prepare(menagerie, candidates);
+        }
+    }
+
+    @Override
+    public boolean accept(Item item) {
+        for (QueryNode child : children) {
+            if (child.accept(item)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        BitSet result = new BitSet();
+        BitSet remaining = (BitSet) candidates.clone();
+        for (QueryNode child : children) {
+            if (remaining.isEmpty()) break;
+            // Only check candidates that haven't already been accepted by a previous child
+            BitSet accepted = child.filter(menagerie, remaining);
+            result.or(accepted);
+            remaining.andNot(accepted);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Or" + children;
+    }
+
+}
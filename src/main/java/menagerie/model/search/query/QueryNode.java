@@ -0,0 +1,96 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.search.query;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.BitSet;
+
+/**
+ * Node of a parsed search query.
+ */
+public abstract class QueryNode {
+
+    /**
+     * @return Evaluation order priority of this node. Lower priority nodes are evaluated first when intersecting.
+     */
+    public int getPriority() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return False if the items this node accepts depend on more than the items themselves, e.g. the current time or
+     * the file system, so its results can't be cached.
+     */
+    public boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * @return True if this node has slow work to do before it is evaluated, see {@link #prepare(Menagerie, BitSet)}.
+     */
+    public boolean needsPreparation() {
+        return false;
+    }
+
+    /**
+     * Does slow work this node needs before it is evaluated, e.g. checking the file system, so it can be done on a
+     * background thread while evaluation stays on the JavaFX thread. Must not read item state other than item files.
+     *
+     * @param menagerie  Menagerie the item IDs belong to.
+     * @param candidates IDs of items that will be checked. Not modified.
+     */
+    public void prepare(Menagerie menagerie, BitSet candidates) {
+    }
+
+    /**
+     * Checks whether a single item is accepted by this node.
+     *
+     * @param item Item to check.
+     * @return True if the item is accepted.
+     */
+    public abstract boolean accept(Item item);
+
+    /**
+     * Finds the candidates that are accepted by this node.
+     * <p>
+     * Nodes that can be answered from an index should override this. The default implementation is a filtered scan of
+     * the candidates.
+     *
+     * @param menagerie  Menagerie the item IDs belong to.
+     * @param candidates IDs of items to check. Not modified.
+     * @return IDs of accepted items, a subset of the candidates.
+     */
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        BitSet result = new BitSet();
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            Item item = menagerie.getItemByID(id);
+            if (item != null && accept(item)) result.set(id);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,427 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.search.query;
+
+import menagerie.model.search.rules.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses user search strings into a tree of query nodes.
+ * <p>
+ * Terms are implicitly AND'ed together, <code>|</code> separates alternatives, parentheses group terms, and a leading
+ * <code>-</code> negates a term or group. For example: <code>(cat | dog) -sketch type:image</code>
+ */
+public class QueryParser {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryParser.class.getName());
+
+    private static final String OPEN = "(";
+    private static final String NEGATED_OPEN = "-(";
+    private static final String CLOSE = ")";
+    private static final String OR = "|";
+
+    private static final Pattern RELATIVE_TIME_PATTERN = Pattern.compile("(\\d+)([hdwy])");
+    private static final Pattern CALENDAR_DATE_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+    private final List<String> tokens;
+    private int position = 0;
+
+
+    private QueryParser(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Parses a search string.
+     *
+     * @param search User input string to parse.
+     * @return Root node of the parsed query, or null if the search contains no terms.
+     */
+    public static QueryNode parse(String search) {
+        if (search == null || search.trim().isEmpty()) return null;
+
+        QueryParser parser = new QueryParser(tokenize(search));
+        List<QueryNode> nodes = new ArrayList<>();
+        while (parser.hasNext()) {
+            QueryNode node = parser.parseOr();
+            if (node != null) nodes.add(node);
+            if (parser.hasNext()) {
+                LOGGER.warning("Unbalanced closing parenthesis in search: " + search);
+                parser.next();
+            }
+        }
+
+        if (nodes.isEmpty()) return null;
+        if (nodes.size() == 1) return nodes.get(0);
+        return new AndNode(nodes);
+    }
+
+    private boolean hasNext() {
+        return position < tokens.size();
+    }
+
+    private String peek() {
+        return tokens.get(position);
+    }
+
+    private String next() {
+        return tokens.get(position++);
+    }
+
+    private QueryNode parseOr() {
+        List<QueryNode> alternatives = new ArrayList<>();
+        QueryNode first = parseAnd();
+        if (first != null) alternatives.add(first);
+
+        while (hasNext() && peek().equals(OR)) {
+            next();
+            QueryNode node = parseAnd();
+            if (node != null) alternatives.add(node);
+        }
+
+        if (alternatives.isEmpty()) return null;
+        if (alternatives.size() == 1) return alternatives.get(0);
+        return new OrNode(alternatives);
+    }
+
+    private QueryNode parseAnd() {
+        List<QueryNode> nodes = new ArrayList<>();
+        while (hasNext() && !peek().equals(OR) && !peek().equals(CLOSE)) {
+            String token = next();
+
+            QueryNode node;
+            if (token.equals(OPEN) || token.equals(NEGATED_OPEN)) {
+                node = parseOr();
+                if (hasNext() && peek().equals(CLOSE)) {
+                    next();
+                } else {
+                    LOGGER.warning("Missing closing parenthesis in search");
+                }
+                if (node != null && token.equals(NEGATED_OPEN)) node = new NotNode(node);
+            } else {
+                node = parseRule(token);
+            }
+
+            if (node != null) nodes.add(node);
+        }
+
+        if (nodes.isEmpty()) return null;
+        if (nodes.size() == 1) return nodes.get(0);
+        return new AndNode(nodes);
+    }
+
+    /**
+     * Parses a single search term into a rule.
+     *
+     * @param arg Term to parse. May start with a '-' to negate the rule.
+     * @return The parsed rule, or null if the term is malformed.
+     */
+    private static SearchRule parseRule(String arg) {
+        if (arg == null || arg.isEmpty()) return null;
+
+        boolean inverted = false;
+        if (arg.charAt(0) == '-') {
+            inverted = true;
+            arg = arg.substring(1);
+            if (arg.isEmpty()) return null;
+        }
+
+        if (arg.startsWith("id:")) {
+            String temp = arg.substring(arg.indexOf(':') + 1);
+            IDRule.Type type = IDRule.Type.EQUAL_TO;
+            if (temp.startsWith("<")) {
+                type = IDRule.Type.LESS_THAN;
+                temp = temp.substring(1);
+            } else if (temp.startsWith(">")) {
+                type = IDRule.Type.GREATER_THAN;
+                temp = temp.substring(1);
+            }
+            try {
+                return new IDRule(type, Integer.parseInt(temp), inverted);
+            } catch (NumberFormatException e) {
+                LOGGER.warning("Failed to convert parameter to integer: " + temp);
+            }
+        } else if (arg.startsWith("date:") || arg.startsWith("time:")) {
+            return parseDateRule(arg.substring(arg.indexOf(':') + 1), inverted);
+        } else if (arg.startsWith("path:") || arg.startsWith("file:")) {
+            return new FilePathRule(arg.substring(arg.indexOf(':') + 1), inverted);
+        } else if (arg.startsWith("missing:")) {
+            String type = arg.substring(arg.indexOf(':') + 1);
+            switch (type.toLowerCase()) {
+                case "md5":
+                    return new MissingRule(MissingRule.Type.MD5, inverted);
+                case "file":
+                    return new MissingRule(MissingRule.Type.FILE, inverted);
+                case "histogram":
+                case "hist":
+                    return new MissingRule(MissingRule.Type.HISTOGRAM, inverted);
+                default:
+                    LOGGER.warning("Unknown type for missing type: " + type);
+                    break;
+            }
+        } else if (arg.startsWith("type:") || arg.startsWith("is:")) {
+            String type = arg.substring(arg.indexOf(':') + 1);
+            if (type.equalsIgnoreCase("group")) {
+                return new TypeRule(TypeRule.Type.GROUP, inverted);
+            } else if (type.equalsIgnoreCase("media")) {
+                return new TypeRule(TypeRule.Type.MEDIA, inverted);
+            } else if (type.equalsIgnoreCase("image")) {
+                return new TypeRule(TypeRule.Type.IMAGE, inverted);
+            } else if (type.equalsIgnoreCase("video")) {
+                return new TypeRule(TypeRule.Type.VIDEO, inverted);
+            }
+        } else if (arg.startsWith("tags:")) {
+            String temp = arg.substring(arg.indexOf(':') + 1);
+            TagCountRule.Type type = TagCountRule.Type.EQUAL_TO;
+            if (temp.startsWith("<")) {
+                type = TagCountRule.Type.LESS_THAN;
+                temp = temp.substring(1);
+            } else if (temp.startsWith(">")) {
+                type = TagCountRule.Type.GREATER_THAN;
+                temp = temp.substring(1);
+            }
+            try {
+                return new TagCountRule(type, Integer.parseInt(temp), inverted);
+            } catch (NumberFormatException e) {
+                LOGGER.warning("Failed to convert parameter to integer: " + temp);
+            }
+        } else if (arg.startsWith("title:")) {
+            String temp = arg.substring(arg.indexOf(':') + 1);
+            if (temp.isEmpty()) return null;
+            if (temp.charAt(0) == '"') temp = temp.substring(1); // Strip first quote
+            if (!temp.isEmpty() && temp.charAt(temp.length() - 1) == '"') temp = temp.substring(0, temp.length() - 1); // Strip second quote
+            return new TitleRule(temp, inverted);
+        } else {
+            return new TagRule(arg, inverted);
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses the value of a date rule. Accepts milliseconds since epoch, calendar dates (<code>2024-01-01</code>), or,
+     * when compared with '&lt;' or '&gt;', ages relative to now (<code>7d</code>).
+     *
+     * @param value    Value of the term, including an optional leading comparison.
+     * @param inverted Negate the rule.
+     * @return The parsed rule, or null if the value is malformed.
+     */
+    private static SearchRule parseDateRule(String value, boolean inverted) {
+        DateAddedRule.Type type = DateAddedRule.Type.EQUAL_TO;
+        if (value.startsWith("<")) {
+            type = DateAddedRule.Type.LESS_THAN;
+            value = value.substring(1);
+        } else if (value.startsWith(">")) {
+            type = DateAddedRule.Type.GREATER_THAN;
+            value = value.substring(1);
+        }
+
+        Matcher relative = RELATIVE_TIME_PATTERN.matcher(value.toLowerCase());
+        if (relative.matches()) {
+            long unit;
+            switch (relative.group(2)) {
+                case "h":
+                    unit = TimeUnit.HOURS.toMillis(1);
+                    break;
+                case "d":
+                    unit = TimeUnit.DAYS.toMillis(1);
+                    break;
+                case "w":
+                    unit = TimeUnit.DAYS.toMillis(7);
+                    break;
+                default:
+                    unit = TimeUnit.DAYS.toMillis(365);
+                    break;
+            }
+            final long threshold = System.currentTimeMillis() - Long.parseLong(relative.group(1)) * unit;
+
+            // Comparisons are by age, so "less than 7 days" means added after the threshold
+            if (type == DateAddedRule.Type.LESS_THAN) {
+                return new DateAddedRule(DateAddedRule.Type.GREATER_THAN, threshold, true, inverted);
+            } else if (type == DateAddedRule.Type.GREATER_THAN) {
+                return new DateAddedRule(DateAddedRule.Type.LESS_THAN, threshold, true, inverted);
+            } else {
+                LOGGER.warning("Relative time must be compared with '<' or '>': " + value);
+                return null;
+            }
+        }
+
+        if (CALENDAR_DATE_PATTERN.matcher(value).matches()) {
+            try {
+                LocalDate date = LocalDate.parse(value);
+                final long start = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                final long end = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+
+                switch (type) {
+                    case LESS_THAN:
+                        return new DateAddedRule(DateAddedRule.Type.LESS_THAN, start, inverted);
+                    case GREATER_THAN:
+                        return new DateAddedRule(DateAddedRule.Type.GREATER_THAN, end, inverted);
+                    default:
+                        return new DateAddedRule(start, end, inverted);
+                }
+            } catch (DateTimeParseException e) {
+                LOGGER.warning("Failed to convert parameter to date: " + value);
+                return null;
+            }
+        }
+
+        try {
+            return new DateAddedRule(type, Long.parseLong(value), inverted);
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Failed to convert parameter to long: " + value);
+        }
+
+        return null;
+    }
+
+    /**
+     * Splits a search string into terms and structural tokens.
+     * <p>
+     * Parentheses are only treated as grouping when they are unbalanced within a word, so tag names such as
+     * <code>smile_(expression)</code> are left intact.
+     *
+     * @param search Search string.
+     * @return List of tokens.
+     */
+    static List<String> tokenize(String search) {
+        List<String> tokens = new ArrayList<>();
+        for (String word : splitWords(search)) {
+            for (String piece : splitAlternatives(word)) {
+                if (piece.equals(OR)) {
+                    tokens.add(OR);
+                    continue;
+                }
+
+                int opens = 0, closes = 0;
+                boolean quoted = false;
+                for (int i = 0; i < piece.length(); i++) {
+                    char c = piece.charAt(i);
+                    if (c == '"') quoted = !quoted;
+                    else if (!quoted && c == '(') opens++;
+                    else if (!quoted && c == ')') closes++;
+                }
+
+                boolean negated = piece.startsWith("-(");
+                int start = negated ? 1 : 0;
+                int leading = 0;
+                while (start + leading < piece.length() && piece.charAt(start + leading) == '(') leading++;
+                int trailing = 0;
+                while (trailing < piece.length() - start - leading && piece.charAt(piece.length() - 1 - trailing) == ')') trailing++;
+
+                int openers = opens > closes ? Math.min(leading, opens - closes) : 0;
+                int closers = closes > opens ? Math.min(trailing, closes - opens) : 0;
+
+                if (openers > 0) {
+                    tokens.add(negated ? NEGATED_OPEN : OPEN);
+                    for (int i = 1; i < openers; i++) tokens.add(OPEN);
+                } else {
+                    start = 0;
+                }
+
+                String term = piece.substring(start + openers, piece.length() - closers);
+                if (!term.isEmpty()) tokens.add(term);
+
+                for (int i = 0; i < closers; i++) tokens.add(CLOSE);
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Splits a search string on whitespace, keeping quoted values (<code>key:"some value"</code>) intact.
+     *
+     * @param search Search string.
+     * @return List of words.
+     */
+    private static List<String> splitWords(String search) {
+        // this would be a test str"ing that doesn't tokenize the "quotes
+        // This would be a test "string that DOES tokenize the quotes"
+        // "This   " too
+        List<String> words = new ArrayList<>();
+        int i = 0;
+        while (i < search.length() && Character.isWhitespace(search.charAt(i))) {
+            i++;
+        }
+        while (i < search.length()) {
+            // Read a word
+            int k = i + 1;
+            while (k < search.length() && !Character.isWhitespace(search.charAt(k))) {
+                if (search.charAt(k - 1) == ':' && search.charAt(k) == '"') {
+                    k++;
+                    while (k < search.length() && search.charAt(k) != '"') {
+                        k++;
+                    }
+                }
+
+                k++;
+            }
+
+            words.add(search.substring(i, Math.min(k, search.length())));
+            i = k;
+            while (i < search.length() && Character.isWhitespace(search.charAt(i))) {
+                i++;
+            }
+        }
+
+        return words;
+    }
+
+    /**
+     * Splits a word on unquoted '|' characters, keeping the separators as their own tokens.
+     *
+     * @param word Word to split.
+     * @return Pieces of the word.
+     */
+    private static List<String> splitAlternatives(String word) {
+        List<String> pieces = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '|' && !quoted) {
+                if (i > start) pieces.add(word.substring(start, i));
+                pieces.add(OR);
+                start = i + 1;
+            }
+        }
+        if (start < word.length()) pieces.add(word.substring(start));
+
+        return pieces;
+    }
+
+}
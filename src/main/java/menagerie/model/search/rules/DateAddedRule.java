@@ -25,7 +25,9 @@
 package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
 
+import java.util.BitSet;
 import java.util.Date;
 
 /**
@@ -37,8 +39,9 @@ public class DateAddedRule extends SearchRule {
         LESS_THAN, GREATER_THAN, EQUAL_TO
     }
 
-    private final long time;
-    private final Type type;
+    private final long min;
+    private final long max;
+    private final boolean relative;
 
 
     /**
@@ -47,36 +50,71 @@ public class DateAddedRule extends SearchRule {
      * @param inverted Negate the rule.
      */
     public DateAddedRule(Type type, long time, boolean inverted) {
+        this(type, time, false, inverted);
+    }
+
+    /**
+     * @param type     Type of this rule.
+     * @param time     Time to compare item to.
+     * @param relative True if the time was computed from the current time, so results go stale as time passes.
+     * @param inverted Negate the rule.
+     */
+    public DateAddedRule(Type type, long time, boolean relative, boolean inverted) {
+        this(lowerBound(type, time), upperBound(type, time), relative, inverted);
+    }
+
+    /**
+     * @param min      Earliest time an item can have been added, inclusive.
+     * @param max      Latest time an item can have been added, inclusive.
+     * @param inverted Negate the rule.
+     */
+    public DateAddedRule(long min, long max, boolean inverted) {
+        this(min, max, false, inverted);
+    }
+
+    private DateAddedRule(long min, long max, boolean relative, boolean inverted) {
         super(inverted);
         priority = 10;
 
-        this.time = time;
-        this.type = type;
+        this.min = min;
+        this.max = max;
+        this.relative = relative;
+    }
+
+    private static long lowerBound(Type type, long time) {
+        if (type == Type.LESS_THAN) return Long.MIN_VALUE;
+        if (type == Type.GREATER_THAN) return time == Long.MAX_VALUE ? Long.MAX_VALUE : time + 1;
+        return time;
+    }
+
+    private static long upperBound(Type type, long time) {
+        if (type == Type.GREATER_THAN) return Long.MAX_VALUE;
+        if (type == Type.LESS_THAN) return time == Long.MIN_VALUE ? Long.MIN_VALUE : time - 1;
+        return time;
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return !relative;
     }
 
     @Override
     public boolean accept(Item item) {
-        boolean result = false;
-        switch (type) {
-            case LESS_THAN:
-                result = item.getDateAdded() < time;
-                break;
-            case GREATER_THAN:
-                result = item.getDateAdded() > time;
-                break;
-            case EQUAL_TO:
-                result = item.getDateAdded() == time;
-                break;
-        }
+        boolean result = item.getDateAdded() >= min && item.getDateAdded() <= max;
 
         if (isInverted()) result = !result;
 
         return result;
     }
 
+    @Override
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        return applyIndex(candidates, menagerie.getItemIDsAddedBetween(min, max));
+    }
+
     @Override
     public String toString() {
-        String result = "Added Date Rule: " + type + " " + time + " (" + new Date(time) + ")";
+        String result = "Added Date Rule: " + (min == Long.MIN_VALUE ? "any" : min + " (" + new Date(min) + ")") + " to " + (max == Long.MAX_VALUE ? "any" : max + " (" + new Date(max) + ")");
         if (isInverted()) result += " [inverted]";
         return result;
     }
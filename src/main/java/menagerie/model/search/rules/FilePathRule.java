@@ -26,6 +26,9 @@ package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
 import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.BitSet;
 
 /**
  * Rule that checks if the item's file path contains a string.
@@ -41,16 +44,23 @@ public class FilePathRule extends SearchRule {
      */
     public FilePathRule(String text, boolean inverted) {
         super(inverted);
+        priority = 30;
+
         this.text = text;
     }
 
     @Override
     public boolean accept(Item item) {
-        boolean result = item instanceof MediaItem && ((MediaItem) item).getFile().getAbsolutePath().contains(text);
+        boolean result = item instanceof MediaItem && ((MediaItem) item).getFile() != null && ((MediaItem) item).getAbsolutePath().contains(text);
         if (isInverted()) result = !result;
         return result;
     }
 
+    @Override
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        return applyIndex(candidates, menagerie.getItemIDsWithPathContaining(text));
+    }
+
     @Override
     public String toString() {
         String result = "File Path Rule: \"" + text + "\"";
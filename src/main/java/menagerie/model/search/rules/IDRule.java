@@ -25,6 +25,9 @@
 package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.BitSet;
 
 /**
  * Rule that compares item IDs.
@@ -72,6 +75,28 @@ public class IDRule extends SearchRule {
         return result;
     }
 
+    @Override
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        // Item IDs are their own sorted index, so the matching IDs are a single contiguous range
+        long min = 0, max = Integer.MAX_VALUE;
+        switch (type) {
+            case LESS_THAN:
+                max = id - 1L;
+                break;
+            case GREATER_THAN:
+                min = id + 1L;
+                break;
+            case EQUAL_TO:
+                min = max = id;
+                break;
+        }
+
+        BitSet matched = new BitSet();
+        int from = (int) Math.max(0, min), to = (int) Math.min(candidates.length(), max + 1);
+        if (from < to) matched.set(from, to);
+        return applyIndex(candidates, matched);
+    }
+
     @Override
     public String toString() {
         String result = "ID Rule: " + type + " " + id;
@@ -26,6 +26,12 @@ package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
 import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Rule that searches for missing attributes.
@@ -48,6 +54,12 @@ public class MissingRule extends SearchRule {
         this.type = type;
     }
 
+    @Override
+    public boolean isCacheable() {
+        // Files can go missing without the item changing
+        return type != Type.FILE;
+    }
+
     @Override
     public boolean accept(Item item) {
         boolean result = false;
@@ -57,7 +69,7 @@ public class MissingRule extends SearchRule {
                     result = ((MediaItem) item).getMD5() == null;
                     break;
                 case FILE:
-                    result = ((MediaItem) item).getFile() == null || !((MediaItem) item).getFile().exists();
+                    result = !fileExists((MediaItem) item);
                     break;
                 case HISTOGRAM:
                     result = ((MediaItem) item).getHistogram() == null;
@@ -70,6 +82,39 @@ public class MissingRule extends SearchRule {
         return result;
     }
 
+    /**
+     * @param item Item to check.
+     * @return True if the item's file exists, according to the Menagerie's file status cache if possible.
+     */
+    private static boolean fileExists(MediaItem item) {
+        final File file = item.getFile();
+        if (file == null) return false;
+
+        if (item.getMenagerie() != null) {
+            return item.getMenagerie().getFileStatusService().exists(file);
+        } else {
+            return file.exists();
+        }
+    }
+
+    @Override
+    public boolean needsPreparation() {
+        return type == Type.FILE;
+    }
+
+    @Override
+    public void prepare(Menagerie menagerie, BitSet candidates) {
+        if (type != Type.FILE) return;
+
+        // Check all the files in parallel first, so evaluating only reads cached statuses
+        List<File> files = new ArrayList<>();
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            Item item = menagerie.getItemByID(id);
+            if (item instanceof MediaItem && ((MediaItem) item).getFile() != null) files.add(((MediaItem) item).getFile());
+        }
+        menagerie.getFileStatusService().prefetch(files);
+    }
+
     @Override
     public String toString() {
         String result = "Missing Rule: " + type;
@@ -25,11 +25,14 @@
 package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
+import menagerie.model.search.query.QueryNode;
+
+import java.util.BitSet;
 
 /**
  * Abstract class defining a search rule.
  */
-public abstract class SearchRule implements Comparable<SearchRule> {
+public abstract class SearchRule extends QueryNode implements Comparable<SearchRule> {
 
     /**
      * Sort order priority of the rule.
@@ -55,14 +58,37 @@ public abstract class SearchRule implements Comparable<SearchRule> {
         return inverted;
     }
 
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+
     /**
      * Checks whether an item aligns with this rule.
      *
      * @param item Item to check.
      * @return True if the item is accepted by this rule.
      */
+    @Override
     public abstract boolean accept(Item item);
 
+    /**
+     * Applies the set of IDs matched by an index to a set of candidates, respecting the inverted state of this rule.
+     *
+     * @param candidates IDs of items to check. Not modified.
+     * @param matched    IDs of all items that the non-inverted rule accepts.
+     * @return IDs of accepted candidates.
+     */
+    protected BitSet applyIndex(BitSet candidates, BitSet matched) {
+        BitSet result = (BitSet) candidates.clone();
+        if (isInverted()) {
+            result.andNot(matched);
+        } else {
+            result.and(matched);
+        }
+        return result;
+    }
+
     @Override
     public int compareTo(SearchRule o) {
         return priority - o.priority;
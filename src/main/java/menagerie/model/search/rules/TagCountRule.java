@@ -25,6 +25,9 @@
 package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
+
+import java.util.BitSet;
 
 /**
  * Rule that compares tag counts.
@@ -46,6 +49,8 @@ public class TagCountRule extends SearchRule {
      */
     public TagCountRule(Type type, int value, boolean invert) {
         super(invert);
+        priority = 20;
+
         this.type = type;
         this.value = value;
     }
@@ -70,6 +75,24 @@ public class TagCountRule extends SearchRule {
         return result;
     }
 
+    @Override
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        int min = 0, max = Integer.MAX_VALUE;
+        switch (type) {
+            case EQUAL_TO:
+                min = max = value;
+                break;
+            case LESS_THAN:
+                max = value - 1;
+                break;
+            case GREATER_THAN:
+                min = value + 1;
+                break;
+        }
+
+        return applyIndex(candidates, menagerie.getItemIDsWithTagCount(min, max));
+    }
+
     @Override
     public String toString() {
         String result = "Tag Count Rule: " + type + " " + value;
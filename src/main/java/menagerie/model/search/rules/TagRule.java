@@ -25,14 +25,19 @@
 package menagerie.model.search.rules;
 
 import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.Menagerie;
 import menagerie.model.menagerie.Tag;
 
+import java.util.BitSet;
+
 /**
- * Rule that checks if an item has a tag.
+ * Rule that checks if an item has a tag. Tag names may contain '*' wildcards, in which case any matching tag is accepted.
  */
 public class TagRule extends SearchRule {
 
     private final String tag;
+    private final String pattern;
+    private final boolean wildcard;
 
 
     /**
@@ -44,6 +49,8 @@ public class TagRule extends SearchRule {
         priority = 25;
 
         this.tag = tag;
+        this.pattern = tag.toLowerCase();
+        this.wildcard = tag.indexOf('*') >= 0;
     }
 
     @Override
@@ -51,7 +58,7 @@ public class TagRule extends SearchRule {
         boolean result = false;
 
         for (Tag t : item.getTags()) {
-            if (t.getName().equalsIgnoreCase(tag)) {
+            if (wildcard ? t.matches(pattern) : t.getName().equalsIgnoreCase(tag)) {
                 result = true;
                 break;
             }
@@ -61,6 +68,20 @@ public class TagRule extends SearchRule {
         return result;
     }
 
+    @Override
+    public BitSet filter(Menagerie menagerie, BitSet candidates) {
+        if (wildcard) {
+            BitSet matched = new BitSet();
+            for (Tag t : menagerie.getTagsMatching(tag)) {
+                t.unionItemIDs(matched);
+            }
+            return applyIndex(candidates, matched);
+        }
+
+        Tag t = menagerie.getTagByName(tag);
+        return applyIndex(candidates, t == null ? new BitSet() : t.getItemIDs());
+    }
+
     @Override
     public String toString() {
         String result = "Tag Rule: \"" + tag + "\"";
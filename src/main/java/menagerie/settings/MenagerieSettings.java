@@ -31,9 +31,9 @@ public class MenagerieSettings extends Settings {
     public GroupSetting importGroup, autoImportGroup, duplicatesGroup, videoGroup, dbGroup, explorerGroup, slideshowGroup, findOnlineGroup;
     public FolderSetting defaultFolder, autoImportFolder, vlcFolder, lastImportFolder;
     public StringSetting userFileTypes, dbUrl, dbUser, dbPass, tagWithOnImport, importItemsIntoGroupName, importOrder;
-    public BooleanSetting urlFilename, tagImages, tagVideos, tagTagme, autoImportMove, repeatVideo, muteVideo, dbBackup, helpOnStart, windowMaximized, expandItemInfo, recursivelyImport, tagParentFolderOnImport, doTagWithOnImport, doImportItemsIntoGroup, renameToHashOnImport, duplicatesIncludeGroups, slideshowPreload, duplicatePreload, explorerGroupAscending, cudaDuplicates;
+    public BooleanSetting urlFilename, tagImages, tagVideos, tagTagme, autoImportMove, repeatVideo, muteVideo, dbBackup, helpOnStart, windowMaximized, expandItemInfo, recursivelyImport, tagParentFolderOnImport, doTagWithOnImport, doImportItemsIntoGroup, renameToHashOnImport, duplicatesIncludeGroups, slideshowPreload, duplicatePreload, explorerGroupAscending, cudaDuplicates, duplicatesPerceptual, streamSearch;
     public DoubleSetting duplicatesConfidence, slideshowInterval;
-    public IntSetting gridWidth, windowX, windowY, windowWidth, windowHeight, onlineLoadAhead;
+    public IntSetting gridWidth, windowX, windowY, windowWidth, windowHeight, onlineLoadAhead, duplicatesHashTables, duplicatesMaxResults;
 
 
     public MenagerieSettings() {
@@ -54,15 +54,19 @@ public class MenagerieSettings extends Settings {
         explorerGroup = new GroupSetting("explorer-group").label("Explorer");
         gridWidth = new IntSetting("grid-width", 3).range(1, 8).label("Grid width");
         explorerGroupAscending = new BooleanSetting("group-ascending", true).label("Open groups in ascending order");
-        Collections.addAll(explorerGroup.getChildren(), explorerGroupAscending, gridWidth);
+        streamSearch = new BooleanSetting("stream-search", true).label("Show results while searching").tip("Display search results as they are found instead of waiting for the whole search to finish");
+        Collections.addAll(explorerGroup.getChildren(), explorerGroupAscending, streamSearch, gridWidth);
         getSettings().add(explorerGroup);
 
         duplicatesGroup = new GroupSetting("duplicate-group").label("Duplicate Finding");
         duplicatesConfidence = new DoubleSetting("duplicate-confidence", 0.95).range(0.9, 1.0).label("Duplicate Confidence").tip("Value between 0.90 and 1.00");
         cudaDuplicates = new BooleanSetting("cuda-duplicates").label("CUDA GPU Acceleration").tip("Accelerate duplicate finding with a CUDA enabled Nvidia GPU");
+        duplicatesHashTables = new IntSetting("duplicate-hash-tables", 0).range(0, 64).label("Hash tables").tip("Only compare items that hash alike in one of this many tables. More tables miss fewer duplicates, fewer tables are faster. 0 compares every pair. Searches of the whole library always compare every pair, as their results are stored");
+        duplicatesMaxResults = new IntSetting("duplicate-max-results", 100000).range(1, 10000000).label("Maximum results").tip("Only keep this many of the most similar pairs. Lower values use less memory at low confidence");
+        duplicatesPerceptual = new BooleanSetting("duplicate-perceptual", false).label("Compare perceptual hashes").tip("Compare images by the differences between their perceptual hashes instead of their color histograms. Much faster, and finds resized and recolored copies");
         duplicatesIncludeGroups = new BooleanSetting("duplicates-groups", true).label("Include items in groups").tip("Include group items in duplicate comparisons");
         duplicatePreload = new BooleanSetting("duplicate-preload", true).label("Preload next/previous duplicates");
-        Collections.addAll(duplicatesGroup.getChildren(), duplicatesConfidence, cudaDuplicates, duplicatesIncludeGroups, duplicatePreload);
+        Collections.addAll(duplicatesGroup.getChildren(), duplicatesConfidence, duplicatesHashTables, duplicatesMaxResults, cudaDuplicates, duplicatesPerceptual, duplicatesIncludeGroups, duplicatePreload);
         getSettings().add(duplicatesGroup);
 
         findOnlineGroup = new GroupSetting("").label("Find Online");
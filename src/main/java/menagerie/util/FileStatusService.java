@@ -0,0 +1,327 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.util;
+
+import menagerie.util.listeners.ObjectListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of file existence, size and modification time.
+ * <p>
+ * Files are checked in parallel and grouped by directory, so a directory with many requested files is listed once
+ * instead of statting each file. Cached entries are invalidated by file system events for every directory that has
+ * been checked, or expire after a timeout when the directory cannot be watched (e.g. some network shares).
+ */
+public class FileStatusService {
+
+    private static final Logger LOGGER = Logger.getLogger(FileStatusService.class.getName());
+
+    /**
+     * Minimum number of requested files in a directory before the whole directory is listed instead of checking each file.
+     */
+    private static final int LIST_DIRECTORY_THRESHOLD = 8;
+    /**
+     * Time that entries in unwatched directories are trusted for.
+     */
+    private static final long UNWATCHED_EXPIRY = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Status of a single file at the time it was checked.
+     */
+    public static final class FileStatus {
+
+        private final boolean exists;
+        private final long size;
+        private final long lastModified;
+        private final long checked;
+
+        private FileStatus(boolean exists, long size, long lastModified) {
+            this.exists = exists;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checked = System.currentTimeMillis();
+        }
+
+        public boolean exists() {
+            return exists;
+        }
+
+        /**
+         * @return Size of the file in bytes. Zero if the file does not exist.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return Last modified time of the file in milliseconds since epoch. Zero if the file does not exist.
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+    }
+
+    private final Map<File, FileStatus> statuses = new ConcurrentHashMap<>();
+    private final Map<Path, Boolean> watchedDirectories = new ConcurrentHashMap<>();
+    private final ForkJoinPool pool;
+    private WatchService watchService = null;
+
+
+    /**
+     * Constructs a file status service and starts watching for file system events.
+     */
+    public FileStatusService() {
+        // File checks are IO bound, especially on network shares, so use more threads than cores
+        pool = new ForkJoinPool(Math.max(8, Runtime.getRuntime().availableProcessors() * 2));
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+
+            Thread watcher = new Thread(this::watchForEvents, "File Status Watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to watch for file system events, file statuses will expire instead", e);
+        }
+    }
+
+    /**
+     * Gets the status of a file, checking it if it is not cached.
+     *
+     * @param file File to check.
+     * @return Status of the file.
+     */
+    public FileStatus getStatus(File file) {
+        FileStatus status = statuses.get(file);
+        if (!isValid(status, file)) {
+            watch(file.getAbsoluteFile().getParentFile());
+            status = check(file);
+            statuses.put(file, status);
+        }
+        return status;
+    }
+
+    /**
+     * @param file File to check.
+     * @return True if the file exists.
+     */
+    public boolean exists(File file) {
+        return getStatus(file).exists();
+    }
+
+    /**
+     * Checks every file that does not have a valid cached status, in parallel, grouped by directory. Blocks until all
+     * files have been checked.
+     *
+     * @param files Files to check.
+     */
+    public void prefetch(Collection<File> files) {
+        prefetch(files, null);
+    }
+
+    /**
+     * Checks every file that does not have a valid cached status, in parallel, grouped by directory. Blocks until all
+     * files have been checked.
+     *
+     * @param files            Files to check.
+     * @param progressListener Listener notified with the total number of files checked so far, after each directory. May be null.
+     */
+    public void prefetch(Collection<File> files, ObjectListener<Integer> progressListener) {
+        prefetch(files, false, null, progressListener);
+    }
+
+    /**
+     * Checks files in parallel, grouped by directory. Blocks until all files have been checked, or checking is stopped.
+     * <p>
+     * Fresh checks ignore cached statuses, which can be stale in watched directories that never receive events (e.g.
+     * network shares). Use them before acting permanently on a status.
+     *
+     * @param files            Files to check.
+     * @param fresh            Check every file, even if it has a valid cached status.
+     * @param running          Checked before each directory. Remaining directories are skipped once it returns false. May be null.
+     * @param progressListener Listener notified with the total number of files checked so far, after each directory. May be null.
+     */
+    public void prefetch(Collection<File> files, boolean fresh, BooleanSupplier running, ObjectListener<Integer> progressListener) {
+        Map<File, List<File>> byDirectory = new HashMap<>();
+        int cached = 0;
+        for (File file : files) {
+            if (!fresh && isValid(statuses.get(file), file)) {
+                cached++;
+            } else {
+                byDirectory.computeIfAbsent(file.getAbsoluteFile().getParentFile(), k -> new ArrayList<>()).add(file);
+            }
+        }
+        if (byDirectory.isEmpty()) return;
+
+        final AtomicInteger progress = new AtomicInteger(cached);
+        try {
+            pool.submit(() -> byDirectory.entrySet().parallelStream().forEach(entry -> {
+                if (running != null && !running.getAsBoolean()) return;
+                checkDirectory(entry.getKey(), entry.getValue());
+                final int done = progress.addAndGet(entry.getValue().size());
+                if (progressListener != null) progressListener.pass(done);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Failed to check file statuses", e);
+        }
+    }
+
+    /**
+     * Discards the cached status of a file.
+     *
+     * @param file File to forget.
+     */
+    public void invalidate(File file) {
+        statuses.remove(file);
+    }
+
+    /**
+     * Checks the requested files in a single directory, listing the directory once if enough files are requested.
+     *
+     * @param directory Directory containing the files. May be null for root files.
+     * @param files     Files to check.
+     */
+    private void checkDirectory(File directory, List<File> files) {
+        // Start watching first so changes made while checking aren't missed
+        watch(directory);
+
+        if (directory == null || files.size() < LIST_DIRECTORY_THRESHOLD) {
+            files.forEach(file -> statuses.put(file, check(file)));
+        } else {
+            final Map<String, FileStatus> listed = new HashMap<>();
+            try {
+                // Attributes come from the directory listing itself on some platforms, avoiding a stat per file
+                Files.walkFileTree(directory.toPath(), EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        listed.put(file.getFileName().toString(), new FileStatus(true, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                // Directory is missing or unreadable, its files are checked one by one below
+            }
+
+            for (File file : files) {
+                // Names can differ from the listing and still match the file, e.g. in case on Windows, so check those directly
+                FileStatus status = listed.get(file.getName());
+                statuses.put(file, status != null ? status : check(file));
+            }
+        }
+    }
+
+    /**
+     * @param file File to check.
+     * @return Current status of the file on disk.
+     */
+    private static FileStatus check(File file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new FileStatus(true, attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException | InvalidPathException e) {
+            return new FileStatus(false, 0, 0);
+        }
+    }
+
+    /**
+     * @param status Cached status. May be null.
+     * @param file   File the status belongs to.
+     * @return True if the status can be trusted.
+     */
+    private boolean isValid(FileStatus status, File file) {
+        if (status == null) return false;
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        return (parent != null && Boolean.TRUE.equals(watchedDirectories.get(parent.toPath()))) || System.currentTimeMillis() - status.checked < UNWATCHED_EXPIRY;
+    }
+
+    /**
+     * Starts watching a directory for changes, if it is not already being watched.
+     *
+     * @param directory Directory to watch. May be null.
+     */
+    private void watch(File directory) {
+        if (watchService == null || directory == null) return;
+
+        watchedDirectories.computeIfAbsent(directory.toPath(), path -> {
+            try {
+                path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                // Entries in this directory will expire instead
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Invalidates cached statuses as file system events arrive. Runs until the watch service is closed.
+     */
+    private void watchForEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            final Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, so nothing cached in this directory can be trusted
+                    final File dir = directory.toFile();
+                    statuses.keySet().removeIf(file -> dir.equals(file.getAbsoluteFile().getParentFile()));
+                } else {
+                    statuses.remove(directory.resolve((Path) event.context()).toFile());
+                }
+            }
+
+            if (!key.reset()) watchedDirectories.remove(directory);
+        }
+    }
+
+}
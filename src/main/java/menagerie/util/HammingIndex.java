@@ -0,0 +1,130 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.util;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Multi-index hash table over 64-bit hashes, for finding every hash within a small Hamming distance of another.
+ * <p>
+ * Each hash is split into four 16-bit chunks, and each chunk has its own table. If two hashes differ in at most r bits,
+ * at least one of their chunks differs in at most r/4 bits, so only hashes in buckets that close to one of the query's
+ * chunks need to be checked. Built once from an array of hashes, and safe to query from any number of threads.
+ */
+public class HammingIndex {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 64 / CHUNKS;
+    private static final int BUCKETS = 1 << CHUNK_BITS;
+
+    private final long[] hashes;
+    /**
+     * For each chunk, where each bucket's entries start in {@link #entries}.
+     */
+    private final int[][] starts = new int[CHUNKS][];
+    /**
+     * For each chunk, indices of the hashes sorted by bucket.
+     */
+    private final int[][] entries = new int[CHUNKS][];
+
+
+    /**
+     * @param hashes Hashes to index. Queries report the indices of hashes in this array.
+     */
+    public HammingIndex(long[] hashes) {
+        this.hashes = hashes;
+
+        for (int c = 0; c < CHUNKS; c++) {
+            int[] start = new int[BUCKETS + 1];
+            for (long hash : hashes) {
+                start[chunk(hash, c) + 1]++;
+            }
+            for (int b = 0; b < BUCKETS; b++) {
+                start[b + 1] += start[b];
+            }
+
+            int[] next = new int[BUCKETS];
+            System.arraycopy(start, 0, next, 0, BUCKETS);
+            int[] entry = new int[hashes.length];
+            for (int i = 0; i < hashes.length; i++) {
+                entry[next[chunk(hashes[i], c)]++] = i;
+            }
+
+            starts[c] = start;
+            entries[c] = entry;
+        }
+    }
+
+    private static int chunk(long hash, int c) {
+        return (int) (hash >>> (c * CHUNK_BITS)) & (BUCKETS - 1);
+    }
+
+    /**
+     * @return Number of hashes in this index.
+     */
+    public int size() {
+        return hashes.length;
+    }
+
+    /**
+     * Finds every indexed hash within a Hamming distance of a hash. Each is reported once.
+     *
+     * @param hash     Hash to search around.
+     * @param distance Maximum number of differing bits.
+     * @param consumer Passed the index of each hash found.
+     */
+    public void forEachWithin(long hash, int distance, IntConsumer consumer) {
+        final int chunkDistance = distance / CHUNKS;
+        for (int c = 0; c < CHUNKS; c++) {
+            forEachBucket(hash, c, chunk(hash, c), chunkDistance, 0, distance, consumer);
+        }
+    }
+
+    /**
+     * Visits every bucket of a chunk within a distance of the query's chunk, by flipping bits above a position.
+     */
+    private void forEachBucket(long hash, int c, int bucket, int flips, int fromBit, int distance, IntConsumer consumer) {
+        final int[] entry = entries[c];
+        for (int k = starts[c][bucket], end = starts[c][bucket + 1]; k < end; k++) {
+            final int i = entry[k];
+            if (Long.bitCount(hashes[i] ^ hash) <= distance && isFirstChunk(hashes[i], hash, c, distance / CHUNKS)) consumer.accept(i);
+        }
+
+        if (flips == 0) return;
+        for (int bit = fromBit; bit < CHUNK_BITS; bit++) {
+            forEachBucket(hash, c, bucket ^ (1 << bit), flips - 1, bit + 1, distance, consumer);
+        }
+    }
+
+    /**
+     * @return True if no chunk before c is within the chunk distance, so the hash is reported from chunk c and no other.
+     */
+    private static boolean isFirstChunk(long found, long hash, int c, int chunkDistance) {
+        for (int before = 0; before < c; before++) {
+            if (Integer.bitCount(chunk(found, before) ^ chunk(hash, before)) <= chunkDistance) return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+
+/**
+ * Utility class that contains functions for computing 64-bit perceptual hashes (dHash) of images.
+ * <p>
+ * An image is shrunk to a 9x8 grid of average brightness, and each bit records whether a cell is brighter than the cell to
+ * its right. Resized, recompressed, and recolored copies of an image have hashes that differ in few bits, so the Hamming
+ * distance between two hashes measures how different the images look.
+ */
+public abstract class PerceptualHasher {
+
+    private static final int GRID_WIDTH = 9, GRID_HEIGHT = 8;
+    /**
+     * Maximum number of pixels sampled along each side of an image.
+     */
+    private static final int MAX_SAMPLES = 256;
+
+
+    /**
+     * Computes the perceptual hash of an image.
+     *
+     * @param image Loaded image to hash.
+     * @return The hash, or null if the image's pixels can't be read.
+     */
+    public static Long hash(Image image) {
+        if (image.isBackgroundLoading() && image.getProgress() != 1) return null;
+        PixelReader pixelReader = image.getPixelReader();
+        if (pixelReader == null) return null;
+
+        final int width = (int) image.getWidth(), height = (int) image.getHeight();
+        if (width <= 0 || height <= 0) return null;
+
+        final int stepX = Math.max(1, width / MAX_SAMPLES), stepY = Math.max(1, height / MAX_SAMPLES);
+        final int samplesX = (width + stepX - 1) / stepX, samplesY = (height + stepY - 1) / stepY;
+        int[] argb = new int[samplesX * samplesY];
+        for (int y = 0; y < samplesY; y++) {
+            for (int x = 0; x < samplesX; x++) {
+                argb[y * samplesX + x] = pixelReader.getArgb(x * stepX, y * stepY);
+            }
+        }
+
+        return hash(argb, samplesX, samplesY);
+    }
+
+    /**
+     * Computes the perceptual hash of an image.
+     *
+     * @param argb   Pixels of the image in ARGB format, row by row.
+     * @param width  Width of the image.
+     * @param height Height of the image.
+     * @return The hash.
+     */
+    public static long hash(int[] argb, int width, int height) {
+        double[] sums = new double[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        for (int y = 0; y < height; y++) {
+            final int row = (int) ((long) y * GRID_HEIGHT / height) * GRID_WIDTH;
+            for (int x = 0; x < width; x++) {
+                final int color = argb[y * width + x];
+                final int a = 0xff & (color >> 24), r = 0xff & (color >> 16), g = 0xff & (color >> 8), b = 0xff & color;
+
+                final int cell = row + (int) ((long) x * GRID_WIDTH / width);
+                sums[cell] += (0.299 * r + 0.587 * g + 0.114 * b) * a / 255;
+                counts[cell]++;
+            }
+        }
+        for (int i = 0; i < sums.length; i++) {
+            if (counts[i] > 0) sums[i] /= counts[i];
+        }
+
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                hash <<= 1;
+                if (sums[y * GRID_WIDTH + x] > sums[y * GRID_WIDTH + x + 1]) hash |= 1;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @param hash1 First hash.
+     * @param hash2 Second hash.
+     * @return Number of bits that differ between the hashes [0-64].
+     */
+    public static int getDistance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    /**
+     * @param hash1 First hash.
+     * @param hash2 Second hash.
+     * @return Percent similarity of the hashes [0.0-1.0].
+     */
+    public static double getSimilarity(long hash1, long hash2) {
+        return 1 - getDistance(hash1, hash2) / 64.0;
+    }
+
+}
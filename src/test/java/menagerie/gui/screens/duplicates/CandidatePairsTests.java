@@ -0,0 +1,140 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.histogram.HistogramReadException;
+import menagerie.model.menagerie.histogram.ImageHistogram;
+import menagerie.model.menagerie.histogram.TestHistograms;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandidatePairsTests {
+
+    /**
+     * @return Items with random histograms, where every other one is a slightly changed copy of the one before it.
+     */
+    private static List<Item> items(Random random, int count, int firstID) throws HistogramReadException {
+        List<Item> items = new ArrayList<>();
+        ImageHistogram previous = null;
+        for (int i = 0; i < count; i++) {
+            ImageHistogram histogram = i % 2 == 1 ? TestHistograms.noisyHistogram(previous, 0.02, random) : TestHistograms.randomHistogram(random);
+            items.add(new MediaItem(null, firstID + i, 0, 0, false, null, new File("item" + (firstID + i)), null, histogram));
+            previous = histogram;
+        }
+        return items;
+    }
+
+    private static Set<Long> candidates(ComparableMedia from, ComparableMedia to, int tables) {
+        CandidatePairs pairs = new CandidatePairs(from, to, 0.95);
+        pairs.addIdenticalFiles();
+        Random random = new Random(42);
+        for (int t = 0; t < tables; t++) {
+            pairs.addTable(random);
+        }
+
+        long[] array = pairs.toArray();
+        Set<Long> set = new HashSet<>();
+        for (int k = 0; k < array.length; k++) {
+            if (k > 0) assertTrue(array[k - 1] < array[k]);
+            set.add(array[k]);
+        }
+        return set;
+    }
+
+    private static long pair(int i, int j) {
+        return (long) i << 32 | j;
+    }
+
+    @Test
+    void findsSimilarPairs() throws HistogramReadException {
+        List<Item> items = items(new Random(1), 2000, 1);
+        ComparableMedia media = ComparableMedia.prepare(items, items)[0];
+        Set<Long> candidates = candidates(media, media, 16);
+
+        for (int i = 0; i + 1 < items.size(); i += 2) {
+            assertTrue(media.getSimilarity(i, media, i + 1) > 0.98);
+            assertTrue(candidates.contains(pair(i, i + 1)));
+        }
+        for (long pair : candidates) {
+            assertTrue(CandidatePairs.getFrom(pair) < CandidatePairs.getTo(pair));
+        }
+
+        // Unrelated random histograms are rarely candidates
+        final long total = (long) items.size() * (items.size() - 1) / 2;
+        assertTrue(candidates.size() < total / 20);
+    }
+
+    @Test
+    void moreTablesFindMore() throws HistogramReadException {
+        List<Item> items = items(new Random(2), 1000, 1);
+        ComparableMedia media = ComparableMedia.prepare(items, items)[0];
+
+        Set<Long> few = candidates(media, media, 2);
+        Set<Long> many = candidates(media, media, 8);
+        assertTrue(many.containsAll(few));
+        assertTrue(many.size() >= few.size());
+    }
+
+    @Test
+    void differentSets() throws HistogramReadException {
+        List<Item> items = items(new Random(3), 500, 1);
+        List<Item> from = new ArrayList<>(), to = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            (i % 2 == 0 ? from : to).add(items.get(i));
+        }
+        ComparableMedia[] prepared = ComparableMedia.prepare(from, to);
+        Set<Long> candidates = candidates(prepared[0], prepared[1], 16);
+
+        for (int i = 0; i < from.size(); i++) {
+            assertTrue(candidates.contains(pair(i, i)));
+        }
+        for (long pair : candidates) {
+            assertTrue(CandidatePairs.getFrom(pair) < from.size());
+            assertTrue(CandidatePairs.getTo(pair) < to.size());
+        }
+    }
+
+    @Test
+    void identicalFiles() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new MediaItem(null, i + 1, 0, 0, false, null, new File("item" + i), i % 5 == 0 ? "hash" : "hash" + i, null));
+        }
+        ComparableMedia media = ComparableMedia.prepare(items, items)[0];
+
+        assertEquals(1, candidates(media, media, 4).size());
+        assertTrue(candidates(media, media, 4).contains(pair(0, 5)));
+    }
+
+}
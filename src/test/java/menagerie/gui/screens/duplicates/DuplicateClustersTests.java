@@ -0,0 +1,103 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.MediaItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateClustersTests {
+
+    private static MediaItem[] items(int count) {
+        MediaItem[] items = new MediaItem[count];
+        for (int i = 0; i < count; i++) items[i] = new MediaItem(null, i, 0, null);
+        return items;
+    }
+
+    @Test
+    void connectedComponents() {
+        MediaItem[] items = items(6);
+        DuplicateClusters clusters = new DuplicateClusters();
+        clusters.add(new SimilarPair<>(items[0], items[1], 0.99));
+        clusters.add(new SimilarPair<>(items[2], items[1], 0.98));
+        clusters.add(new SimilarPair<>(items[3], items[4], 0.97));
+
+        assertEquals(3, clusters.getClusterSize(items[0]));
+        assertEquals(3, clusters.getClusterSize(items[2]));
+        assertEquals(2, clusters.getClusterSize(items[4]));
+        assertEquals(1, clusters.getClusterSize(items[5]));
+
+        assertEquals(new HashSet<>(Arrays.asList(items[0], items[1], items[2])), new HashSet<>(clusters.getCluster(items[1])));
+        assertEquals(Collections.singletonList(items[5]), clusters.getCluster(items[5]));
+
+        List<List<MediaItem>> all = clusters.getClusters();
+        assertEquals(2, all.size());
+        assertEquals(3, all.get(0).size());
+        assertEquals(2, all.get(1).size());
+    }
+
+    @Test
+    void clear() {
+        MediaItem[] items = items(2);
+        DuplicateClusters clusters = new DuplicateClusters();
+        clusters.add(new SimilarPair<>(items[0], items[1], 0.99));
+        clusters.clear();
+
+        assertEquals(1, clusters.getClusterSize(items[0]));
+        assertTrue(clusters.getClusters().isEmpty());
+    }
+
+    @Test
+    void manyItems() {
+        Random random = new Random(42);
+        MediaItem[] items = items(1000);
+        DuplicateClusters clusters = new DuplicateClusters();
+
+        // Chain items within each block of 10, so each block is one group
+        for (int block = 0; block < items.length; block += 10) {
+            for (int k = 1; k < 10; k++) {
+                final int i = block + random.nextInt(k);
+                clusters.add(new SimilarPair<>(items[block + k], items[i], 0.99));
+            }
+        }
+
+        assertEquals(100, clusters.getClusters().size());
+        for (int i = 0; i < items.length; i++) {
+            Set<Integer> ids = new HashSet<>();
+            for (MediaItem item : clusters.getCluster(items[i])) ids.add(item.getId());
+            assertEquals(10, ids.size());
+            for (int id : ids) assertEquals(i / 10, id / 10);
+        }
+    }
+
+}
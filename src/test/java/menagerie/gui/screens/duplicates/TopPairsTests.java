@@ -0,0 +1,84 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.gui.screens.duplicates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopPairsTests {
+
+    @Test
+    void keepsMostSimilar() {
+        Random random = new Random(42);
+        double[] similarities = new double[10000];
+        TopPairs pairs = new TopPairs(100);
+        for (int k = 0; k < similarities.length; k++) {
+            similarities[k] = random.nextDouble();
+            pairs.add(k, k + 1, similarities[k]);
+        }
+        pairs.sort();
+
+        double[] sorted = similarities.clone();
+        Arrays.sort(sorted);
+        assertEquals(100, pairs.size());
+        for (int k = 0; k < pairs.size(); k++) {
+            assertEquals(sorted[sorted.length - 1 - k], pairs.getSimilarity(k));
+            assertEquals(similarities[pairs.getFrom(k)], pairs.getSimilarity(k));
+            assertEquals(pairs.getFrom(k) + 1, pairs.getTo(k));
+        }
+    }
+
+    @Test
+    void addWhenFull() {
+        TopPairs pairs = new TopPairs(2);
+        assertTrue(pairs.add(0, 1, 0.95));
+        assertTrue(pairs.add(0, 2, 0.97));
+        assertFalse(pairs.add(0, 3, 0.94));
+        assertTrue(pairs.add(0, 4, 0.99));
+        pairs.sort();
+
+        assertEquals(2, pairs.size());
+        assertEquals(4, pairs.getTo(0));
+        assertEquals(2, pairs.getTo(1));
+    }
+
+    @Test
+    void unbounded() {
+        TopPairs pairs = new TopPairs(0);
+        for (int k = 0; k < 1000; k++) {
+            assertTrue(pairs.add(k, k, k / 1000.0));
+        }
+        pairs.sort();
+
+        assertEquals(1000, pairs.size());
+        for (int k = 0; k < pairs.size(); k++) {
+            assertEquals(999 - k, pairs.getFrom(k));
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemIDSetTests {
+
+    @Test
+    void sparseStaysArray() {
+        ItemIDSet set = new ItemIDSet();
+        assertTrue(set.add(500000));
+        assertTrue(set.add(7));
+        assertFalse(set.add(7));
+        assertTrue(set.add(1000000));
+
+        assertFalse(set.isBitmap());
+        assertEquals(3, set.size());
+        assertTrue(set.contains(7));
+        assertFalse(set.contains(8));
+
+        BitSet expected = new BitSet();
+        expected.set(7);
+        expected.set(500000);
+        expected.set(1000000);
+        assertEquals(expected, set.toBitSet());
+    }
+
+    @Test
+    void denseBecomesBitmapAndBack() {
+        ItemIDSet set = new ItemIDSet();
+        for (int id = 0; id < 10000; id++) set.add(id);
+        assertTrue(set.isBitmap());
+        assertEquals(10000, set.size());
+
+        for (int id = 0; id < 9990; id++) assertTrue(set.remove(id));
+        assertFalse(set.isBitmap());
+        assertEquals(10, set.size());
+        for (int id = 9990; id < 10000; id++) assertTrue(set.contains(id));
+    }
+
+    @Test
+    void matchesBitSet() {
+        Random random = new Random(42);
+        ItemIDSet set = new ItemIDSet();
+        BitSet expected = new BitSet();
+
+        for (int n = 0; n < 100000; n++) {
+            // Shift between sparse and dense ranges so both representations are used
+            final int range = (n / 10000) % 2 == 0 ? 1000000 : 2000;
+            final int id = random.nextInt(range);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.get(id), set.remove(id));
+                expected.clear(id);
+            } else {
+                assertEquals(!expected.get(id), set.add(id));
+                expected.set(id);
+            }
+        }
+
+        assertEquals(expected.cardinality(), set.size());
+        assertEquals(expected, set.toBitSet());
+        BitSet union = new BitSet();
+        set.orInto(union);
+        assertEquals(expected, union);
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NonDuplicateSetTests {
+
+    @Test
+    void addContains() {
+        NonDuplicateSet set = new NonDuplicateSet();
+        assertTrue(set.add(1, 2));
+        assertFalse(set.add(2, 1));
+        assertTrue(set.add(0, 5));
+
+        assertTrue(set.contains(1, 2));
+        assertTrue(set.contains(2, 1));
+        assertTrue(set.contains(5, 0));
+        assertFalse(set.contains(1, 3));
+        assertFalse(set.contains(0, 0));
+        assertEquals(2, set.size());
+
+        assertThrows(IllegalArgumentException.class, () -> set.add(3, 3));
+    }
+
+    @Test
+    void remove() {
+        NonDuplicateSet set = new NonDuplicateSet();
+        set.add(1, 2);
+        assertTrue(set.remove(2, 1));
+        assertFalse(set.remove(1, 2));
+        assertFalse(set.contains(1, 2));
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    void matchesHashSet() {
+        Random random = new Random(42);
+        NonDuplicateSet set = new NonDuplicateSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int n = 0; n < 50000; n++) {
+            final int id1 = random.nextInt(300), id2 = random.nextInt(300);
+            if (id1 == id2) continue;
+            final long key = NonDuplicateSet.key(id1, id2);
+
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(id1, id2));
+            } else {
+                assertEquals(expected.add(key), set.add(id1, id2));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (int id1 = 0; id1 < 300; id1++) {
+            for (int id2 = 0; id2 < 300; id2++) {
+                assertEquals(id1 != id2 && expected.contains(NonDuplicateSet.key(id1, id2)), set.contains(id1, id2));
+            }
+        }
+    }
+
+}
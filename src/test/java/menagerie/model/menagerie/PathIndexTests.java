@@ -0,0 +1,94 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.menagerie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathIndexTests {
+
+    private static final String[] PATHS = {"/home/user/pictures/cat_01.png", "/home/user/pictures/dog_01.png", "/home/user/pictures/cats/cat_02.jpg", "/home/user/documents/cat.txt", "/mnt/share/CAT_03.png", "/root.png"};
+
+    private static PathIndex createIndex() {
+        PathIndex index = new PathIndex();
+        for (int i = 0; i < PATHS.length; i++) {
+            index.add(i, PATHS[i]);
+        }
+        return index;
+    }
+
+    private static BitSet bruteForce(String text) {
+        BitSet result = new BitSet();
+        for (int i = 0; i < PATHS.length; i++) {
+            if (PATHS[i] != null && PATHS[i].contains(text)) result.set(i);
+        }
+        return result;
+    }
+
+    @Test
+    void matchesContains() {
+        PathIndex index = createIndex();
+        String[] queries = {"", "c", "ca", "cat", "cat_0", "CAT", ".png", "pictures", "pictures/", "pictures/cat", "s/cat_", "user/pictures/d", "/", "/root", "nothing", "e/user/doc"};
+        for (String query : queries) {
+            assertEquals(bruteForce(query), index.find(query), query);
+        }
+    }
+
+    @Test
+    void removeAndMove() {
+        PathIndex index = createIndex();
+
+        index.remove(0);
+        BitSet expected = bruteForce("cat");
+        expected.clear(0);
+        assertEquals(expected, index.find("cat"));
+
+        index.add(1, "/elsewhere/cat_99.png");
+        expected.set(1);
+        assertEquals(expected, index.find("cat"));
+        assertFalse(index.find("dog").get(1));
+        assertTrue(index.find("elsewhere/cat").get(1));
+    }
+
+    @Test
+    void rebuildAfterManyRemovals() {
+        PathIndex index = new PathIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.add(i, "/dir" + (i % 10) + "/file_" + i + ".png");
+        }
+        for (int i = 0; i < 4000; i++) {
+            index.remove(i);
+        }
+
+        BitSet found = index.find("file_");
+        assertEquals(1000, found.cardinality());
+        assertEquals(4000, found.nextSetBit(0));
+        assertEquals(100, index.find("/dir3/").cardinality());
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.menagerie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedRangeIndexTests {
+
+    private static BitSet bits(int... ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) set.set(id);
+        return set;
+    }
+
+    @Test
+    void buildAndFind() {
+        SortedRangeIndex index = new SortedRangeIndex();
+        index.build(new long[]{50, 10, 30, 20, 40}, new int[]{5, 1, 3, 2, 4}, 5);
+
+        assertEquals(bits(1, 2, 3, 4, 5), index.find(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(bits(2, 3, 4), index.find(20, 40));
+        assertEquals(bits(3), index.find(25, 35));
+        assertEquals(bits(), index.find(41, 49));
+        assertEquals(bits(), index.find(40, 20));
+    }
+
+    @Test
+    void addOutOfOrder() {
+        SortedRangeIndex index = new SortedRangeIndex();
+        for (int i = 0; i < 100; i++) {
+            index.add((i * 37) % 100, i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(bits(i), index.find((i * 37) % 100, (i * 37) % 100));
+        }
+    }
+
+    @Test
+    void removeAndCompact() {
+        SortedRangeIndex index = new SortedRangeIndex();
+        for (int i = 0; i < 10; i++) {
+            index.add(i, i);
+        }
+
+        index.remove(3);
+        assertEquals(bits(2, 4), index.find(2, 4));
+
+        for (int i = 0; i < 8; i++) {
+            index.remove(i);
+        }
+        assertEquals(bits(8, 9), index.find(0, 100));
+
+        index.add(5, 3);
+        assertEquals(bits(3, 8, 9), index.find(0, 100));
+    }
+
+}
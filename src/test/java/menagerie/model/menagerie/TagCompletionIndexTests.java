@@ -0,0 +1,181 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagCompletionIndexTests {
+
+    private static Tag tag(int id, String name, int frequency) {
+        Tag tag = new Tag(null, id, name, null);
+        for (int i = 0; i < frequency; i++) tag.incrementFrequency();
+        return tag;
+    }
+
+    private static List<Tag> bruteForce(List<Tag> tags, String prefix, int limit) {
+        return tags.stream().filter(t -> t.getName().startsWith(prefix)).sorted((a, b) -> {
+            if (a.getFrequency() != b.getFrequency()) return b.getFrequency() - a.getFrequency();
+            return a.getName().compareTo(b.getName());
+        }).limit(limit).collect(Collectors.toList());
+    }
+
+    private static int prefixDistance(String text, String name) {
+        int[][] d = new int[text.length() + 1][name.length() + 1];
+        for (int i = 0; i <= text.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= name.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= text.length(); i++) {
+            for (int j = 1; j <= name.length(); j++) {
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + (text.charAt(i - 1) == name.charAt(j - 1) ? 0 : 1));
+            }
+        }
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j <= name.length(); j++) best = Math.min(best, d[text.length()][j]);
+        return best;
+    }
+
+    private static List<Tag> bruteForceSimilar(List<Tag> tags, String text, int limit) {
+        final int maxDistance = TagCompletionIndex.getMaxDistance(text.length());
+        return tags.stream().filter(t -> prefixDistance(text, t.getName()) <= maxDistance).sorted((a, b) -> {
+            final int da = prefixDistance(text, a.getName()), db = prefixDistance(text, b.getName());
+            if (da != db) return da - db;
+            if (a.getFrequency() != b.getFrequency()) return b.getFrequency() - a.getFrequency();
+            return a.getName().compareTo(b.getName());
+        }).limit(limit).collect(Collectors.toList());
+    }
+
+    @Test
+    void findByPrefix() {
+        Tag cat = tag(1, "cat", 5), car = tag(2, "car", 9), dog = tag(3, "dog", 20), cab = tag(4, "cab", 1);
+        TagCompletionIndex index = new TagCompletionIndex();
+        index.build(Arrays.asList(cat, car, dog, cab));
+
+        assertEquals(Arrays.asList(car, cat, cab), index.find("ca", 8));
+        assertEquals(Arrays.asList(car, cat), index.find("ca", 2));
+        assertEquals(Arrays.asList(dog, car), index.find("", 2));
+        assertTrue(index.find("x", 8).isEmpty());
+    }
+
+    @Test
+    void frequencyChanges() {
+        Tag cat = tag(1, "cat", 5), car = tag(2, "car", 9);
+        TagCompletionIndex index = new TagCompletionIndex();
+        index.build(Arrays.asList(cat, car));
+
+        for (int i = 0; i < 10; i++) {
+            cat.incrementFrequency();
+            index.frequencyChanged(cat);
+        }
+        assertEquals(Arrays.asList(cat, car), index.find("ca", 8));
+
+        for (int i = 0; i < 10; i++) {
+            cat.decrementFrequency();
+            index.frequencyChanged(cat);
+        }
+        assertEquals(Arrays.asList(car, cat), index.find("ca", 8));
+    }
+
+    @Test
+    void matchesBruteForce() {
+        Random random = new Random(42);
+        List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tags.add(tag(i, Integer.toString(random.nextInt(100000), 36), random.nextInt(50)));
+        }
+        tags = new ArrayList<>(tags.stream().collect(Collectors.toMap(Tag::getName, t -> t, (a, b) -> a)).values());
+
+        TagCompletionIndex index = new TagCompletionIndex();
+        index.build(tags);
+
+        for (int i = 0; i < 5000; i++) {
+            Tag t = tags.get(random.nextInt(tags.size()));
+            if (random.nextBoolean() || t.getFrequency() == 0) {
+                t.incrementFrequency();
+            } else {
+                t.decrementFrequency();
+            }
+            index.frequencyChanged(t);
+
+            String prefix = t.getName().substring(0, random.nextInt(t.getName().length()));
+            assertEquals(bruteForce(tags, prefix, 8), index.find(prefix, 8));
+        }
+    }
+
+    @Test
+    void findSimilar() {
+        Tag character = tag(1, "character:alice", 0), chart = tag(2, "chart", 3), cats = tag(3, "cats", 0), cast = tag(4, "cast", 5), catsup = tag(5, "catsup", 0);
+        TagCompletionIndex index = new TagCompletionIndex();
+        index.build(Arrays.asList(character, chart, cats, cast, catsup));
+
+        assertEquals(Arrays.asList(character), index.findSimilar("charcter", 8));
+        assertEquals(Arrays.asList(chart, character), index.findSimilar("chaf", 8));
+        assertEquals(Arrays.asList(cast, cats, catsup), index.findSimilar("caat", 8));
+        assertEquals(Arrays.asList(cast, cats), index.findSimilar("caat", 2));
+        assertEquals(Arrays.asList(catsup, cats), index.findSimilar("catsu", 8));
+        assertEquals(Arrays.asList(cast, cats, catsup), index.findSimilar("ca", 8));
+        assertTrue(index.findSimilar("cax", 8).isEmpty());
+    }
+
+    @Test
+    void findSimilarMatchesBruteForce() {
+        Random random = new Random(42);
+        final String alphabet = "abcd_:";
+        List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder name = new StringBuilder();
+            final int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; j++) name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            tags.add(tag(i, name.toString(), random.nextInt(20)));
+        }
+        tags = new ArrayList<>(tags.stream().collect(Collectors.toMap(Tag::getName, t -> t, (a, b) -> a)).values());
+
+        TagCompletionIndex index = new TagCompletionIndex();
+        index.build(tags);
+
+        for (int i = 0; i < 500; i++) {
+            StringBuilder text = new StringBuilder();
+            final int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            assertEquals(bruteForceSimilar(tags, text.toString(), 8), index.findSimilar(text.toString(), 8), text.toString());
+        }
+    }
+
+    @Test
+    void invalidatedByUnknownTag() {
+        TagCompletionIndex index = new TagCompletionIndex();
+        index.build(Arrays.asList(tag(1, "cat", 1)));
+        assertTrue(index.isValid());
+
+        index.frequencyChanged(tag(2, "dog", 1));
+        assertFalse(index.isValid());
+    }
+
+}
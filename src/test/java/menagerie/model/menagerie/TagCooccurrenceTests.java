@@ -0,0 +1,145 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagCooccurrenceTests {
+
+    private static TagCooccurrence build(List<Item> items) throws InterruptedException {
+        TagCooccurrence cooccurrence = new TagCooccurrence();
+        cooccurrence.buildAsync(items);
+        for (int i = 0; i < 500 && !cooccurrence.isBuilt(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(cooccurrence.isBuilt());
+        return cooccurrence;
+    }
+
+    private static Item item(int id, Tag... tags) {
+        Item item = new MediaItem(null, id, 0, null);
+        for (Tag tag : tags) item.addTag(tag);
+        return item;
+    }
+
+    @Test
+    void countsPairs() throws InterruptedException {
+        Tag cat = new Tag(null, 1, "cat", null), dog = new Tag(null, 2, "dog", null), bird = new Tag(null, 3, "bird", null);
+        Item a = item(1, cat, dog), b = item(2, cat, dog, bird);
+        TagCooccurrence cooccurrence = build(Arrays.asList(a, b));
+
+        assertEquals(2, cooccurrence.getCount(cat, dog));
+        assertEquals(2, cooccurrence.getCount(dog, cat));
+        assertEquals(1, cooccurrence.getCount(bird, cat));
+
+        a.addTag(bird);
+        cooccurrence.tagAdded(a, bird);
+        assertEquals(2, cooccurrence.getCount(cat, bird));
+
+        b.removeTag(cat);
+        cooccurrence.tagRemoved(b, cat);
+        assertEquals(1, cooccurrence.getCount(cat, dog));
+        assertEquals(1, cooccurrence.getCount(cat, bird));
+
+        cooccurrence.itemRemoved(a);
+        assertEquals(0, cooccurrence.getCount(cat, dog));
+        assertEquals(1, cooccurrence.getCount(dog, bird));
+    }
+
+    @Test
+    void countsChangesDuringBuild() throws InterruptedException {
+        Tag cat = new Tag(null, 1, "cat", null), dog = new Tag(null, 2, "dog", null), bird = new Tag(null, 3, "bird", null);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) items.add(item(i + 1, cat, dog));
+        Item a = items.get(0), b = items.get(items.size() - 1);
+
+        TagCooccurrence cooccurrence = new TagCooccurrence();
+        cooccurrence.buildAsync(items);
+        a.addTag(bird);
+        cooccurrence.tagAdded(a, bird);
+        b.removeTag(dog);
+        cooccurrence.tagRemoved(b, dog);
+        for (int i = 0; i < 500 && !cooccurrence.isBuilt(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(cooccurrence.isBuilt());
+
+        assertEquals(items.size() - 1, cooccurrence.getCount(cat, dog));
+        assertEquals(1, cooccurrence.getCount(cat, bird));
+        assertEquals(1, cooccurrence.getCount(dog, bird));
+    }
+
+    @Test
+    void findRelated() throws InterruptedException {
+        Tag cat = new Tag(null, 1, "cat", null), whiskers = new Tag(null, 2, "whiskers", null), fur = new Tag(null, 3, "fur", null), wings = new Tag(null, 4, "wings", null);
+        Tag bird = new Tag(null, 5, "bird", null);
+        List<Item> items = Arrays.asList(item(1, cat, whiskers, fur), item(2, cat, whiskers), item(3, cat, fur), item(4, cat, whiskers), item(5, bird, wings));
+        TagCooccurrence cooccurrence = build(items);
+
+        Map<Tag, Integer> context = Collections.singletonMap(cat, 1);
+        assertEquals(Arrays.asList(whiskers, fur), cooccurrence.findRelated(context, tag -> tag != cat, 8));
+        assertEquals(Collections.singletonList(whiskers), cooccurrence.findRelated(context, tag -> tag != cat, 1));
+        assertEquals(Collections.singletonList(fur), cooccurrence.findRelated(context, tag -> tag.getName().startsWith("f"), 8));
+        assertTrue(cooccurrence.findRelated(Collections.singletonMap(wings, 1), tag -> tag == cat, 8).isEmpty());
+    }
+
+    @Test
+    void matchesBruteForce() throws InterruptedException {
+        Random random = new Random(42);
+        Tag[] tags = new Tag[200];
+        for (int i = 0; i < tags.length; i++) tags[i] = new Tag(null, i + 1, "tag_" + i, null);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Item item = item(i + 1);
+            for (int j = random.nextInt(10); j > 0; j--) item.addTag(tags[random.nextInt(tags.length)]);
+            items.add(item);
+        }
+        TagCooccurrence cooccurrence = build(items);
+
+        for (int i = 0; i < 5000; i++) {
+            Item item = items.get(random.nextInt(items.size()));
+            Tag tag = tags[random.nextInt(tags.length)];
+            if (item.hasTag(tag)) {
+                item.removeTag(tag);
+                cooccurrence.tagRemoved(item, tag);
+            } else {
+                item.addTag(tag);
+                cooccurrence.tagAdded(item, tag);
+            }
+        }
+
+        for (Tag a : tags) {
+            for (Tag b : tags) {
+                if (a == b) continue;
+                final long expected = items.stream().filter(item -> item.hasTag(a) && item.hasTag(b)).count();
+                assertEquals(expected, cooccurrence.getCount(a, b));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagDictionaryTests {
+
+    private static Set<String> names(List<Tag> tags) {
+        Set<String> names = new HashSet<>();
+        tags.forEach(t -> names.add(t.getName()));
+        return names;
+    }
+
+    private static Set<String> set(String... names) {
+        Set<String> set = new HashSet<>();
+        for (String name : names) set.add(name);
+        return set;
+    }
+
+    private static TagDictionary dictionary(String... names) {
+        TagDictionary dictionary = new TagDictionary();
+        for (int i = 0; i < names.length; i++) {
+            dictionary.add(new Tag(null, i + 1, names[i], null));
+        }
+        return dictionary;
+    }
+
+    @Test
+    void exactLookup() {
+        TagDictionary dictionary = dictionary("cat", "dog");
+
+        assertEquals("cat", dictionary.get("CAT").getName());
+        assertNull(dictionary.get("bird"));
+        assertEquals(set("dog"), names(dictionary.find("dog")));
+        assertEquals(set(), names(dictionary.find("do")));
+    }
+
+    @Test
+    void prefixAndSuffix() {
+        TagDictionary dictionary = dictionary("artist:a", "artist:b", "artists", "blue_hair", "red_hair", "hair");
+
+        assertEquals(set("artist:a", "artist:b"), names(dictionary.find("artist:*")));
+        assertEquals(set("blue_hair", "red_hair"), names(dictionary.find("*_hair")));
+        assertEquals(set("blue_hair", "red_hair", "hair"), names(dictionary.find("*hair")));
+        assertEquals(6, dictionary.find("*").size());
+    }
+
+    @Test
+    void innerWildcards() {
+        TagDictionary dictionary = dictionary("abc", "abbc", "ac", "abcd", "xabc");
+
+        assertEquals(set("abc", "abbc", "ac"), names(dictionary.find("a*c")));
+        assertEquals(set("abc", "abbc", "abcd", "xabc"), names(dictionary.find("*b*")));
+        assertEquals(set("abc", "abbc"), names(dictionary.find("a*b*c")));
+    }
+
+    @Test
+    void remove() {
+        Tag tag = new Tag(null, 1, "cat", null);
+        TagDictionary dictionary = new TagDictionary();
+        dictionary.add(tag);
+        dictionary.remove(tag);
+
+        assertNull(dictionary.get("cat"));
+        assertTrue(dictionary.find("*t").isEmpty());
+        assertEquals(0, dictionary.size());
+    }
+
+}
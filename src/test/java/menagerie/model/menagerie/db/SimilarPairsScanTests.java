@@ -0,0 +1,150 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie.db;
+
+import menagerie.model.SimilarPair;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarPairsScanTests {
+
+    private static final int ITEM_COUNT = 10;
+    private static final double CONFIDENCE = 0.95;
+
+    private Connection database;
+    private DatabaseManager db;
+    private Menagerie menagerie;
+
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        database = DriverManager.getConnection("jdbc:h2:mem:", "sa", "");
+        DatabaseVersionUpdater.updateDatabase(database);
+        db = new DatabaseManager(database);
+        for (int id = 1; id <= ITEM_COUNT; id++) {
+            db.createMedia(new MediaItem(null, id, id, 0, false, null, new File("/library/file_" + id + ".png"), null, null));
+        }
+        menagerie = new Menagerie(db);
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        database.close();
+    }
+
+    private SimilarPair<MediaItem> pair(int id1, int id2, double similarity) {
+        return new SimilarPair<>((MediaItem) menagerie.getItemByID(id1), (MediaItem) menagerie.getItemByID(id2), similarity);
+    }
+
+    /**
+     * @return Stored pairs as "id1-id2" strings, mapped to their similarity.
+     */
+    private Map<String, Double> storedPairs() throws SQLException {
+        Map<String, Double> pairs = new TreeMap<>();
+        try (Statement s = database.createStatement(); ResultSet rs = s.executeQuery("SELECT item_1, item_2, similarity FROM similar_pairs;")) {
+            while (rs.next()) {
+                pairs.put(rs.getInt(1) + "-" + rs.getInt(2), rs.getDouble(3));
+            }
+        }
+        return pairs;
+    }
+
+    @Test
+    void finishAdvancesWatermark() throws SQLException {
+        db.startSimilarPairsScan();
+        assertEquals(0, db.getSimilarPairsWatermark());
+
+        assertEquals(ITEM_COUNT, db.finishSimilarPairsScan(0, ITEM_COUNT, CONFIDENCE, Arrays.asList(pair(1, 2, 0.99), pair(3, 7, 0.96))));
+        assertEquals(ITEM_COUNT, db.getSimilarPairsWatermark());
+        assertEquals(CONFIDENCE, db.getSimilarPairsConfidence(), 0);
+        assertEquals(new HashSet<>(Arrays.asList("1-2", "3-7")), storedPairs().keySet());
+    }
+
+    @Test
+    void itemChangedDuringScanIsScannedAgain() throws SQLException {
+        db.startSimilarPairsScan();
+        // Histograms of items 4 and 6 change while the scan is comparing them
+        db.invalidateSimilarPairs(6);
+        db.invalidateSimilarPairs(4);
+
+        assertEquals(3, db.finishSimilarPairsScan(0, ITEM_COUNT, CONFIDENCE, Arrays.asList(pair(1, 2, 0.99), pair(4, 9, 0.96))));
+        assertEquals(3, db.getSimilarPairsWatermark());
+
+        // The next scan starts again from the changed item, and replaces every pair above the watermark
+        db.startSimilarPairsScan();
+        assertEquals(ITEM_COUNT, db.finishSimilarPairsScan(3, ITEM_COUNT, CONFIDENCE, Collections.singletonList(pair(4, 8, 0.97))));
+        assertEquals(new HashSet<>(Arrays.asList("1-2", "4-8")), storedPairs().keySet());
+    }
+
+    @Test
+    void changesBeforeScanDontHoldBackWatermark() throws SQLException {
+        db.invalidateSimilarPairs(5);
+
+        db.startSimilarPairsScan();
+        assertEquals(ITEM_COUNT, db.finishSimilarPairsScan(0, ITEM_COUNT, CONFIDENCE, Collections.emptyList()));
+        assertEquals(ITEM_COUNT, db.getSimilarPairsWatermark());
+    }
+
+    @Test
+    void invalidateLowersWatermarkAndRemovesPairs() throws SQLException {
+        db.startSimilarPairsScan();
+        db.finishSimilarPairsScan(0, ITEM_COUNT, CONFIDENCE, Arrays.asList(pair(1, 2, 0.99), pair(2, 6, 0.98), pair(5, 9, 0.96)));
+
+        db.invalidateSimilarPairs(5);
+        assertEquals(4, db.getSimilarPairsWatermark());
+        assertEquals(new HashSet<>(Arrays.asList("1-2", "2-6")), storedPairs().keySet());
+
+        // Invalidating a higher item doesn't raise the watermark again
+        db.invalidateSimilarPairs(8);
+        assertEquals(4, db.getSimilarPairsWatermark());
+    }
+
+    @Test
+    void rescanReplacesPairsAboveWatermark() throws SQLException {
+        db.startSimilarPairsScan();
+        db.finishSimilarPairsScan(0, ITEM_COUNT, CONFIDENCE, Arrays.asList(pair(1, 2, 0.99), pair(2, 6, 0.98), pair(3, 7, 0.96)));
+        db.invalidateSimilarPairs(5);
+
+        db.startSimilarPairsScan();
+        assertEquals(ITEM_COUNT, db.finishSimilarPairsScan(4, ITEM_COUNT, CONFIDENCE, Collections.singletonList(pair(2, 6, 0.97))));
+
+        Map<String, Double> stored = storedPairs();
+        assertEquals(new HashSet<>(Arrays.asList("1-2", "2-6")), stored.keySet());
+        assertEquals(0.97, stored.get("2-6"), 0);
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie.histogram;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramIndexTests {
+
+    /**
+     * @return Random histograms, where every other one is a slightly changed copy of an earlier one.
+     */
+    private static ImageHistogram[] histograms(Random random, int count) throws HistogramReadException {
+        ImageHistogram[] histograms = new ImageHistogram[count];
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 1) {
+                histograms[i] = TestHistograms.noisyHistogram(histograms[random.nextInt(i)], 0.1, random);
+            } else {
+                histograms[i] = TestHistograms.randomHistogram(random);
+            }
+        }
+        return histograms;
+    }
+
+    private static void assertMatchesBruteForce(HistogramIndex<Integer> index, ImageHistogram[] histograms, Set<Integer> present, ImageHistogram query, float distance) {
+        List<Integer> found = index.findWithin(query, distance);
+        Set<Integer> unique = new HashSet<>(found);
+        assertEquals(found.size(), unique.size());
+
+        for (int i = 0; i < histograms.length; i++) {
+            final double d = (1 - query.getSimilarity(histograms[i])) * 8;
+            if (!present.contains(i)) {
+                assertFalse(unique.contains(i));
+            } else if (d <= distance - 1e-4) {
+                assertTrue(unique.contains(i));
+            } else if (d > distance + 1e-4) {
+                assertFalse(unique.contains(i));
+            }
+        }
+    }
+
+    @Test
+    void findWithin() throws HistogramReadException {
+        Random random = new Random(42);
+        ImageHistogram[] histograms = histograms(random, 1000);
+        HistogramIndex<Integer> index = new HistogramIndex<>();
+        Set<Integer> present = new HashSet<>();
+        for (int i = 0; i < histograms.length; i++) {
+            index.add(i, histograms[i]);
+            present.add(i);
+        }
+        assertEquals(histograms.length, index.size());
+
+        for (int q = 0; q < 50; q++) {
+            ImageHistogram query = histograms[random.nextInt(histograms.length)];
+            for (float distance : new float[]{0, 0.2f, 0.8f, 2, 8}) {
+                assertMatchesBruteForce(index, histograms, present, query, distance);
+            }
+        }
+        assertEquals(histograms.length, index.findWithin(histograms[0], 8).size());
+    }
+
+    @Test
+    void build() throws HistogramReadException {
+        Random random = new Random(3);
+        ImageHistogram[] histograms = histograms(random, 1000);
+        HistogramIndex<Integer> index = new HistogramIndex<>();
+        index.add(-1, histograms[0]);
+
+        Map<Integer, ImageHistogram> map = new HashMap<>();
+        Set<Integer> present = new HashSet<>();
+        for (int i = 0; i < histograms.length; i += 2) {
+            map.put(i, histograms[i]);
+            present.add(i);
+        }
+        index.build(map);
+        assertEquals(present.size(), index.size());
+        assertFalse(index.remove(-1));
+
+        for (int i = 1; i < histograms.length; i += 2) {
+            index.add(i, histograms[i]);
+            present.add(i);
+        }
+        for (int q = 0; q < 50; q++) {
+            assertMatchesBruteForce(index, histograms, present, histograms[random.nextInt(histograms.length)], 0.8f);
+        }
+    }
+
+    @Test
+    void addAndRemove() throws HistogramReadException {
+        Random random = new Random(7);
+        ImageHistogram[] histograms = histograms(random, 600);
+        HistogramIndex<Integer> index = new HistogramIndex<>();
+        Set<Integer> present = new HashSet<>();
+
+        for (int round = 0; round < 2000; round++) {
+            final int i = random.nextInt(histograms.length);
+            if (present.contains(i) && random.nextInt(3) == 0) {
+                assertTrue(index.remove(i));
+                present.remove(i);
+            } else {
+                index.add(i, histograms[i]);
+                present.add(i);
+            }
+            assertEquals(present.size(), index.size());
+
+            if (round % 100 == 0) {
+                assertMatchesBruteForce(index, histograms, present, histograms[random.nextInt(histograms.length)], 0.8f);
+            }
+        }
+        assertFalse(index.remove(-1));
+
+        for (int i = 0; i < histograms.length; i++) {
+            if (present.contains(i)) assertTrue(index.remove(i));
+        }
+        assertEquals(0, index.size());
+        assertTrue(index.findWithin(histograms[0], 8).isEmpty());
+    }
+
+    @Test
+    void identicalHistograms() throws HistogramReadException {
+        ImageHistogram histogram = histograms(new Random(1), 1)[0];
+        HistogramIndex<Integer> index = new HistogramIndex<>();
+        for (int i = 0; i < 500; i++) {
+            index.add(i, histogram);
+        }
+
+        assertEquals(500, index.findWithin(histogram, 0).size());
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie.histogram;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramStoreTests {
+
+    /**
+     * @return A channel with its mass leaning towards dark or bright bins, so means differ between channels.
+     */
+    private static ByteArrayInputStream skewedChannel(Random random) {
+        final double lean = 0.8 + random.nextDouble() * 0.4;
+        double[] bins = new double[ImageHistogram.BIN_SIZE];
+        for (int i = 0; i < bins.length; i++) bins[i] = random.nextDouble() * Math.pow(lean, i);
+        return TestHistograms.channel(bins);
+    }
+
+    private static ImageHistogram skewedHistogram(Random random) throws HistogramReadException {
+        return new ImageHistogram(skewedChannel(random), skewedChannel(random), skewedChannel(random), skewedChannel(random));
+    }
+
+    @Test
+    void matchesImageHistogram() throws HistogramReadException {
+        Random random = new Random(42);
+        ImageHistogram[] histograms = new ImageHistogram[50];
+        HistogramStore store = new HistogramStore(1);
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = TestHistograms.randomHistogram(random);
+            assertEquals(i, store.add(histograms[i]));
+        }
+        assertEquals(histograms.length, store.size());
+
+        for (int i = 0; i < histograms.length; i++) {
+            assertEquals(histograms[i].isColorful(), store.isColorful(i));
+            for (int j = 0; j < histograms.length; j++) {
+                assertEquals(histograms[i].getSimilarity(histograms[j]), store.getSimilarity(i, j), 1e-5);
+            }
+        }
+    }
+
+    @Test
+    void distanceWithin() throws HistogramReadException {
+        Random random = new Random(42);
+        ImageHistogram[] histograms = new ImageHistogram[60];
+        HistogramStore store = new HistogramStore(histograms.length);
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = i % 2 == 0 ? skewedHistogram(random) : TestHistograms.randomHistogram(random);
+            store.add(histograms[i]);
+        }
+
+        int pruned = 0;
+        for (int i = 0; i < histograms.length; i++) {
+            for (int j = 0; j < histograms.length; j++) {
+                final float distance = store.getDistance(i, j);
+                assertTrue(store.getLowerBound(i, j) <= distance + 1e-4);
+
+                for (float budget : new float[]{0, 0.1f, 0.4f, 0.8f, 2, 8}) {
+                    final float within = store.getDistanceWithin(i, j, budget);
+                    if (distance <= budget) {
+                        assertEquals(distance, within);
+                    } else {
+                        assertTrue(within > budget);
+                        assertTrue(within <= distance + 1e-4);
+                        if (within < distance) pruned++;
+                    }
+                }
+            }
+        }
+        assertTrue(pruned > 0);
+    }
+
+    @Test
+    void boundedSimilarity() throws HistogramReadException {
+        Random random = new Random(42);
+        ImageHistogram[] histograms = new ImageHistogram[60];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = i % 2 == 0 ? skewedHistogram(random) : TestHistograms.randomHistogram(random);
+        }
+
+        for (ImageHistogram a : histograms) {
+            for (ImageHistogram b : histograms) {
+                final double similarity = a.getSimilarity(b);
+                for (double min : new double[]{0, 0.5, 0.9, 0.95, 1}) {
+                    final double bounded = a.getSimilarity(b, min);
+                    if (similarity >= min) {
+                        assertEquals(similarity, bounded);
+                    } else {
+                        assertTrue(bounded < min);
+                        assertTrue(bounded >= similarity - 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void addsOnce() throws HistogramReadException {
+        Random random = new Random(42);
+        ImageHistogram a = TestHistograms.randomHistogram(random), b = TestHistograms.randomHistogram(random);
+        HistogramStore store = new HistogramStore(4);
+
+        assertEquals(0, store.add(a));
+        assertEquals(1, store.add(b));
+        assertEquals(0, store.add(a));
+        assertEquals(2, store.size());
+        assertEquals(0, store.getDistance(1, 1));
+    }
+
+}
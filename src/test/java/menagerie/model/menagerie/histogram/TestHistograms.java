@@ -0,0 +1,77 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.menagerie.histogram;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Builds histograms for tests.
+ */
+public final class TestHistograms {
+
+    private TestHistograms() {
+    }
+
+    /**
+     * @param bins Unnormalized bin values.
+     * @return Serialized channel with the bins normalized to sum to 1.
+     */
+    public static ByteArrayInputStream channel(double[] bins) {
+        double total = 0;
+        for (double bin : bins) total += bin;
+        ByteBuffer bb = ByteBuffer.allocate(ImageHistogram.BIN_SIZE * 8);
+        for (double bin : bins) bb.putDouble(bin / total);
+        return new ByteArrayInputStream(bb.array());
+    }
+
+    public static ByteArrayInputStream randomChannel(Random random) {
+        double[] bins = new double[ImageHistogram.BIN_SIZE];
+        for (int i = 0; i < bins.length; i++) bins[i] = random.nextDouble();
+        return channel(bins);
+    }
+
+    /**
+     * @param noise Largest relative change of each bin, e.g. 0.1 for up to 10%.
+     */
+    public static ByteArrayInputStream noisyChannel(double[] base, double noise, Random random) {
+        double[] bins = new double[ImageHistogram.BIN_SIZE];
+        for (int i = 0; i < bins.length; i++) bins[i] = base[i] * (1 - noise + random.nextDouble() * noise * 2);
+        return channel(bins);
+    }
+
+    public static ImageHistogram randomHistogram(Random random) throws HistogramReadException {
+        return new ImageHistogram(randomChannel(random), randomChannel(random), randomChannel(random), randomChannel(random));
+    }
+
+    /**
+     * @param noise Largest relative change of each bin, e.g. 0.1 for up to 10%.
+     * @return A slightly changed copy of the base histogram.
+     */
+    public static ImageHistogram noisyHistogram(ImageHistogram base, double noise, Random random) throws HistogramReadException {
+        return new ImageHistogram(noisyChannel(base.getAlpha(), noise, random), noisyChannel(base.getRed(), noise, random), noisyChannel(base.getGreen(), noise, random), noisyChannel(base.getBlue(), noise, random));
+    }
+
+}
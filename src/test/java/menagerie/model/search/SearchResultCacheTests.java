@@ -0,0 +1,143 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.search;
+
+import menagerie.model.menagerie.GroupItem;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Menagerie;
+import menagerie.model.menagerie.Tag;
+import menagerie.model.menagerie.db.DatabaseManager;
+import menagerie.model.menagerie.db.DatabaseVersionUpdater;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTests {
+
+    private static final int ITEM_COUNT = 10;
+
+    private Connection database;
+    private Menagerie menagerie;
+    private Tag cat;
+    private final SearchResultCache cache = new SearchResultCache(10);
+
+
+    @BeforeEach
+    void createMenagerie() throws SQLException {
+        database = DriverManager.getConnection("jdbc:h2:mem:", "sa", "");
+        DatabaseVersionUpdater.updateDatabase(database);
+        DatabaseManager db = new DatabaseManager(database);
+        for (int id = 1; id <= ITEM_COUNT; id++) {
+            db.createMedia(new MediaItem(null, id, id, 0, false, null, new File("/library/file_" + id + ".png"), null, null));
+        }
+        menagerie = new Menagerie(db);
+
+        cat = menagerie.createTag("cat");
+        for (int id = 1; id <= 3; id++) {
+            item(id).addTag(cat);
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        database.close();
+    }
+
+    private Item item(int id) {
+        return menagerie.getItemByID(id);
+    }
+
+    private static BitSet ids(int... ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) set.set(id);
+        return set;
+    }
+
+    private static BitSet resultIDs(Search search) {
+        BitSet set = new BitSet();
+        for (Item item : search.getResults()) set.set(item.getId());
+        return set;
+    }
+
+    @Test
+    void restorePatchesModifiedItems() {
+        Search first = new Search("cat", false, true, false);
+        cache.populate(first, menagerie);
+        assertEquals(ids(1, 2, 3), resultIDs(first));
+
+        item(5).addTag(cat);
+        item(1).removeTag(cat);
+
+        Search second = new Search("cat", false, true, false);
+        assertTrue(cache.restore(second, menagerie));
+        assertEquals(ids(2, 3, 5), resultIDs(second));
+    }
+
+    @Test
+    void overflowedLogEvaluatesInFull() {
+        cache.populate(new Search("cat", false, true, false), menagerie);
+        final long count = menagerie.getModificationCount();
+
+        item(5).addTag(cat);
+        // More modifications than the log keeps
+        menagerie.refreshInSearches(Collections.nCopies(100000, item(6)));
+        assertNull(menagerie.getItemsModifiedSince(count));
+
+        Search second = new Search("cat", false, true, false);
+        assertFalse(cache.restore(second, menagerie));
+        cache.populate(second, menagerie);
+        assertEquals(ids(1, 2, 3, 5), resultIDs(second));
+    }
+
+    @Test
+    void nonCacheableSearchesAreRefused() {
+        Search missing = new Search("missing:file", false, true, false);
+        assertFalse(missing.isCacheable());
+
+        cache.store(missing, menagerie, menagerie.getModificationCount());
+        assertFalse(cache.restore(new Search("missing:file", false, true, false), menagerie));
+    }
+
+    @Test
+    void keysDifferByScopeAndShowGrouped() {
+        GroupItem group = new GroupItem(menagerie, ITEM_COUNT + 1, 0, "group");
+        cache.populate(new Search("cat", false, true, false), menagerie);
+
+        assertFalse(cache.restore(new Search("cat", false, false, false), menagerie));
+        assertFalse(cache.restore(new GroupSearch("cat", group, false, false), menagerie));
+        // Ordering isn't part of the key
+        assertTrue(cache.restore(new Search("cat", true, true, true), menagerie));
+    }
+
+}
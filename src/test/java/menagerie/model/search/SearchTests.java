@@ -0,0 +1,69 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.model.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTests {
+
+    @Test
+    void shuffleKeysAreStable() {
+        Search a = new Search(null, false, false, true, 42);
+        Search b = new Search(null, false, false, true, 42);
+
+        for (int id = 0; id < 1000; id++) {
+            assertEquals(a.getShuffleKey(id), b.getShuffleKey(id));
+            assertEquals(id, (int) a.getShuffleKey(id));
+        }
+    }
+
+    @Test
+    void shuffleKeysAreUnique() {
+        Search search = new Search(null, false, false, true, 7);
+        Set<Long> keys = new HashSet<>();
+        for (int id = 0; id < 10000; id++) {
+            assertTrue(keys.add(search.getShuffleKey(id)));
+        }
+    }
+
+    @Test
+    void seedsChangeOrder() {
+        Search a = new Search(null, false, false, true, 1);
+        Search b = new Search(null, false, false, true, 2);
+
+        int inversions = 0;
+        for (int id = 1; id < 1000; id++) {
+            boolean orderA = a.getShuffleKey(id) < a.getShuffleKey(id - 1);
+            boolean orderB = b.getShuffleKey(id) < b.getShuffleKey(id - 1);
+            if (orderA != orderB) inversions++;
+        }
+        assertTrue(inversions > 100);
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package menagerie.model.search.query;
+
+import menagerie.model.menagerie.GroupItem;
+import menagerie.model.menagerie.Item;
+import menagerie.model.menagerie.MediaItem;
+import menagerie.model.menagerie.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryParserTests {
+
+    private static MediaItem item(int id, Tag... tags) {
+        MediaItem item = new MediaItem(null, id, 0, null);
+        for (Tag t : tags) item.addTag(t);
+        return item;
+    }
+
+    @Test
+    void emptySearch() {
+        assertNull(QueryParser.parse(null));
+        assertNull(QueryParser.parse(""));
+        assertNull(QueryParser.parse("   "));
+    }
+
+    @Test
+    void tokenize() {
+        assertEquals(Arrays.asList("(", "cat", "|", "dog", ")", "-sketch", "type:image"), QueryParser.tokenize("(cat | dog) -sketch type:image"));
+        assertEquals(Arrays.asList("cat", "|", "dog"), QueryParser.tokenize("cat|dog"));
+        assertEquals(Arrays.asList("-(", "a", "b", ")"), QueryParser.tokenize("-(a b)"));
+        assertEquals(Arrays.asList("smile_(expression)"), QueryParser.tokenize("smile_(expression)"));
+        assertEquals(Arrays.asList("(", "smile_(expression)", "|", "cat", ")"), QueryParser.tokenize("(smile_(expression) | cat)"));
+        assertEquals(Arrays.asList("title:\"a | (b\""), QueryParser.tokenize("title:\"a | (b\""));
+    }
+
+    @Test
+    void implicitAnd() {
+        Tag cat = new Tag(null, 1, "cat", null);
+        Tag dog = new Tag(null, 2, "dog", null);
+
+        QueryNode query = QueryParser.parse("cat dog");
+        assertTrue(query instanceof AndNode);
+        assertTrue(query.accept(item(1, cat, dog)));
+        assertFalse(query.accept(item(2, cat)));
+        assertFalse(query.accept(item(3)));
+    }
+
+    @Test
+    void alternativesAndGroups() {
+        Tag cat = new Tag(null, 1, "cat", null);
+        Tag dog = new Tag(null, 2, "dog", null);
+        Tag sketch = new Tag(null, 3, "sketch", null);
+
+        QueryNode query = QueryParser.parse("(cat | dog) -sketch");
+        assertTrue(query.accept(item(1, cat)));
+        assertTrue(query.accept(item(2, dog)));
+        assertTrue(query.accept(item(3, cat, dog)));
+        assertFalse(query.accept(item(4, cat, sketch)));
+        assertFalse(query.accept(item(5, sketch)));
+        assertFalse(query.accept(item(6)));
+    }
+
+    @Test
+    void negatedGroup() {
+        Tag cat = new Tag(null, 1, "cat", null);
+        Tag dog = new Tag(null, 2, "dog", null);
+
+        QueryNode query = QueryParser.parse("-(cat dog)");
+        assertTrue(query instanceof NotNode);
+        assertFalse(query.accept(item(1, cat, dog)));
+        assertTrue(query.accept(item(2, cat)));
+        assertTrue(query.accept(item(3)));
+    }
+
+    @Test
+    void unbalancedParentheses() {
+        Tag cat = new Tag(null, 1, "cat", null);
+        Tag dog = new Tag(null, 2, "dog", null);
+
+        QueryNode query = QueryParser.parse("(cat | dog");
+        assertTrue(query.accept(item(1, dog)));
+
+        query = QueryParser.parse("cat) dog");
+        assertTrue(query.accept(item(2, cat, dog)));
+        assertFalse(query.accept(item(3, cat)));
+    }
+
+    @Test
+    void rulesOrderedByPriority() {
+        AndNode query = (AndNode) QueryParser.parse("type:image cat id:>5");
+        List<QueryNode> children = query.getChildren();
+        for (int i = 1; i < children.size(); i++) {
+            assertTrue(children.get(i - 1).getPriority() <= children.get(i).getPriority());
+        }
+
+        Item group = new GroupItem(null, 10, 0, "title");
+        assertFalse(query.accept(group));
+    }
+
+    @Test
+    void relativeDates() {
+        Item recent = new MediaItem(null, 1, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1), null);
+        Item old = new MediaItem(null, 2, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30), null);
+
+        QueryNode query = QueryParser.parse("date:<7d");
+        assertTrue(query.accept(recent));
+        assertFalse(query.accept(old));
+
+        query = QueryParser.parse("date:>2w");
+        assertFalse(query.accept(recent));
+        assertTrue(query.accept(old));
+
+        assertNull(QueryParser.parse("date:7d"));
+    }
+
+    @Test
+    void cacheable() {
+        assertTrue(QueryParser.parse("cat -dog").isCacheable());
+        assertTrue(QueryParser.parse("date:>2024-01-01").isCacheable());
+        assertFalse(QueryParser.parse("date:<7d").isCacheable());
+        assertFalse(QueryParser.parse("cat | -date:>2w").isCacheable());
+    }
+
+    @Test
+    void calendarDates() {
+        long day = LocalDate.parse("2024-01-01").atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Item before = new MediaItem(null, 1, day - 1, null);
+        Item during = new MediaItem(null, 2, day + TimeUnit.HOURS.toMillis(12), null);
+        Item after = new MediaItem(null, 3, day + TimeUnit.DAYS.toMillis(1), null);
+
+        QueryNode query = QueryParser.parse("date:2024-01-01");
+        assertFalse(query.accept(before));
+        assertTrue(query.accept(during));
+        assertFalse(query.accept(after));
+
+        query = QueryParser.parse("date:>2024-01-01");
+        assertFalse(query.accept(during));
+        assertTrue(query.accept(after));
+
+        query = QueryParser.parse("date:<2024-01-01");
+        assertTrue(query.accept(before));
+        assertFalse(query.accept(during));
+    }
+
+}
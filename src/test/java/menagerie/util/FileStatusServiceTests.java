@@ -0,0 +1,148 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FileStatusServiceTests {
+
+    /**
+     * More files than the threshold for listing a directory instead of checking each file.
+     */
+    private static final int LISTED_FILE_COUNT = 20;
+
+    private static List<File> createFiles(Path folder, int count) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File file = folder.resolve("file_" + i + ".png").toFile();
+            Files.write(file.toPath(), new byte[i]);
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    void checksSingleFiles(@TempDir Path folder) throws IOException {
+        FileStatusService service = new FileStatusService();
+        File file = createFiles(folder, 1).get(0);
+        File missing = folder.resolve("missing.png").toFile();
+
+        assertTrue(service.exists(file));
+        assertFalse(service.exists(missing));
+        assertEquals(0, service.getStatus(missing).getSize());
+    }
+
+    @Test
+    void prefetchListsDirectory(@TempDir Path folder) throws IOException {
+        FileStatusService service = new FileStatusService();
+        List<File> files = createFiles(folder, LISTED_FILE_COUNT);
+        File missing = folder.resolve("missing.png").toFile();
+        List<File> requested = new ArrayList<>(files);
+        requested.add(missing);
+
+        service.prefetch(requested);
+
+        for (int i = 0; i < files.size(); i++) {
+            assertTrue(service.exists(files.get(i)));
+            assertEquals(i, service.getStatus(files.get(i)).getSize());
+        }
+        assertFalse(service.exists(missing));
+    }
+
+    @Test
+    void prefetchMissingDirectory(@TempDir Path folder) {
+        FileStatusService service = new FileStatusService();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < LISTED_FILE_COUNT; i++) files.add(folder.resolve("gone").resolve("file_" + i + ".png").toFile());
+
+        service.prefetch(files);
+
+        for (File file : files) assertFalse(service.exists(file));
+    }
+
+    @Test
+    void listedNamesDifferingInCase(@TempDir Path folder) throws IOException {
+        List<File> files = createFiles(folder, LISTED_FILE_COUNT);
+        File upper = folder.resolve(files.get(0).getName().toUpperCase()).toFile();
+        // Only file systems that ignore case can find the file by another name, e.g. on Windows and macOS
+        assumeTrue(upper.exists());
+
+        FileStatusService service = new FileStatusService();
+        List<File> requested = new ArrayList<>(files);
+        requested.add(upper);
+        service.prefetch(requested);
+
+        assertTrue(service.exists(upper));
+    }
+
+    @Test
+    void freshPrefetchIgnoresCache(@TempDir Path folder) throws IOException {
+        FileStatusService service = new FileStatusService();
+        List<File> files = createFiles(folder, LISTED_FILE_COUNT);
+        service.prefetch(files);
+        assertTrue(service.exists(files.get(0)));
+
+        Files.delete(files.get(0).toPath());
+        service.prefetch(files, true, null, null);
+        assertFalse(service.exists(files.get(0)));
+        assertTrue(service.exists(files.get(1)));
+    }
+
+    @Test
+    void invalidateForgetsStatus(@TempDir Path folder) throws IOException {
+        FileStatusService service = new FileStatusService();
+        File file = folder.resolve("late.png").toFile();
+        assertFalse(service.exists(file));
+
+        Files.write(file.toPath(), new byte[1]);
+        service.invalidate(file);
+        assertTrue(service.exists(file));
+    }
+
+    @Test
+    void stoppedPrefetchSkipsDirectories(@TempDir Path folder) throws IOException {
+        FileStatusService service = new FileStatusService();
+        List<File> files = createFiles(folder, LISTED_FILE_COUNT);
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+
+        service.prefetch(files, true, () -> false, progress::add);
+        assertTrue(progress.isEmpty());
+
+        service.prefetch(files, true, () -> true, progress::add);
+        assertEquals(Collections.singletonList(LISTED_FILE_COUNT), progress);
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HammingIndexTests {
+
+    /**
+     * @return Random hashes, where every other one is an earlier one with a few bits flipped.
+     */
+    private static long[] hashes(Random random, int count) {
+        long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 1) {
+                hashes[i] = hashes[random.nextInt(i)];
+                for (int f = random.nextInt(8); f > 0; f--) hashes[i] ^= 1L << random.nextInt(64);
+            } else {
+                hashes[i] = random.nextLong();
+            }
+        }
+        return hashes;
+    }
+
+    @Test
+    void forEachWithin() {
+        Random random = new Random(42);
+        long[] hashes = hashes(random, 5000);
+        HammingIndex index = new HammingIndex(hashes);
+        assertEquals(hashes.length, index.size());
+
+        for (int distance = 0; distance <= 10; distance++) {
+            for (int q = 0; q < 200; q++) {
+                final long query = hashes[random.nextInt(hashes.length)] ^ (random.nextBoolean() ? 1L << random.nextInt(64) : 0);
+
+                List<Integer> found = new ArrayList<>();
+                index.forEachWithin(query, distance, found::add);
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < hashes.length; i++) {
+                    if (Long.bitCount(hashes[i] ^ query) <= distance) expected.add(i);
+                }
+
+                found.sort(Integer::compare);
+                assertEquals(expected, found);
+            }
+        }
+    }
+
+    @Test
+    void identicalHashes() {
+        HammingIndex index = new HammingIndex(new long[]{7, 7, 7, ~7L});
+
+        List<Integer> found = new ArrayList<>();
+        index.forEachWithin(7, 0, found::add);
+        found.sort(Integer::compare);
+        assertEquals(3, found.size());
+        assertEquals(0, (int) found.get(0));
+        assertEquals(2, (int) found.get(2));
+
+        found.clear();
+        index.forEachWithin(7, 64, found::add);
+        assertEquals(4, found.size());
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ MIT License
+
+ Copyright (c) 2019. Austin Thompson
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package menagerie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerceptualHasherTests {
+
+    private static int[] randomImage(Random random, int width, int height) {
+        // Blocks of random brightness with some noise on every pixel
+        int[] blocks = new int[16 * 16];
+        for (int i = 0; i < blocks.length; i++) blocks[i] = random.nextInt(236) + 10;
+
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int v = blocks[(y * 16 / height) * 16 + x * 16 / width] + random.nextInt(21) - 10;
+                argb[y * width + x] = 0xff000000 | v << 16 | v << 8 | v;
+            }
+        }
+        return argb;
+    }
+
+    private static int[] scale(int[] argb, int width, int height, int newWidth, int newHeight) {
+        int[] scaled = new int[newWidth * newHeight];
+        for (int y = 0; y < newHeight; y++) {
+            for (int x = 0; x < newWidth; x++) {
+                scaled[y * newWidth + x] = argb[(y * height / newHeight) * width + x * width / newWidth];
+            }
+        }
+        return scaled;
+    }
+
+    private static int[] darken(int[] argb) {
+        int[] darker = new int[argb.length];
+        for (int i = 0; i < argb.length; i++) {
+            final int c = argb[i];
+            darker[i] = 0xff000000 | ((c >> 16 & 0xff) * 3 / 4) << 16 | ((c >> 8 & 0xff) * 3 / 4) << 8 | (c & 0xff) * 3 / 4;
+        }
+        return darker;
+    }
+
+    @Test
+    void similarCopies() {
+        Random random = new Random(42);
+        for (int t = 0; t < 20; t++) {
+            int[] image = randomImage(random, 180, 160);
+            final long hash = PerceptualHasher.hash(image, 180, 160);
+
+            assertEquals(hash, PerceptualHasher.hash(image, 180, 160));
+            // Within 6 bits is similar at the weakest duplicate confidence
+            assertTrue(PerceptualHasher.getDistance(hash, PerceptualHasher.hash(scale(image, 180, 160, 90, 80), 90, 80)) <= 6);
+            assertTrue(PerceptualHasher.getDistance(hash, PerceptualHasher.hash(darken(image), 180, 160)) <= 6);
+        }
+    }
+
+    @Test
+    void differentImages() {
+        Random random = new Random(7);
+        int far = 0;
+        for (int t = 0; t < 20; t++) {
+            final long hash1 = PerceptualHasher.hash(randomImage(random, 64, 64), 64, 64);
+            final long hash2 = PerceptualHasher.hash(randomImage(random, 64, 64), 64, 64);
+            if (PerceptualHasher.getDistance(hash1, hash2) > 6) far++;
+        }
+        assertTrue(far >= 15);
+    }
+
+    @Test
+    void similarity() {
+        assertEquals(1.0, PerceptualHasher.getSimilarity(0x1234L, 0x1234L));
+        assertEquals(0.0, PerceptualHasher.getSimilarity(0, ~0L));
+        assertEquals(1 - 3 / 64.0, PerceptualHasher.getSimilarity(0, 0b10101));
+        assertEquals(3, PerceptualHasher.getDistance(0, 0b10101));
+    }
+
+}